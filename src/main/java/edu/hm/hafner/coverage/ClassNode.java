@@ -1,6 +1,7 @@
 package edu.hm.hafner.coverage;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -56,6 +57,24 @@ public final class ClassNode extends Node {
         return fileNode;
     }
 
+    /**
+     * Searches for the specified method node in the children of this class. If the method node is not found then a
+     * new method node will be created and linked to this class node.
+     *
+     * @param methodName
+     *         the method name
+     * @param signature
+     *         the signature of the method
+     *
+     * @return the existing or created method node
+     * @see #createMethodNode(String, String)
+     */
+    public MethodNode findOrCreateMethodNode(final String methodName, final String signature) {
+        return findChild(Metric.METHOD, methodName + signature)
+                .map(MethodNode.class::cast)
+                .orElseGet(() -> createMethodNode(methodName, signature));
+    }
+
     @Override
     public boolean isAggregation() {
         return false;
@@ -68,17 +87,27 @@ public final class ClassNode extends Node {
      *         the test case to add
      */
     public void addTestCase(final TestCase testCase) {
+        ensureMutable();
+
         testCases.add(testCase);
 
         replaceValue(new TestCount(testCases.size()));
     }
 
+    /**
+     * Returns the test cases of this class. The returned list is read-only for all nodes (not only for frozen ones),
+     * use {@link #addTestCase(TestCase)} to add test cases so that the test count and the cached hash of the tree
+     * are updated as well.
+     *
+     * @return a read-only view of the test cases
+     */
     @Override
     public List<TestCase> getTestCases() {
-        return testCases;
+        return Collections.unmodifiableList(testCases);
     }
 
     @Override
+    @SuppressWarnings("PMD.OverrideBothEqualsAndHashcode") // the hash code is computed in computeContentHash
     public boolean equals(final Object o) {
         if (this == o) {
             return true;
@@ -96,9 +125,7 @@ public final class ClassNode extends Node {
     }
 
     @Override
-    public int hashCode() {
-        int result = super.hashCode();
-        result = 31 * result + testCases.hashCode();
-        return result;
+    protected long computeContentHash() {
+        return new ContentHash().add(super.computeContentHash()).add(testCases).get();
     }
 }
@@ -0,0 +1,421 @@
+package edu.hm.hafner.coverage;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.math.Fraction;
+
+import edu.hm.hafner.coverage.Coverage.CoverageBuilder;
+
+/**
+ * A compact, read-only representation of a coverage tree that stores the nodes in columns (struct of arrays) rather
+ * than in individual objects. The nodes are stored in pre-order, so the subtree of a node occupies a contiguous range
+ * of the columns. For each node the following columns are stored:
+ * <ul>
+ *     <li>the index of the parent node</li>
+ *     <li>the end of the range of the subtree</li>
+ *     <li>the ordinal of the metric</li>
+ *     <li>the index of the name in a table of interned names</li>
+ *     <li>a bit mask of the metrics that have an aggregated value</li>
+ *     <li>two counters for each metric that is part of the tree: the covered and missed items of a {@link Coverage},
+ *     the value of an {@link IntegerValue}, or the numerator and denominator of a {@link FractionValue}</li>
+ * </ul>
+ * The values are the aggregated values of the nodes, i.e., the values that {@link Node#getValue(Metric)} returns.
+ * The per-line data of files is not part of the compact tree. The nodes are accessed using lightweight
+ * {@link CompactNode} views that store nothing but the index of the node.
+ *
+ * @author Ullrich Hafner
+ */
+public final class CompactTree implements Serializable {
+    private static final long serialVersionUID = 3917415326357829043L;
+
+    private static final Metric[] METRICS = Metric.values();
+    private static final int NO_PARENT = -1;
+
+    private final int size;
+    private final int[] parents;
+    private final int[] subtreeEnds;
+    private final byte[] metrics;
+    private final int[] names;
+    private final long[] valueMasks;
+    /** The first counter of each node, indexed by the ordinal of the metric; {@code null} if the metric is unused. */
+    private final int[][] covered;
+    /** The second counter of each node, indexed by the ordinal of the metric; {@code null} if the metric is unused. */
+    private final int[][] missed;
+    private final String[] nameTable;
+    private transient Map<String, Integer> nameIds;
+
+    /**
+     * Creates a compact copy of the tree with the specified root. The aggregated values of all nodes are computed in a
+     * single traversal of the tree.
+     *
+     * @param root
+     *         the root of the tree
+     *
+     * @return the compact tree
+     */
+    public static CompactTree of(final Node root) {
+        if (!root.isFrozen()) {
+            new TreeAggregator().aggregateAll(root);
+        }
+        return new CompactTree(root);
+    }
+
+    private CompactTree(final Node root) {
+        var counter = new NodeVisitor() {
+            private int count;
+
+            @Override
+            public boolean enter(final Node node) {
+                count++;
+                return true;
+            }
+        };
+        root.accept(counter);
+
+        size = counter.count;
+        parents = new int[size];
+        subtreeEnds = new int[size];
+        metrics = new byte[size];
+        names = new int[size];
+        valueMasks = new long[size];
+        covered = new int[METRICS.length][];
+        missed = new int[METRICS.length][];
+
+        var builder = new ColumnBuilder();
+        root.accept(builder);
+        nameTable = builder.internedNames.toArray(new String[0]);
+        nameIds = builder.ids;
+    }
+
+    /**
+     * Returns the number of nodes in this tree.
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the root of this tree.
+     *
+     * @return the root
+     */
+    public CompactNode getRoot() {
+        return new CompactNode(0);
+    }
+
+    private void encode(final int index, final Value value) {
+        int slot = value.getMetric().ordinal();
+        int first;
+        int second;
+        if (value instanceof Coverage) {
+            first = ((Coverage) value).getCovered();
+            second = ((Coverage) value).getMissed();
+        }
+        else if (value instanceof IntegerValue) {
+            first = ((IntegerValue) value).getValue();
+            second = 0;
+        }
+        else if (value instanceof FractionValue) {
+            var fraction = ((FractionValue) value).getFraction();
+            first = fraction.getNumerator();
+            second = fraction.getDenominator();
+        }
+        else {
+            throw new IllegalArgumentException("Unsupported value: " + value);
+        }
+        if (covered[slot] == null) {
+            covered[slot] = new int[size];
+            missed[slot] = new int[size];
+        }
+        covered[slot][index] = first;
+        missed[slot][index] = second;
+        valueMasks[index] |= 1L << slot;
+    }
+
+    private Optional<Value> decode(final int index, final Metric metric) {
+        int slot = metric.ordinal();
+        if ((valueMasks[index] & 1L << slot) == 0) {
+            return Optional.empty();
+        }
+        int first = covered[slot][index];
+        int second = missed[slot][index];
+        switch (metric) {
+            case COMPLEXITY:
+                return Optional.of(new CyclomaticComplexity(first));
+            case COMPLEXITY_MAXIMUM:
+                return Optional.of(new CyclomaticComplexity(first, Metric.COMPLEXITY_MAXIMUM));
+            case TESTS:
+                return Optional.of(new TestCount(first));
+            case LOC:
+                return Optional.of(new LinesOfCode(first));
+            case COMPLEXITY_DENSITY:
+                return Optional.of(new FractionValue(metric, first, second));
+            default:
+                return Optional.of(new CoverageBuilder(metric).withCovered(first).withMissed(second).build());
+        }
+    }
+
+    private synchronized Map<String, Integer> getNameIds() {
+        if (nameIds == null) {
+            var ids = new HashMap<String, Integer>();
+            for (int i = 0; i < nameTable.length; i++) {
+                ids.put(nameTable[i], i);
+            }
+            nameIds = ids;
+        }
+        return nameIds;
+    }
+
+    /**
+     * Fills the columns while visiting the nodes of the tree in pre-order.
+     */
+    private final class ColumnBuilder implements NodeVisitor {
+        private final List<String> internedNames = new ArrayList<>();
+        private final Map<String, Integer> ids = new HashMap<>();
+        private int[] path = new int[16];
+        private int depth;
+        private int next;
+
+        @Override
+        public boolean enter(final Node node) {
+            int index = next++;
+            parents[index] = depth == 0 ? NO_PARENT : path[depth - 1];
+            metrics[index] = (byte) node.getMetric().ordinal();
+            names[index] = ids.computeIfAbsent(node.getName(), name -> {
+                internedNames.add(name);
+                return internedNames.size() - 1;
+            });
+            for (Value value : node.aggregateValues()) {
+                encode(index, value);
+            }
+
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+            }
+            path[depth++] = index;
+            return true;
+        }
+
+        @Override
+        public void leave(final Node node) {
+            depth--;
+            subtreeEnds[path[depth]] = next;
+        }
+    }
+
+    /**
+     * A read-only view of a single node of a {@link CompactTree}. The view stores only the index of the node, all
+     * properties are read from the columns of the tree. Two views are equal if they refer to the same node of the same
+     * tree.
+     */
+    public final class CompactNode {
+        private final int index;
+
+        private CompactNode(final int index) {
+            this.index = index;
+        }
+
+        /**
+         * Returns the name of this node, see {@link Node#getName()}.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return nameTable[names[index]];
+        }
+
+        /**
+         * Returns the metric of this node, see {@link Node#getMetric()}.
+         *
+         * @return the metric
+         */
+        public Metric getMetric() {
+            return METRICS[metrics[index]];
+        }
+
+        /**
+         * Returns whether this node is the root of the tree.
+         *
+         * @return {@code true} if this node is the root of the tree, {@code false} otherwise
+         */
+        public boolean isRoot() {
+            return parents[index] == NO_PARENT;
+        }
+
+        /**
+         * Returns the parent node.
+         *
+         * @return the parent, if existent
+         * @throws NoSuchElementException
+         *         if no parent exists
+         */
+        public CompactNode getParent() {
+            if (isRoot()) {
+                throw new NoSuchElementException("Parent is not set");
+            }
+            return new CompactNode(parents[index]);
+        }
+
+        /**
+         * Returns whether this node has children or not.
+         *
+         * @return {@code true} if this node has children, {@code false} otherwise
+         */
+        public boolean hasChildren() {
+            return subtreeEnds[index] > index + 1;
+        }
+
+        /**
+         * Returns the children of this node in the same order as the children of the source node. The views are
+         * created on each call, so the returned list can be modified by the caller.
+         *
+         * @return the children of this node
+         */
+        public List<CompactNode> getChildren() {
+            var children = new ArrayList<CompactNode>();
+            for (int child = index + 1; child < subtreeEnds[index]; child = subtreeEnds[child]) {
+                children.add(new CompactNode(child));
+            }
+            return children;
+        }
+
+        /**
+         * Returns the aggregated value for the specified metric, see {@link Node#getValue(Metric)}.
+         *
+         * @param searchMetric
+         *         the metric to get the value for
+         *
+         * @return the value for the specified metric or an empty result if no value has been defined
+         */
+        public Optional<Value> getValue(final Metric searchMetric) {
+            return decode(index, searchMetric);
+        }
+
+        /**
+         * Returns the aggregated values of all metrics, see {@link Node#aggregateValues()}.
+         *
+         * @return aggregation of values below this node
+         */
+        public List<Value> aggregateValues() {
+            var values = new ArrayList<Value>();
+            for (Metric metric : METRICS) {
+                decode(index, metric).ifPresent(values::add);
+            }
+            return values;
+        }
+
+        /**
+         * Computes the delta of all metrics between this node and the specified reference node, see
+         * {@link Node#computeDelta(Node)}.
+         *
+         * @param reference
+         *         the reference node
+         *
+         * @return the delta coverage for each available metric as fraction
+         */
+        public NavigableMap<Metric, Fraction> computeDelta(final CompactNode reference) {
+            NavigableMap<Metric, Fraction> deltaPercentages = new TreeMap<>();
+            for (Metric metric : METRICS) {
+                var value = getValue(metric);
+                var referenceValue = reference.getValue(metric);
+                if (value.isPresent() && referenceValue.isPresent()) {
+                    deltaPercentages.put(metric, value.get().delta(referenceValue.get()));
+                }
+            }
+            return deltaPercentages;
+        }
+
+        /**
+         * Finds the node with the given metric and name in the subtree of this node. The subtree is scanned in
+         * pre-order, so the first matching node of a depth-first search is returned.
+         *
+         * @param searchMetric
+         *         the metric to search for
+         * @param searchName
+         *         the name of the node
+         *
+         * @return the result if found
+         */
+        public Optional<CompactNode> find(final Metric searchMetric, final String searchName) {
+            var nameId = getNameIds().get(searchName);
+            if (nameId != null) {
+                for (int i = index; i < subtreeEnds[index]; i++) {
+                    if (names[i] == nameId && metrics[i] == searchMetric.ordinal()) {
+                        return Optional.of(new CompactNode(i));
+                    }
+                }
+            }
+            return Optional.empty();
+        }
+
+        /**
+         * Returns all nodes of the subtree of this node with the specified metric in post-order, i.e., a node is
+         * appended after the nodes of its children. This is the same order as {@link Node#getAll(Metric)} uses. The
+         * nodes are stored in pre-order, so a matching node is held back on a stack until its subtree has been
+         * scanned.
+         *
+         * @param searchMetric
+         *         the metric to look for
+         *
+         * @return all nodes for the given metric
+         */
+        public List<CompactNode> getAll(final Metric searchMetric) {
+            var nodes = new ArrayList<CompactNode>();
+            var pending = new int[8];
+            int pendingSize = 0;
+            for (int i = index; i < subtreeEnds[index]; i++) {
+                while (pendingSize > 0 && subtreeEnds[pending[pendingSize - 1]] <= i) {
+                    nodes.add(new CompactNode(pending[--pendingSize]));
+                }
+                if (metrics[i] == searchMetric.ordinal()) {
+                    if (pendingSize == pending.length) {
+                        pending = Arrays.copyOf(pending, pendingSize * 2);
+                    }
+                    pending[pendingSize++] = i;
+                }
+            }
+            while (pendingSize > 0) {
+                nodes.add(new CompactNode(pending[--pendingSize]));
+            }
+            return nodes;
+        }
+
+        private CompactTree getTree() {
+            return CompactTree.this;
+        }
+
+        @Override
+        @SuppressWarnings({"ReferenceEquality", "PMD.CompareObjectsWithEquals"})
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CompactNode that = (CompactNode) o;
+            return index == that.index && getTree() == that.getTree();
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(getTree()) + index;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%s] %s", getMetric(), getName());
+        }
+    }
+}
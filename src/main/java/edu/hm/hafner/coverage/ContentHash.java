@@ -0,0 +1,146 @@
+package edu.hm.hafner.coverage;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.commons.lang3.math.Fraction;
+
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+/**
+ * Computes a 64-bit hash of a sequence of values. Each added value is mixed into the hash using the finalizer of
+ * SplitMix64, so every bit of the hash depends on every bit of all values and on the order of the values. In contrast
+ * to the sum of products that {@link java.util.Objects#hash(Object...)} computes, swapped or compensating values
+ * (e.g., a covered and a missed counter of 3/5 and 5/3) result in different hashes. The probability that two different
+ * sequences have the same hash is about 2<sup>-64</sup>, so the hash can be used to detect unchanged subtrees of
+ * coverage trees, see {@link Node#getContentHash()}.
+ *
+ * @author Ullrich Hafner
+ */
+final class ContentHash {
+    private static final long SEED = 0x6A09_E667_F3BC_C908L;
+    private static final long GOLDEN_GAMMA = 0x9E37_79B9_7F4A_7C15L;
+    private static final long FNV_OFFSET = 0xCBF2_9CE4_8422_2325L;
+    private static final long FNV_PRIME = 0x0000_0100_0000_01B3L;
+
+    private long hash = SEED;
+
+    /**
+     * Adds the specified value to this hash.
+     *
+     * @param value
+     *         the value to add
+     *
+     * @return this
+     */
+    @CanIgnoreReturnValue
+    ContentHash add(final long value) {
+        hash = mix(hash * GOLDEN_GAMMA + value);
+        return this;
+    }
+
+    /**
+     * Adds the specified value to this hash.
+     *
+     * @param value
+     *         the value to add
+     *
+     * @return this
+     */
+    @CanIgnoreReturnValue
+    ContentHash add(final boolean value) {
+        return add(value ? 1 : 0);
+    }
+
+    /**
+     * Adds the specified string to this hash. All characters of the string are hashed with 64-bit FNV-1a, so the
+     * hash does not depend on the 32-bit {@link String#hashCode()}.
+     *
+     * @param value
+     *         the value to add, might be {@code null}
+     *
+     * @return this
+     */
+    @CanIgnoreReturnValue
+    ContentHash add(@CheckForNull final String value) {
+        if (value == null) {
+            return add(-1);
+        }
+        long fnv = FNV_OFFSET;
+        for (int i = 0; i < value.length(); i++) {
+            fnv = (fnv ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return add(value.length()).add(fnv);
+    }
+
+    /**
+     * Adds the specified object to this hash. Numbers, strings, enums, fractions, {@link Value values}, and line
+     * counters are mixed in with all of their state, collections and maps with their size and all of their elements.
+     * Of all other objects only the 32-bit hash code is added.
+     *
+     * @param value
+     *         the value to add, might be {@code null}
+     *
+     * @return this
+     */
+    @CanIgnoreReturnValue
+    @SuppressWarnings("PMD.CognitiveComplexity")
+    ContentHash add(@CheckForNull final Object value) {
+        if (value == null) {
+            return add(-1);
+        }
+        if (value instanceof String) {
+            return add((String) value);
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            return add(((Number) value).longValue());
+        }
+        if (value instanceof Enum) {
+            return add(((Enum<?>) value).ordinal());
+        }
+        if (value instanceof Fraction) {
+            return add(((Fraction) value).getNumerator()).add(((Fraction) value).getDenominator());
+        }
+        if (value instanceof Value) {
+            ((Value) value).addContentTo(this);
+            return this;
+        }
+        if (value instanceof CountersPerLine) {
+            ((CountersPerLine) value).addContentTo(this);
+            return this;
+        }
+        if (value instanceof Collection) {
+            add(((Collection<?>) value).size());
+            for (Object element : (Collection<?>) value) {
+                add(element);
+            }
+            return this;
+        }
+        if (value instanceof Map) {
+            add(((Map<?, ?>) value).size());
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                add(entry.getKey()).add(entry.getValue());
+            }
+            return this;
+        }
+        return add(value.hashCode());
+    }
+
+    /**
+     * Returns the hash of all values that have been added so far.
+     *
+     * @return the hash
+     */
+    long get() {
+        return hash;
+    }
+
+    private static long mix(final long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58_476D_1CE4_E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D0_49BB_1331_11EBL;
+        return z ^ (z >>> 31);
+    }
+}
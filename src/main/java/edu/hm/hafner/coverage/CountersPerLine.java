@@ -0,0 +1,771 @@
+package edu.hm.hafner.coverage;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import edu.hm.hafner.coverage.OffHeapLineCounterStorage.ReadGuard;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+/**
+ * Stores the number of covered and missed items for each line of a file. The counters are stored in three parallel
+ * primitive arrays that are sorted by the line number. Looking up a line is done using a binary search, iterating
+ * over the lines in ascending order does not need to box any values. Since parsers typically report the lines in
+ * ascending order, adding a line usually appends the counters at the end of the arrays. Copies share the arrays
+ * until one of the instances is modified (copy-on-write).
+ * <p>
+ * The counters of a frozen tree can be moved to a direct {@link ByteBuffer} that is managed by an
+ * {@link OffHeapLineCounterStorage}, see {@link #moveTo(ByteBuffer, ReadGuard)}. Then the three arrays are stored one
+ * after another in the buffer and the counters cannot be modified anymore. Every read of the buffer holds the
+ * {@link ReadGuard} of the storage, so the memory of the buffer is not freed while a thread still reads it. Methods
+ * that visit several lines hold the guard once for all lines, so the per-position accessors are private.
+ * </p>
+ *
+ * @author Ullrich Hafner
+ */
+final class CountersPerLine implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int INITIAL_CAPACITY = 16;
+    /** Replaces the arrays of counters that have been moved to a buffer. */
+    private static final int[] MOVED = new int[0];
+
+    private transient int[] lines;
+    private transient int[] covered;
+    private transient int[] missed;
+    private transient int size;
+    /** Determines whether the arrays are shared with a copy and need to be copied before they are modified. */
+    private transient boolean shared;
+    /** The buffer that stores the counters outside the heap, or {@code null} if the arrays are used. */
+    @CheckForNull
+    private transient ByteBuffer buffer;
+    /** The guard that needs to be held while the buffer is read, or {@code null} if the arrays are used. */
+    @CheckForNull
+    private transient ReadGuard guard;
+
+    /**
+     * Creates a new empty instance.
+     */
+    CountersPerLine() {
+        this(INITIAL_CAPACITY);
+    }
+
+    private CountersPerLine(final int capacity) {
+        lines = new int[capacity];
+        covered = new int[capacity];
+        missed = new int[capacity];
+    }
+
+    private CountersPerLine(final CountersPerLine source) {
+        lines = source.lines;
+        covered = source.covered;
+        missed = source.missed;
+        size = source.size;
+        shared = true;
+    }
+
+    /**
+     * Merges the counters of several reports for the same file. The sorted counters are merged in a single pass using
+     * a k-way merge: a heap of the sources is ordered by the next line of each source. Lines that are part of a single
+     * source only are copied. Lines that are part of several sources need to have the same number of items: if a line
+     * has several items (i.e., branches) then the counters with the highest number of covered items are used since the
+     * exact branch coverage cannot be computed. Otherwise, the line is covered if it has been covered in any source.
+     *
+     * @param sources
+     *         the counters to merge
+     * @param fileName
+     *         the name of the file, used in error messages
+     *
+     * @return the merged counters
+     * @throws IllegalArgumentException
+     *         if the number of items of a line is different in the sources
+     */
+    static CountersPerLine merge(final List<CountersPerLine> sources, final String fileName) {
+        var merged = new CountersPerLine(sources.stream().mapToInt(CountersPerLine::size).max().orElse(0));
+        var heap = new MergeHeap(sources.stream() // the heap reads the sources by position without a guard
+                .map(source -> source.isOffHeap() ? source.copyOfImmutable() : source)
+                .collect(Collectors.toList()));
+        while (!heap.isEmpty()) {
+            var source = heap.peek();
+            int line = source.getLineAt(heap.peekPosition());
+            int coveredItems = source.getCoveredAt(heap.peekPosition());
+            int missedItems = source.getMissedAt(heap.peekPosition());
+            int total = coveredItems + missedItems;
+            heap.advance();
+
+            while (!heap.isEmpty() && heap.peek().getLineAt(heap.peekPosition()) == line) {
+                int otherCovered = heap.peek().getCoveredAt(heap.peekPosition());
+                int otherMissed = heap.peek().getMissedAt(heap.peekPosition());
+                heap.advance();
+
+                if (otherCovered + otherMissed != total) {
+                    throw new IllegalArgumentException(String.format(
+                            "Cannot merge coverage information for line %d in %s", line, fileName));
+                }
+                if (total > 1) {
+                    coveredItems = Math.max(coveredItems, otherCovered);
+                    missedItems = total - coveredItems;
+                }
+                else {
+                    coveredItems = Math.max(coveredItems, otherCovered);
+                    missedItems = Math.min(missedItems, otherMissed);
+                }
+            }
+            merged.put(line, coveredItems, missedItems);
+        }
+        return merged;
+    }
+
+    /**
+     * Returns a copy of these counters. The copy shares the arrays with this instance, the arrays are copied as soon as
+     * the copy or this instance is modified.
+     *
+     * @return the copy
+     */
+    CountersPerLine copy() {
+        if (buffer == null) {
+            shared = true;
+        }
+        return copyOfImmutable();
+    }
+
+    /**
+     * Returns a copy of these counters without marking this instance as shared. This instance must not be modified
+     * anymore (e.g., since it is part of a frozen tree), so several threads can copy it concurrently.
+     *
+     * @return the copy
+     */
+    CountersPerLine copyOfImmutable() {
+        if (buffer != null) { // a copy of a frozen tree is mutable, so the counters are copied to the heap
+            var copy = new CountersPerLine(Math.max(size, INITIAL_CAPACITY));
+            copy.putAll(this);
+            return copy;
+        }
+        return new CountersPerLine(this);
+    }
+
+    /**
+     * Returns the number of bytes that are required to store these counters in a buffer.
+     *
+     * @return the number of bytes
+     */
+    int getSizeInBytes() {
+        return 3 * Integer.BYTES * size;
+    }
+
+    /**
+     * Moves these counters to the specified buffer. The buffer must have a capacity of {@link #getSizeInBytes()}.
+     * Afterward, the counters are read from the buffer and cannot be modified anymore.
+     *
+     * @param target
+     *         the buffer to store the counters in
+     * @param readGuard
+     *         the guard that needs to be held while the buffer is read
+     */
+    void moveTo(final ByteBuffer target, final ReadGuard readGuard) {
+        var values = target.order(ByteOrder.nativeOrder()).asIntBuffer();
+        values.put(lines, 0, size);
+        values.put(covered, 0, size);
+        values.put(missed, 0, size);
+
+        buffer = target;
+        guard = readGuard;
+        lines = MOVED;
+        covered = MOVED;
+        missed = MOVED;
+        shared = false;
+    }
+
+    /**
+     * Acquires the guard of the buffer so that the memory of the buffer is not freed until {@link #unpin(boolean)}
+     * is called.
+     *
+     * @return {@code true} if the guard has been acquired, {@code false} if the counters are stored on the heap
+     * @throws IllegalStateException
+     *         if the memory of the buffer has been released
+     */
+    private boolean pin() {
+        var readGuard = guard;
+        if (readGuard == null) {
+            return false;
+        }
+        if (!readGuard.enter()) {
+            throw new IllegalStateException("The line counters have been released");
+        }
+        return true;
+    }
+
+    private void unpin(final boolean pinned) {
+        if (pinned) {
+            Objects.requireNonNull(guard).exit();
+        }
+    }
+
+    /**
+     * Returns whether these counters are stored outside the heap.
+     *
+     * @return {@code true} if the counters are stored in a direct buffer, {@code false} otherwise
+     */
+    boolean isOffHeap() {
+        return buffer != null;
+    }
+
+    /**
+     * Appends all counters of the specified instance. Existing counters for the same lines are replaced.
+     *
+     * @param other
+     *         the counters to add
+     */
+    void putAll(final CountersPerLine other) {
+        other.forEach(this::put);
+    }
+
+    /**
+     * Sets the counters for the specified line. Existing counters for the same line are replaced.
+     *
+     * @param line
+     *         the line number
+     * @param coveredItems
+     *         the number of covered items
+     * @param missedItems
+     *         the number of missed items
+     */
+    void put(final int line, final int coveredItems, final int missedItems) {
+        ensureExclusiveArrays();
+
+        int position;
+        if (size == 0 || lines[size - 1] < line) {
+            position = size;
+        }
+        else {
+            position = indexOf(line);
+            if (position >= 0) {
+                covered[position] = coveredItems;
+                missed[position] = missedItems;
+                return;
+            }
+            position = -(position + 1);
+        }
+        ensureCapacity(size + 1);
+        if (position < size) {
+            System.arraycopy(lines, position, lines, position + 1, size - position);
+            System.arraycopy(covered, position, covered, position + 1, size - position);
+            System.arraycopy(missed, position, missed, position + 1, size - position);
+        }
+        lines[position] = line;
+        covered[position] = coveredItems;
+        missed[position] = missedItems;
+        size++;
+    }
+
+    private void ensureExclusiveArrays() {
+        if (buffer != null) {
+            throw new UnsupportedOperationException("Counters that are stored outside the heap cannot be modified");
+        }
+        if (shared) {
+            int length = Math.max(size + 1, INITIAL_CAPACITY);
+            lines = Arrays.copyOf(lines, length);
+            covered = Arrays.copyOf(covered, length);
+            missed = Arrays.copyOf(missed, length);
+            shared = false;
+        }
+    }
+
+    /**
+     * Returns whether the arrays of this instance are shared with a copy.
+     *
+     * @return {@code true} if the arrays are shared, {@code false} otherwise
+     */
+    boolean isShared() {
+        return shared;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > lines.length) {
+            int length = Math.max(capacity, lines.length + (lines.length >> 1));
+            lines = Arrays.copyOf(lines, length);
+            covered = Arrays.copyOf(covered, length);
+            missed = Arrays.copyOf(missed, length);
+        }
+    }
+
+    /**
+     * Returns the position of the specified line in the arrays.
+     *
+     * @param line
+     *         the line number
+     *
+     * @return the position of the line, if it is contained; otherwise, {@code (-(insertion point) - 1)}
+     * @see Arrays#binarySearch(int[], int, int, int)
+     */
+    private int indexOf(final int line) {
+        if (buffer == null) {
+            return Arrays.binarySearch(lines, 0, size, line);
+        }
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleLine = getLineAt(middle);
+            if (middleLine < line) {
+                low = middle + 1;
+            }
+            else if (middleLine > line) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Returns whether counters are available for the specified line.
+     *
+     * @param line
+     *         the line number
+     *
+     * @return {@code true} if counters are available for the line, {@code false} otherwise
+     */
+    boolean contains(final int line) {
+        boolean pinned = pin();
+        try {
+            return indexOf(line) >= 0;
+        }
+        finally {
+            unpin(pinned);
+        }
+    }
+
+    /**
+     * Returns the number of covered items for the specified line.
+     *
+     * @param line
+     *         the line number
+     *
+     * @return the number of covered items, or 0 if no counters are available for the line
+     */
+    int getCovered(final int line) {
+        boolean pinned = pin();
+        try {
+            int position = indexOf(line);
+            return position >= 0 ? getCoveredAt(position) : 0;
+        }
+        finally {
+            unpin(pinned);
+        }
+    }
+
+    /**
+     * Returns the number of missed items for the specified line.
+     *
+     * @param line
+     *         the line number
+     *
+     * @return the number of missed items, or 0 if no counters are available for the line
+     */
+    int getMissed(final int line) {
+        boolean pinned = pin();
+        try {
+            int position = indexOf(line);
+            return position >= 0 ? getMissedAt(position) : 0;
+        }
+        finally {
+            unpin(pinned);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the line number at the specified position.
+     *
+     * @param position
+     *         the position in the sorted sequence of lines
+     *
+     * @return the line number
+     */
+    private int getLineAt(final int position) {
+        var offHeap = buffer;
+        return offHeap == null ? lines[position] : offHeap.getInt(Integer.BYTES * position);
+    }
+
+    /**
+     * Returns the number of covered items at the specified position.
+     *
+     * @param position
+     *         the position in the sorted sequence of lines
+     *
+     * @return the number of covered items
+     */
+    private int getCoveredAt(final int position) {
+        var offHeap = buffer;
+        return offHeap == null ? covered[position] : offHeap.getInt(Integer.BYTES * (size + position));
+    }
+
+    /**
+     * Returns the number of missed items at the specified position.
+     *
+     * @param position
+     *         the position in the sorted sequence of lines
+     *
+     * @return the number of missed items
+     */
+    private int getMissedAt(final int position) {
+        var offHeap = buffer;
+        return offHeap == null ? missed[position] : offHeap.getInt(Integer.BYTES * (2 * size + position));
+    }
+
+    int[] getCoveredCounters() {
+        var result = new int[size];
+        boolean pinned = pin();
+        try {
+            for (int i = 0; i < size; i++) {
+                result[i] = getCoveredAt(i);
+            }
+        }
+        finally {
+            unpin(pinned);
+        }
+        return result;
+    }
+
+    int[] getMissedCounters() {
+        var result = new int[size];
+        boolean pinned = pin();
+        try {
+            for (int i = 0; i < size; i++) {
+                result[i] = getMissedAt(i);
+            }
+        }
+        finally {
+            unpin(pinned);
+        }
+        return result;
+    }
+
+    /**
+     * Performs the specified action for the counters of each line in ascending order of the lines.
+     *
+     * @param action
+     *         the action to perform
+     */
+    void forEach(final CountersConsumer action) {
+        boolean pinned = pin();
+        try {
+            for (int i = 0; i < size; i++) {
+                action.accept(getLineAt(i), getCoveredAt(i), getMissedAt(i));
+            }
+        }
+        finally {
+            unpin(pinned);
+        }
+    }
+
+    /**
+     * Returns all lines with counters.
+     *
+     * @return the lines in ascending order
+     */
+    NavigableSet<Integer> getLines() {
+        return getLines((covered, missed) -> true);
+    }
+
+    /**
+     * Returns all lines whose counters match the specified predicate.
+     *
+     * @param predicate
+     *         the predicate that is evaluated with the counters of each line
+     *
+     * @return the matching lines in ascending order
+     */
+    NavigableSet<Integer> getLines(final CountersPredicate predicate) {
+        var result = new TreeSet<Integer>();
+        forEach((line, coveredItems, missedItems) -> {
+            if (predicate.test(coveredItems, missedItems)) {
+                result.add(line);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns all lines whose counters match the specified predicate. A {@link BitSet} cannot store negative
+     * indexes, so negative line numbers are skipped.
+     *
+     * @param predicate
+     *         the predicate that is evaluated with the counters of each line
+     *
+     * @return the matching lines
+     */
+    BitSet filterLines(final CountersPredicate predicate) {
+        boolean pinned = pin();
+        try {
+            var result = new BitSet(size == 0 ? 0 : Math.max(0, getLineAt(size - 1) + 1));
+            for (int i = 0; i < size; i++) {
+                int line = getLineAt(i);
+                if (line >= 0 && predicate.test(getCoveredAt(i), getMissedAt(i))) {
+                    result.set(line);
+                }
+            }
+            return result;
+        }
+        finally {
+            unpin(pinned);
+        }
+    }
+
+    /**
+     * Returns a mapping of all lines with counters to the number of covered items.
+     *
+     * @return the number of covered items per line
+     */
+    NavigableMap<Integer, Integer> getCoveredPerLine() {
+        var result = new TreeMap<Integer, Integer>();
+        forEach((line, coveredItems, missedItems) -> result.put(line, coveredItems));
+        return result;
+    }
+
+    /**
+     * An action for the counters of a single line.
+     */
+    @FunctionalInterface
+    interface CountersConsumer {
+        /**
+         * Performs this action on the counters of a line.
+         *
+         * @param line
+         *         the line number
+         * @param coveredItems
+         *         the number of covered items
+         * @param missedItems
+         *         the number of missed items
+         */
+        void accept(int line, int coveredItems, int missedItems);
+    }
+
+    /**
+     * A predicate for the counters of a single line.
+     */
+    @FunctionalInterface
+    interface CountersPredicate {
+        /**
+         * Evaluates this predicate on the counters of a line.
+         *
+         * @param coveredItems
+         *         the number of covered items
+         * @param missedItems
+         *         the number of missed items
+         *
+         * @return {@code true} if the counters match the predicate, {@code false} otherwise
+         */
+        boolean test(int coveredItems, int missedItems);
+    }
+
+    /**
+     * A binary min-heap of the sources of a k-way merge, ordered by the line at the current position of each source.
+     */
+    private static final class MergeHeap {
+        private final CountersPerLine[] sources;
+        private final int[] positions;
+        private final int[] heap;
+        private int heapSize;
+
+        MergeHeap(final List<CountersPerLine> sources) {
+            this.sources = sources.toArray(new CountersPerLine[0]);
+            positions = new int[this.sources.length];
+            heap = new int[this.sources.length];
+            for (int i = 0; i < this.sources.length; i++) {
+                if (!this.sources[i].isEmpty()) {
+                    heap[heapSize] = i;
+                    heapSize++;
+                }
+            }
+            for (int i = heapSize / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        boolean isEmpty() {
+            return heapSize == 0;
+        }
+
+        CountersPerLine peek() {
+            return sources[heap[0]];
+        }
+
+        int peekPosition() {
+            return positions[heap[0]];
+        }
+
+        /**
+         * Moves the source at the top of the heap to its next line and removes it if all lines have been visited.
+         */
+        void advance() {
+            int source = heap[0];
+            positions[source]++;
+            if (positions[source] == sources[source].size) {
+                heapSize--;
+                heap[0] = heap[heapSize];
+            }
+            siftDown(0);
+        }
+
+        private void siftDown(final int start) {
+            int index = start;
+            while (true) {
+                int smallest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < heapSize && lineOf(left) < lineOf(smallest)) {
+                    smallest = left;
+                }
+                if (right < heapSize && lineOf(right) < lineOf(smallest)) {
+                    smallest = right;
+                }
+                if (smallest == index) {
+                    return;
+                }
+                int swap = heap[index];
+                heap[index] = heap[smallest];
+                heap[smallest] = swap;
+                index = smallest;
+            }
+        }
+
+        private int lineOf(final int heapIndex) {
+            int source = heap[heapIndex];
+            return sources[source].getLineAt(positions[source]);
+        }
+    }
+
+    private void writeObject(final ObjectOutputStream output) throws IOException {
+        output.defaultWriteObject();
+        output.writeInt(size);
+        boolean pinned = pin();
+        try {
+            for (int i = 0; i < size; i++) {
+                output.writeInt(getLineAt(i));
+                output.writeInt(getCoveredAt(i));
+                output.writeInt(getMissedAt(i));
+            }
+        }
+        finally {
+            unpin(pinned);
+        }
+    }
+
+    private void readObject(final ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        int length = input.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid number of lines: " + length);
+        }
+        lines = new int[length];
+        covered = new int[length];
+        missed = new int[length];
+        for (int i = 0; i < length; i++) {
+            lines[i] = input.readInt();
+            covered[i] = input.readInt();
+            missed[i] = input.readInt();
+        }
+        size = length;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CountersPerLine that = (CountersPerLine) o;
+        if (size != that.size) {
+            return false;
+        }
+        if (buffer == null && that.buffer == null) {
+            return Arrays.equals(lines, 0, size, that.lines, 0, size)
+                    && Arrays.equals(covered, 0, size, that.covered, 0, size)
+                    && Arrays.equals(missed, 0, size, that.missed, 0, size);
+        }
+        boolean pinned = pin();
+        try {
+            boolean otherPinned = that.pin();
+            try {
+                for (int i = 0; i < size; i++) {
+                    if (getLineAt(i) != that.getLineAt(i) || getCoveredAt(i) != that.getCoveredAt(i)
+                            || getMissedAt(i) != that.getMissedAt(i)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            finally {
+                that.unpin(otherPinned);
+            }
+        }
+        finally {
+            unpin(pinned);
+        }
+    }
+
+    /**
+     * Mixes all counters into the specified 64-bit hash, see {@link Node#getContentHash()}.
+     *
+     * @param hash
+     *         the hash to add the counters to
+     */
+    void addContentTo(final ContentHash hash) {
+        hash.add(size);
+        forEach((line, coveredItems, missedItems) -> hash.add(line).add(coveredItems).add(missedItems));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = size;
+        boolean pinned = pin();
+        try {
+            for (int i = 0; i < size; i++) {
+                result = 31 * result + getLineAt(i);
+                result = 31 * result + getCoveredAt(i);
+                result = 31 * result + getMissedAt(i);
+            }
+        }
+        finally {
+            unpin(pinned);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder("[");
+        forEach((line, coveredItems, missedItems) -> {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(line).append(": ").append(coveredItems).append('/').append(missedItems);
+        });
+        return builder.append(']').toString();
+    }
+}
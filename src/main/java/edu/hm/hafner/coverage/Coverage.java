@@ -131,14 +131,37 @@ public final class Coverage extends Value {
         return castAndMap(other, o -> new Coverage(getMetric(), covered + o.getCovered(), missed + o.getMissed()));
     }
 
+    @Override
+    public CoverageAccumulator accumulator() {
+        return new CoverageAccumulator(this);
+    }
+
     @Override
     public Fraction delta(final Value other) {
+        return exactDelta(other).toFraction();
+    }
+
+    @Override
+    public Delta exactDelta(final Value other) {
         if (hasSameMetric(other) && other instanceof Coverage) {
-            return getCoveredPercentage().subtract(((Coverage) other).getCoveredPercentage());
+            var otherCoverage = (Coverage) other;
+            return Delta.of(getCovered(), getTotalOfPercentage(),
+                    otherCoverage.getCovered(), otherCoverage.getTotalOfPercentage());
         }
         throw new IllegalArgumentException(String.format("Cannot cast incompatible types: %s and %s", this, other));
     }
 
+    /**
+     * Returns the denominator of the covered percentage, see {@link #getCoveredPercentage()}. Note that
+     * {@link Percentage#ZERO} is represented by 0/1.
+     *
+     * @return the denominator of the covered percentage
+     */
+    private int getTotalOfPercentage() {
+        int total = getTotal();
+        return total == 0 ? 1 : total;
+    }
+
     @Override
     public Coverage max(final Value other) {
         return castAndMap(other, this::computeMax);
@@ -203,6 +226,11 @@ public final class Coverage extends Value {
         return Objects.hash(super.hashCode(), covered, missed);
     }
 
+    @Override
+    void addContentTo(final ContentHash hash) {
+        hash.add(getMetric().ordinal()).add(covered).add(missed);
+    }
+
     @Override
     public String toString() {
         int total = getTotal();
@@ -481,4 +509,56 @@ public final class Coverage extends Value {
             withMissed(missed + amount);
         }
     }
+
+    /**
+     * Mutable accumulator that sums up the covered and missed items of several {@link Coverage} instances of the same
+     * metric. The items are summed up in primitive fields, the resulting {@link Coverage} instance is created (or
+     * obtained from the cache of the {@link CoverageBuilder}) only once in {@link #build()}.
+     */
+    public static final class CoverageAccumulator implements Accumulator {
+        private final Coverage initial;
+        private int covered;
+        private int missed;
+
+        private CoverageAccumulator(final Coverage initial) {
+            this.initial = initial;
+            covered = initial.getCovered();
+            missed = initial.getMissed();
+        }
+
+        @Override
+        @CanIgnoreReturnValue
+        public CoverageAccumulator add(final Value other) {
+            if (initial.hasSameMetric(other) && other instanceof Coverage) {
+                return add(((Coverage) other).getCovered(), ((Coverage) other).getMissed());
+            }
+            throw new IllegalArgumentException(
+                    String.format("Cannot cast incompatible types: %s and %s", initial, other));
+        }
+
+        /**
+         * Adds the specified number of covered and missed items to the sum of this accumulator.
+         *
+         * @param coveredItems
+         *         the number of covered items to add
+         * @param missedItems
+         *         the number of missed items to add
+         *
+         * @return this
+         */
+        @CanIgnoreReturnValue
+        public CoverageAccumulator add(final int coveredItems, final int missedItems) {
+            covered += coveredItems;
+            missed += missedItems;
+            return this;
+        }
+
+        @Override
+        public Coverage build() {
+            if (covered == initial.getCovered() && missed == initial.getMissed()) {
+                return initial;
+            }
+            return new CoverageBuilder(initial.getMetric()).withCovered(covered).withMissed(missed).build();
+        }
+    }
 }
@@ -0,0 +1,205 @@
+package edu.hm.hafner.coverage;
+
+import org.apache.commons.lang3.math.Fraction;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+import static edu.hm.hafner.coverage.Percentage.*;
+
+/**
+ * The exact difference of two rational numbers, e.g., the delta of two coverage percentages. The difference
+ * {@code a/b - c/d} is computed using long based arithmetic as {@code (a*d - c*b) / (b*d)}: since all operands are
+ * int values, neither the numerator nor the denominator can overflow, and no greatest common divisor needs to be
+ * computed. So comparing, checking the sign, or converting a delta to a double value does not create any objects.
+ * <p>
+ * The delta is converted to a {@link Fraction} only on demand, see {@link #toFraction()}. The fraction is computed in
+ * the same way as {@link SafeFraction#subtract(int, int)} computes it, so it is equal to the fraction that the
+ * corresponding {@code delta} or {@code subtract} methods of {@link Value} and {@link Percentage} return.
+ * </p>
+ *
+ * @author Ullrich Hafner
+ */
+public final class Delta implements Comparable<Delta> {
+    /** A delta of zero. */
+    public static final Delta ZERO = of(Fraction.ZERO);
+
+    /**
+     * Creates the delta {@code minuendNumerator/minuendDenominator - subtrahendNumerator/subtrahendDenominator}.
+     *
+     * @param minuendNumerator
+     *         the numerator of the minuend
+     * @param minuendDenominator
+     *         the denominator of the minuend
+     * @param subtrahendNumerator
+     *         the numerator of the subtrahend
+     * @param subtrahendDenominator
+     *         the denominator of the subtrahend
+     *
+     * @return the delta
+     * @throws IllegalArgumentException
+     *         if one of the denominators is zero
+     */
+    public static Delta of(final int minuendNumerator, final int minuendDenominator,
+            final int subtrahendNumerator, final int subtrahendDenominator) {
+        if (minuendDenominator == 0 || subtrahendDenominator == 0) {
+            throw new IllegalArgumentException(TOTALS_ZERO_MESSAGE);
+        }
+        return new Delta(minuendNumerator, minuendDenominator, subtrahendNumerator, subtrahendDenominator, null);
+    }
+
+    /**
+     * Creates a delta with the value of the specified fraction.
+     *
+     * @param fraction
+     *         the value of the delta
+     *
+     * @return the delta
+     */
+    public static Delta of(final Fraction fraction) {
+        return new Delta(fraction.getNumerator(), fraction.getDenominator(), 0, 1, fraction);
+    }
+
+    private final int minuendNumerator;
+    private final int minuendDenominator;
+    private final int subtrahendNumerator;
+    private final int subtrahendDenominator;
+    /** The fraction of this delta, created on demand. Since fractions are immutable, no synchronization is required. */
+    @CheckForNull
+    private Fraction fraction;
+
+    private Delta(final int minuendNumerator, final int minuendDenominator,
+            final int subtrahendNumerator, final int subtrahendDenominator, @CheckForNull final Fraction fraction) {
+        this.minuendNumerator = minuendNumerator;
+        this.minuendDenominator = minuendDenominator;
+        this.subtrahendNumerator = subtrahendNumerator;
+        this.subtrahendDenominator = subtrahendDenominator;
+        this.fraction = fraction;
+    }
+
+    /**
+     * Returns the numerator of this delta. The numerator is not reduced: together with {@link #getDenominator()} it
+     * represents the exact value of this delta.
+     *
+     * @return the numerator
+     */
+    public long getNumerator() {
+        long numerator = (long) minuendNumerator * subtrahendDenominator
+                - (long) subtrahendNumerator * minuendDenominator;
+        return hasNegativeDenominator() ? -numerator : numerator;
+    }
+
+    /**
+     * Returns the denominator of this delta. The denominator is always positive but not reduced: together with
+     * {@link #getNumerator()} it represents the exact value of this delta.
+     *
+     * @return the denominator
+     */
+    public long getDenominator() {
+        return Math.abs((long) minuendDenominator * subtrahendDenominator);
+    }
+
+    private boolean hasNegativeDenominator() {
+        return minuendDenominator < 0 ^ subtrahendDenominator < 0;
+    }
+
+    /**
+     * Returns the sign of this delta.
+     *
+     * @return -1, 0, or 1 if this delta is negative, zero, or positive
+     */
+    public int signum() {
+        return Long.signum(getNumerator());
+    }
+
+    /**
+     * Returns whether this delta is zero.
+     *
+     * @return {@code true} if this delta is zero, {@code false} otherwise
+     */
+    public boolean isZero() {
+        return signum() == 0;
+    }
+
+    /**
+     * Returns the value of this delta as a double.
+     *
+     * @return the value of this delta
+     */
+    public double doubleValue() {
+        return (double) getNumerator() / getDenominator();
+    }
+
+    /**
+     * Returns the value of this delta as a {@link Fraction}. The fraction is created on the first call only.
+     *
+     * @return the fraction
+     */
+    public Fraction toFraction() {
+        var result = fraction;
+        if (result == null) {
+            result = new SafeFraction(minuendNumerator, minuendDenominator)
+                    .subtract(subtrahendNumerator, subtrahendDenominator);
+            fraction = result;
+        }
+        return result;
+    }
+
+    /**
+     * Compares the exact values of this delta and the specified delta. The products of the cross multiplication need
+     * up to 126 bits, so they are compared using their high and low 64 bits.
+     *
+     * @param other
+     *         the delta to compare with
+     *
+     * @return a negative value, zero, or a positive value if this delta is less than, equal to, or greater than the
+     *         specified delta
+     */
+    @Override
+    public int compareTo(final Delta other) {
+        long left = getNumerator();
+        long leftFactor = other.getDenominator();
+        long right = other.getNumerator();
+        long rightFactor = getDenominator();
+
+        int high = Long.compare(Math.multiplyHigh(left, leftFactor), Math.multiplyHigh(right, rightFactor));
+        if (high != 0) {
+            return high;
+        }
+        return Long.compareUnsigned(left * leftFactor, right * rightFactor);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return compareTo((Delta) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        long numerator = getNumerator();
+        long denominator = getDenominator();
+        long divisor = greatestCommonDivisor(Math.abs(numerator), denominator);
+        return Long.hashCode(numerator / divisor) * 31 + Long.hashCode(denominator / divisor);
+    }
+
+    static long greatestCommonDivisor(final long first, final long second) {
+        long a = first;
+        long b = second;
+        while (b != 0) {
+            long remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
+
+    @Override
+    public String toString() {
+        return toFraction().toString();
+    }
+}
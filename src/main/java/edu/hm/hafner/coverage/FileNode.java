@@ -1,6 +1,7 @@
 package edu.hm.hafner.coverage;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -23,11 +24,13 @@ import org.apache.commons.lang3.math.Fraction;
 
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 
+import edu.hm.hafner.coverage.CountersPerLine.CountersConsumer;
 import edu.hm.hafner.coverage.Coverage.CoverageBuilder;
 import edu.hm.hafner.util.Ensure;
 import edu.hm.hafner.util.LineRange;
 import edu.hm.hafner.util.LineRangeList;
 import edu.hm.hafner.util.TreeString;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 
 /**
  * A {@link Node} for a specific file. It stores the actual file name along with the coverage information.
@@ -39,14 +42,25 @@ public final class FileNode extends Node {
     private static final long serialVersionUID = -3795695377267542624L; // Set to 1 when release 1.0.0 is ready
     private static final int UNSET = -1;
 
-    private final NavigableMap<Integer, Integer> coveredPerLine = new TreeMap<>();
-    private final NavigableMap<Integer, Integer> missedPerLine = new TreeMap<>();
+    private CountersPerLine counters = new CountersPerLine();
 
-    private final List<Mutation> mutations = new ArrayList<>();
+    // Replaced by counters: these fields are only set when an old serialization is read, see readResolve
+    @CheckForNull
+    private NavigableMap<Integer, Integer> coveredPerLine;
+    @CheckForNull
+    private NavigableMap<Integer, Integer> missedPerLine;
 
-    private final SortedSet<Integer> modifiedLines = new TreeSet<>();
-    private final NavigableMap<Integer, Integer> indirectCoverageChanges = new TreeMap<>();
-    private final NavigableMap<Metric, Fraction> coverageDelta = new TreeMap<>();
+    private List<Mutation> mutations = new ArrayList<>();
+
+    private SortedSet<Integer> modifiedLines = new TreeSet<>();
+    private NavigableMap<Integer, Integer> indirectCoverageChanges = new TreeMap<>();
+    private NavigableMap<Metric, Fraction> coverageDelta = new TreeMap<>();
+
+    /**
+     * Determines whether the mutations, the modified lines, the indirect coverage changes, and the deltas are shared
+     * with a copy of this node. Shared collections are copied before they are modified (copy-on-write).
+     */
+    private transient boolean sharedLineData;
 
     private TreeString relativePath; // @since 0.22.0
 
@@ -85,24 +99,70 @@ public final class FileNode extends Node {
         if (relativePath == null) {
             relativePath = TreeString.valueOf(StringUtils.EMPTY);
         }
+        if (counters == null) {
+            counters = new CountersPerLine();
+        }
+        if (coveredPerLine != null && missedPerLine != null) {
+            for (Map.Entry<Integer, Integer> entry : coveredPerLine.entrySet()) {
+                int line = entry.getKey();
+                counters.put(line, entry.getValue(), missedPerLine.getOrDefault(line, 0));
+            }
+        }
+        coveredPerLine = null;
+        missedPerLine = null;
+        sharedLineData = true; // the serialization might have restored collections that are shared with other nodes
         return this;
     }
 
+    /**
+     * Creates a copy of this file node. The copy shares the line counters and all other line based data with this node
+     * until the copy or this node is modified, so copying a file does not duplicate its line data.
+     *
+     * @return the copy
+     */
     @Override
     public FileNode copy() {
         var copy = new FileNode(getName(), relativePath);
 
-        copy.coveredPerLine.putAll(coveredPerLine);
-        copy.missedPerLine.putAll(missedPerLine);
+        copy.counters = isFrozen() ? counters.copyOfImmutable() : counters.copy();
 
-        copy.modifiedLines.addAll(modifiedLines);
+        copy.modifiedLines = modifiedLines;
+        copy.mutations = mutations;
+        copy.indirectCoverageChanges = indirectCoverageChanges;
+        copy.coverageDelta = coverageDelta;
+        copy.sharedLineData = true;
+        markLineDataAsShared();
 
-        copy.mutations.addAll(mutations);
+        return copy;
+    }
 
-        copy.indirectCoverageChanges.putAll(indirectCoverageChanges);
-        copy.coverageDelta.putAll(coverageDelta);
+    /**
+     * Marks the line data of this node as shared with a copy. The line data of a frozen node is never modified, so it
+     * is not marked: otherwise, copying a snapshot would write to the snapshot while other threads read it.
+     */
+    private void markLineDataAsShared() {
+        if (!isFrozen()) {
+            sharedLineData = true;
+        }
+    }
 
-        return copy;
+    private void ensureExclusiveLineData() {
+        if (sharedLineData) {
+            modifiedLines = new TreeSet<>(modifiedLines);
+            mutations = new ArrayList<>(mutations);
+            indirectCoverageChanges = new TreeMap<>(indirectCoverageChanges);
+            coverageDelta = new TreeMap<>(coverageDelta);
+            sharedLineData = false;
+        }
+    }
+
+    /**
+     * Returns whether the line data of this node is shared with a copy.
+     *
+     * @return {@code true} if the line data is shared, {@code false} otherwise
+     */
+    boolean isSharingLineData() {
+        return sharedLineData || counters.isShared();
     }
 
     @Override
@@ -133,79 +193,80 @@ public final class FileNode extends Node {
         removeValues();
         removeChildren();
 
-        mergeCounters((FileNode) other);
+        mergeCounters(List.of(this, (FileNode) other));
     }
 
-    private void mergeCounters(final FileNode otherFile) {
-        var lines = new TreeSet<Integer>();
-
-        lines.addAll(coveredPerLine.keySet());
-        lines.addAll(otherFile.coveredPerLine.keySet());
+    @Override
+    protected void mergeNodes(final List<? extends Node> nodes) {
+        nodes.forEach(node -> Ensure.that(node).isInstanceOf(FileNode.class));
 
-        var lineCoverage = new CoverageBuilder().withMetric(Metric.LINE).withCovered(0).withMissed(0);
-        var branchCoverage = new CoverageBuilder().withMetric(Metric.BRANCH).withCovered(0).withMissed(0);
-        for (int line : lines) {
-            int leftCovered = coveredPerLine.get(line);
-            int leftMissed = missedPerLine.get(line);
-            int leftTotal = leftCovered + leftMissed;
-            int rightCovered = otherFile.coveredPerLine.get(line);
-            int rightMissed = otherFile.missedPerLine.get(line);
-            int rightTotal = rightCovered + rightMissed;
-
-            if (leftTotal != rightTotal) {
-                throw new IllegalArgumentException(String.format("Cannot merge coverage information for line %d in %s",
-                        line, this));
-            }
-            if (leftTotal > 1) {
-                if (leftCovered > rightCovered) { // exact branch coverage cannot be computed
-                    coveredPerLine.put(line, leftCovered);
-                    missedPerLine.put(line, leftMissed);
-                }
-                else {
-                    coveredPerLine.put(line, rightCovered);
-                    missedPerLine.put(line, rightMissed);
-                }
-                updateLineCoverage(line, lineCoverage);
-                updateBranchCoverage(line, branchCoverage);
-            }
-            else {
-                coveredPerLine.put(line, Math.max(leftCovered, rightCovered));
-                missedPerLine.put(line, Math.min(leftMissed, rightMissed));
+        removeValues();
+        removeChildren();
 
-                updateLineCoverage(line, lineCoverage);
-            }
-        }
+        mergeCounters(nodes.stream().map(FileNode.class::cast).collect(Collectors.toList()));
+    }
 
-        var lineValue = lineCoverage.build();
-        if (lineValue.isSet()) {
-            addValue(lineValue);
-        }
-        var branchValue = branchCoverage.build();
-        if (branchValue.isSet()) {
-            addValue(branchValue);
-        }
+    private void mergeCounters(final List<FileNode> files) {
+        counters = CountersPerLine.merge(
+                files.stream().map(file -> file.counters).collect(Collectors.toList()), toString());
+        invalidateHashCode();
 
-        otherFile.getValues().stream()
-                .filter(value -> value.getMetric() == Metric.COMPLEXITY)
-                .forEach(this::addValue);
-    }
+        var lineCoverage = new LineAndBranchCounters();
+        counters.forEach((line, covered, missed) -> lineCoverage.add(covered, missed));
+        lineCoverage.addValuesTo(this);
 
-    private void updateBranchCoverage(final int line, final CoverageBuilder branchCoverage) {
-        branchCoverage.incrementCovered(getCoveredOfLine(line));
-        branchCoverage.incrementMissed(getMissedOfLine(line));
+        Value.findValue(Metric.COMPLEXITY, files.get(files.size() - 1).getValuesView()).ifPresent(this::addValue);
     }
 
-    private void updateLineCoverage(final int line, final CoverageBuilder lineCoverage) {
-        if (getCoveredOfLine(line) > 0) {
-            lineCoverage.incrementCovered();
+    /**
+     * Sums up the line and branch coverage of the lines of a file.
+     */
+    private static final class LineAndBranchCounters {
+        private int coveredLines;
+        private int missedLines;
+        private int coveredBranches;
+        private int missedBranches;
+        private boolean hasBranches;
+
+        void add(final int covered, final int missed) {
+            if (covered > 0) {
+                coveredLines++;
+            }
+            else {
+                missedLines++;
+            }
+            if (covered + missed > 1) {
+                coveredBranches += covered;
+                missedBranches += missed;
+                hasBranches = true;
+            }
         }
-        else {
-            lineCoverage.incrementMissed();
+
+        void addValuesTo(final FileNode file) {
+            if (coveredLines + missedLines > 0) {
+                file.addValue(new CoverageBuilder().withMetric(Metric.LINE)
+                        .withCovered(coveredLines)
+                        .withMissed(missedLines)
+                        .build());
+            }
+            if (hasBranches) {
+                file.addValue(new CoverageBuilder().withMetric(Metric.BRANCH)
+                        .withCovered(coveredBranches)
+                        .withMissed(missedBranches)
+                        .build());
+            }
         }
     }
 
+    /**
+     * Returns the modified lines of this file. The returned set is read-only for all nodes (not only for frozen ones),
+     * since the set might be shared with copies of this node and since the cached hash of the tree must not be
+     * bypassed. Use {@link #addModifiedLines(int...)} to add lines.
+     *
+     * @return a read-only view of the modified lines
+     */
     public SortedSet<Integer> getModifiedLines() {
-        return modifiedLines;
+        return Collections.unmodifiableSortedSet(modifiedLines);
     }
 
     /**
@@ -230,6 +291,21 @@ public final class FileNode extends Node {
         return modifiedLines.contains(line);
     }
 
+    /**
+     * Returns the modified lines.
+     *
+     * @return the modified lines
+     */
+    public BitSet getModifiedLinesAsBitSet() {
+        var lines = new BitSet(modifiedLines.isEmpty() ? 0 : Math.max(0, modifiedLines.last() + 1));
+        for (int line : modifiedLines) {
+            if (line >= 0) {
+                lines.set(line);
+            }
+        }
+        return lines;
+    }
+
     /**
      * Marks the specified lines as being modified.
      *
@@ -237,9 +313,13 @@ public final class FileNode extends Node {
      *         the modified code lines
      */
     public void addModifiedLines(final int... lines) {
+        ensureMutable();
+        ensureExclusiveLineData();
+
         for (int line : lines) {
             modifiedLines.add(line);
         }
+        invalidateHashCode();
     }
 
     @Override
@@ -249,7 +329,9 @@ public final class FileNode extends Node {
         }
 
         var copy = new FileNode(getName(), relativePath);
-        copy.modifiedLines.addAll(modifiedLines);
+        copy.modifiedLines = modifiedLines;
+        copy.sharedLineData = true;
+        markLineDataAsShared();
 
         filterLineAndBranchCoverage(copy);
         filterMutations(copy);
@@ -258,29 +340,27 @@ public final class FileNode extends Node {
     }
 
     private void filterLineAndBranchCoverage(final FileNode copy) {
-        var lineCoverage = Coverage.nullObject(Metric.LINE);
-        var lineBuilder = new CoverageBuilder().withMetric(Metric.LINE);
-        var branchCoverage = Coverage.nullObject(Metric.BRANCH);
-        var branchBuilder = new CoverageBuilder().withMetric(Metric.BRANCH);
-        for (int line : getCoveredAndModifiedLines()) {
-            var covered = coveredPerLine.getOrDefault(line, 0);
-            var missed = missedPerLine.getOrDefault(line, 0);
+        var lineCoverage = Coverage.nullObject(Metric.LINE).accumulator();
+        var branchCoverage = Coverage.nullObject(Metric.BRANCH).accumulator();
+        var lines = getCoveredAndModifiedLinesAsBitSet();
+        for (int line = lines.nextSetBit(0); line >= 0; line = lines.nextSetBit(line + 1)) {
+            var covered = getCoveredOfLine(line);
+            var missed = getMissedOfLine(line);
             var total = covered + missed;
             copy.addCounters(line, covered, missed);
             if (total == 0) {
                 throw new IllegalArgumentException("No coverage for line " + line);
             }
             else if (total == 1) {
-                lineCoverage = lineCoverage.add(lineBuilder.withCovered(covered).withMissed(missed).build());
+                lineCoverage.add(covered, missed);
             }
             else {
                 var branchCoveredAsLine = covered > 0 ? 1 : 0;
-                lineCoverage = lineCoverage.add(
-                        lineBuilder.withCovered(branchCoveredAsLine).withMissed(1 - branchCoveredAsLine).build());
-                branchCoverage = branchCoverage.add(branchBuilder.withCovered(covered).withMissed(missed).build());
+                lineCoverage.add(branchCoveredAsLine, 1 - branchCoveredAsLine);
+                branchCoverage.add(covered, missed);
             }
         }
-        addLineAndBranchCoverage(copy, lineCoverage, branchCoverage);
+        addLineAndBranchCoverage(copy, lineCoverage.build(), branchCoverage.build());
     }
 
     private void filterMutations(final FileNode copy) {
@@ -319,41 +399,36 @@ public final class FileNode extends Node {
         }
 
         var copy = new FileNode(getName(), relativePath);
-        Coverage lineCoverage = Coverage.nullObject(Metric.LINE);
-        Coverage branchCoverage = Coverage.nullObject(Metric.BRANCH);
+        var lineCoverage = Coverage.nullObject(Metric.LINE).accumulator();
+        var branchCoverage = Coverage.nullObject(Metric.BRANCH).accumulator();
         for (Map.Entry<Integer, Integer> change : getIndirectCoverageChanges().entrySet()) {
             int delta = change.getValue();
             Coverage currentCoverage = getBranchCoverage(change.getKey());
             if (!currentCoverage.isSet()) {
                 currentCoverage = getLineCoverage(change.getKey());
             }
-            var builder = new CoverageBuilder();
             if (delta > 0) {
                 // the line is fully covered - even in the case of branch coverage
                 if (delta == currentCoverage.getCovered()) {
-                    builder.withMetric(Metric.LINE).withCovered(1).withMissed(0);
-                    lineCoverage = lineCoverage.add(builder.build());
+                    lineCoverage.add(1, 0);
                 }
                 // the branch coverage increased for 'delta' hits
                 if (currentCoverage.getTotal() > 1) {
-                    builder.withMetric(Metric.BRANCH).withCovered(delta).withMissed(0);
-                    branchCoverage = branchCoverage.add(builder.build());
+                    branchCoverage.add(delta, 0);
                 }
             }
             else if (delta < 0) {
                 // the line is not covered anymore
                 if (currentCoverage.getCovered() == 0) {
-                    builder.withMetric(Metric.LINE).withCovered(0).withMissed(1);
-                    lineCoverage = lineCoverage.add(builder.build());
+                    lineCoverage.add(0, 1);
                 }
                 // the branch coverage is decreased by 'delta' hits
                 if (currentCoverage.getTotal() > 1) {
-                    builder.withMetric(Metric.BRANCH).withCovered(0).withMissed(Math.abs(delta));
-                    branchCoverage = branchCoverage.add(builder.build());
+                    branchCoverage.add(0, Math.abs(delta));
                 }
             }
         }
-        addLineAndBranchCoverage(copy, lineCoverage, branchCoverage);
+        addLineAndBranchCoverage(copy, lineCoverage.build(), branchCoverage.build());
 
         return Optional.of(copy);
     }
@@ -367,7 +442,12 @@ public final class FileNode extends Node {
      *         The delta of the coverage hits before and after the code changes
      */
     public void addIndirectCoverageChange(final int line, final int hitsDelta) {
+        ensureMutable();
+        ensureExclusiveLineData();
+
         indirectCoverageChanges.put(line, hitsDelta);
+
+        invalidateHashCode();
     }
 
     public SortedMap<Integer, Integer> getIndirectCoverageChanges() {
@@ -376,7 +456,16 @@ public final class FileNode extends Node {
 
     // TODO: the API does not work yet for mutations
     public NavigableSet<Integer> getLinesWithCoverage() {
-        return new TreeSet<>(coveredPerLine.keySet());
+        return counters.getLines();
+    }
+
+    /**
+     * Returns all lines that have a coverage result.
+     *
+     * @return the lines with coverage
+     */
+    public BitSet getLinesWithCoverageAsBitSet() {
+        return counters.filterLines((covered, missed) -> true);
     }
 
     /**
@@ -388,7 +477,7 @@ public final class FileNode extends Node {
      * @return {@code true} if this file has a coverage result for the specified line, {@code false} otherwise
      */
     public boolean hasCoverageForLine(final int line) {
-        return coveredPerLine.containsKey(line);
+        return counters.contains(line);
     }
 
     private Coverage getLineCoverage(final int line) {
@@ -439,12 +528,11 @@ public final class FileNode extends Node {
      */
     // TODO: wouldn't it make more sense to return an independent object?
     public void computeDelta(final FileNode referenceFile) {
-        NavigableMap<Metric, Value> referenceCoverage = referenceFile.getMetricsDistribution();
-        getMetricsDistribution().forEach((metric, value) -> {
-            if (referenceCoverage.containsKey(metric)) {
-                coverageDelta.put(metric, value.delta(referenceCoverage.get(metric)));
-            }
-        });
+        ensureMutable();
+        ensureExclusiveLineData();
+
+        coverageDelta.putAll(super.computeDelta(referenceFile));
+        invalidateHashCode();
     }
 
     /**
@@ -478,9 +566,24 @@ public final class FileNode extends Node {
      * @return the lines with code coverage that also have been modified
      */
     public SortedSet<Integer> getCoveredAndModifiedLines() {
-        SortedSet<Integer> coveredDelta = getLinesWithCoverage();
-        coveredDelta.retainAll(getModifiedLines());
-        return coveredDelta;
+        var lines = new TreeSet<Integer>();
+        for (int line : modifiedLines) {
+            if (counters.contains(line)) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the lines with code coverage that also have been modified.
+     *
+     * @return the lines with code coverage that also have been modified
+     */
+    public BitSet getCoveredAndModifiedLinesAsBitSet() {
+        var lines = getLinesWithCoverageAsBitSet();
+        lines.and(getModifiedLinesAsBitSet());
+        return lines;
     }
 
     /**
@@ -490,7 +593,12 @@ public final class FileNode extends Node {
      *         otherwise.
      */
     public boolean hasCoveredAndModifiedLines() {
-        return !getCoveredAndModifiedLines().isEmpty();
+        for (int line : modifiedLines) {
+            if (counters.contains(line)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -507,18 +615,24 @@ public final class FileNode extends Node {
      */
     @CanIgnoreReturnValue
     public FileNode addCounters(final int lineNumber, final int covered, final int missed) {
-        coveredPerLine.put(lineNumber, covered);
-        missedPerLine.put(lineNumber, missed);
+        ensureMutable();
+
+        counters.put(lineNumber, covered, missed);
+        invalidateHashCode();
 
         return this;
     }
 
+    CountersPerLine getLineCounters() {
+        return counters;
+    }
+
     public int[] getCoveredCounters() {
-        return entriesToArray(coveredPerLine);
+        return counters.getCoveredCounters();
     }
 
     public int[] getMissedCounters() {
-        return entriesToArray(missedPerLine);
+        return counters.getMissedCounters();
     }
 
     /**
@@ -530,7 +644,7 @@ public final class FileNode extends Node {
      * @return the number of covered items for the specified line
      */
     public int getCoveredOfLine(final int line) {
-        return coveredPerLine.getOrDefault(line, 0);
+        return counters.getCovered(line);
     }
 
     /**
@@ -542,11 +656,16 @@ public final class FileNode extends Node {
      * @return the number of missed items for the specified line
      */
     public int getMissedOfLine(final int line) {
-        return missedPerLine.getOrDefault(line, 0);
+        return counters.getMissed(line);
     }
 
-    private int[] entriesToArray(final NavigableMap<Integer, Integer> map) {
-        return map.values().stream().mapToInt(i -> i).toArray();
+    /**
+     * Returns all instrumented lines that are not executed during the tests.
+     *
+     * @return the missed lines
+     */
+    public NavigableSet<Integer> getMissedLines() {
+        return counters.getLines((covered, missed) -> covered == 0);
     }
 
     /**
@@ -554,8 +673,8 @@ public final class FileNode extends Node {
      *
      * @return the missed lines
      */
-    public NavigableSet<Integer> getMissedLines() {
-        return filterLines(line -> getCoveredOfLine(line) == 0);
+    public BitSet getMissedLinesAsBitSet() {
+        return counters.filterLines((covered, missed) -> covered == 0);
     }
 
     /**
@@ -564,13 +683,16 @@ public final class FileNode extends Node {
      * @return the fully or partially covered lines
      */
     public NavigableSet<Integer> getCoveredLines() {
-        return filterLines(line -> getCoveredOfLine(line) != 0);
+        return counters.getLines((covered, missed) -> covered != 0);
     }
 
-    private NavigableSet<Integer> filterLines(final Predicate<Integer> predicate) {
-        return coveredPerLine.keySet().stream()
-                .filter(predicate)
-                .collect(Collectors.toCollection(TreeSet::new));
+    /**
+     * Returns all lines containing at least one executed instruction.
+     *
+     * @return the fully or partially covered lines
+     */
+    public BitSet getCoveredLinesAsBitSet() {
+        return counters.filterLines((covered, missed) -> covered != 0);
     }
 
     /**
@@ -580,26 +702,22 @@ public final class FileNode extends Node {
      * @return the aggregated LineRanges that have no line coverage
      */
     public LineRangeList getMissedLineRanges() {
-        LineRangeList lineRanges = new LineRangeList();
-
-        var missedLines = getMissedLines();
-        if (missedLines.isEmpty()) {
-            return lineRanges;
-        }
-
-        if (missedLines.size() == 1) {
-            lineRanges.add(new LineRange(missedLines.first()));
-
-            return lineRanges;
-        }
-
-        var lines = List.copyOf(getLinesWithCoverage());
-
-        int start = UNSET;
-        int end = UNSET;
+        var missedLines = new MissedLineRanges();
+        counters.forEach(missedLines);
+        return missedLines.getLineRanges();
+    }
 
-        for (int line : lines) {
-            if (getCoveredOfLine(line) == 0) {
+    /**
+     * Groups consecutive lines without line coverage into {@link LineRange} instances.
+     */
+    private static final class MissedLineRanges implements CountersConsumer {
+        private final LineRangeList lineRanges = new LineRangeList();
+        private int start = UNSET;
+        private int end = UNSET;
+
+        @Override
+        public void accept(final int line, final int coveredItems, final int missedItems) {
+            if (coveredItems == 0) {
                 if (start == UNSET) {
                     start = line;
                 }
@@ -612,11 +730,14 @@ public final class FileNode extends Node {
                 }
             }
         }
-        if (start != UNSET) {
-            lineRanges.add(new LineRange(start, end));
-        }
 
-        return lineRanges;
+        LineRangeList getLineRanges() {
+            if (start != UNSET) {
+                lineRanges.add(new LineRange(start, end));
+                start = UNSET;
+            }
+            return lineRanges;
+        }
     }
 
     /**
@@ -652,14 +773,30 @@ public final class FileNode extends Node {
      * @return the mapping of not fully covered lines to the number of missed branches
      */
     public NavigableMap<Integer, Integer> getPartiallyCoveredLines() {
-        return getLinesWithCoverage().stream()
-                .filter(line -> getCoveredOfLine(line) > 0)
-                .filter(line -> getMissedOfLine(line) > 0)
-                .collect(Collectors.toMap(line -> line, missedPerLine::get, (a, b) -> a, TreeMap::new));
+        var partiallyCoveredLines = new TreeMap<Integer, Integer>();
+        counters.forEach((line, covered, missed) -> {
+            if (isPartiallyCovered(covered, missed)) {
+                partiallyCoveredLines.put(line, missed);
+            }
+        });
+        return partiallyCoveredLines;
+    }
+
+    /**
+     * Returns the lines that have a branch coverage less than 100%.
+     *
+     * @return the lines that are not fully covered
+     */
+    public BitSet getPartiallyCoveredLinesAsBitSet() {
+        return counters.filterLines(FileNode::isPartiallyCovered);
+    }
+
+    private static boolean isPartiallyCovered(final int covered, final int missed) {
+        return covered > 0 && missed > 0;
     }
 
     public NavigableMap<Integer, Integer> getCounters() {
-        return Collections.unmodifiableNavigableMap(coveredPerLine);
+        return Collections.unmodifiableNavigableMap(counters.getCoveredPerLine());
     }
 
     /**
@@ -670,7 +807,12 @@ public final class FileNode extends Node {
      */
     // TODO: not part of API, only for tests?
     public void addMutation(final Mutation mutation) {
+        ensureMutable();
+        ensureExclusiveLineData();
+
         mutations.add(mutation);
+
+        invalidateHashCode();
     }
 
     @Override
@@ -693,17 +835,41 @@ public final class FileNode extends Node {
     }
 
     /**
-     * Searches for the specified class node. If the class node is not found then a new class node will be created and
-     * linked to this file node.
+     * Searches for the specified class node in the whole subtree of this file. If the class node is not found then a
+     * new class node will be created and linked to this file node. The children of this file are looked up first using
+     * an index in constant time, the remaining subtree is searched only if no child matches. This search uses the index
+     * of {@link #find(Metric, String)} that is extended in place when a new node is appended, so it is not recreated
+     * after each created node.
      *
      * @param className
      *         the class name
      *
-     * @return the created and linked class node
+     * @return the existing or created class node
      * @see #createClassNode(String)
+     * @see #findOrCreateChildClassNode(String)
      */
     public ClassNode findOrCreateClassNode(final String className) {
-        return findClass(className).orElseGet(() -> createClassNode(className));
+        return findChild(Metric.CLASS, className)
+                .map(ClassNode.class::cast)
+                .or(() -> findClass(className))
+                .orElseGet(() -> createClassNode(className));
+    }
+
+    /**
+     * Searches for the specified class node in the children of this file. If the class node is not found then a new
+     * class node will be created and linked to this file node. In contrast to {@link #findOrCreateClassNode(String)}
+     * the subtree of the children is not searched, so the lookup takes constant time.
+     *
+     * @param className
+     *         the class name
+     *
+     * @return the existing or created class node
+     * @see #createClassNode(String)
+     */
+    public ClassNode findOrCreateChildClassNode(final String className) {
+        return findChild(Metric.CLASS, className)
+                .map(ClassNode.class::cast)
+                .orElseGet(() -> createClassNode(className));
     }
 
     /**
@@ -726,7 +892,11 @@ public final class FileNode extends Node {
      *         the relative path
      */
     public void setRelativePath(final TreeString relativePath) {
+        ensureMutable();
+
         this.relativePath = relativePath;
+
+        invalidateIndex();
     }
 
     @Override
@@ -735,6 +905,7 @@ public final class FileNode extends Node {
     }
 
     @Override
+    @SuppressWarnings("PMD.OverrideBothEqualsAndHashcode") // the hash code is computed in computeContentHash
     public boolean equals(final Object o) {
         if (this == o) {
             return true;
@@ -746,8 +917,7 @@ public final class FileNode extends Node {
             return false;
         }
         FileNode fileNode = (FileNode) o;
-        return Objects.equals(coveredPerLine, fileNode.coveredPerLine)
-                && Objects.equals(missedPerLine, fileNode.missedPerLine)
+        return Objects.equals(counters, fileNode.counters)
                 && Objects.equals(mutations, fileNode.mutations)
                 && Objects.equals(modifiedLines, fileNode.modifiedLines)
                 && Objects.equals(indirectCoverageChanges, fileNode.indirectCoverageChanges)
@@ -756,8 +926,14 @@ public final class FileNode extends Node {
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(super.hashCode(), coveredPerLine, missedPerLine, mutations, modifiedLines,
-                indirectCoverageChanges, coverageDelta, relativePath);
+    protected long computeContentHash() {
+        return new ContentHash().add(super.computeContentHash())
+                .add(counters)
+                .add(mutations)
+                .add(modifiedLines)
+                .add(indirectCoverageChanges)
+                .add(coverageDelta)
+                .add(relativePath == null ? null : relativePath.toString())
+                .get();
     }
 }
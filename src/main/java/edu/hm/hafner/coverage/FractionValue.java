@@ -57,10 +57,22 @@ public final class FractionValue extends Value {
         throw new IllegalArgumentException(String.format("Cannot cast incompatible types: %s and %s", this, other));
     }
 
+    @Override
+    public Accumulator accumulator() {
+        return new FractionAccumulator(this);
+    }
+
     @Override
     public Fraction delta(final Value other) {
+        return exactDelta(other).toFraction();
+    }
+
+    @Override
+    public Delta exactDelta(final Value other) {
         if (hasSameMetric(other) && other instanceof FractionValue) {
-            return asSafeFraction().subtract(((FractionValue) other).fraction);
+            var otherFraction = ((FractionValue) other).fraction;
+            return Delta.of(fraction.getNumerator(), fraction.getDenominator(),
+                    otherFraction.getNumerator(), otherFraction.getDenominator());
         }
         throw new IllegalArgumentException(String.format("Cannot cast incompatible types: %s and %s", this, other));
     }
@@ -128,4 +140,94 @@ public final class FractionValue extends Value {
     public int hashCode() {
         return Objects.hash(super.hashCode(), fraction);
     }
+
+    @Override
+    void addContentTo(final ContentHash hash) {
+        hash.add(getMetric().ordinal()).add(fraction.getNumerator()).add(fraction.getDenominator());
+    }
+
+    /**
+     * Mutable accumulator that sums up the fractions of several {@link FractionValue} instances of the same metric.
+     * Like {@link Delta}, the sum is stored as a numerator and a denominator of type long. Each value is added using the
+     * same steps and the same overflow checks as {@link Fraction#add(Fraction)}, but the intermediate results are
+     * computed with long arithmetic, so adding a value does not create any objects. If {@link Fraction#add(Fraction)}
+     * would overflow, the addition is delegated to {@link SafeFraction#add(Fraction)}. So the result is always the same
+     * as the result of adding the values one after another with {@link #add(Value)}. The resulting
+     * {@link FractionValue} is created only once in {@link #build()}.
+     */
+    private static final class FractionAccumulator implements Accumulator {
+        private final FractionValue initial;
+        private long numerator;
+        private long denominator;
+
+        FractionAccumulator(final FractionValue initial) {
+            this.initial = initial;
+            numerator = initial.fraction.getNumerator();
+            denominator = initial.fraction.getDenominator();
+        }
+
+        @Override
+        public Accumulator add(final Value other) {
+            if (initial.hasSameMetric(other) && other instanceof FractionValue) {
+                add(((FractionValue) other).fraction);
+                return this;
+            }
+            throw new IllegalArgumentException(
+                    String.format("Cannot cast incompatible types: %s and %s", initial, other));
+        }
+
+        private void add(final Fraction summand) {
+            long otherNumerator = summand.getNumerator();
+            long otherDenominator = summand.getDenominator();
+            if (otherNumerator == 0) {
+                return; // zero is the identity of the addition
+            }
+            if (numerator == 0) {
+                numerator = otherNumerator;
+                denominator = otherDenominator;
+                return;
+            }
+
+            long divisor = Delta.greatestCommonDivisor(denominator, otherDenominator);
+            long sumNumerator;
+            long sumDenominator;
+            boolean overflow;
+            if (divisor == 1) {
+                long left = numerator * otherDenominator;
+                long right = otherNumerator * denominator;
+                sumNumerator = left + right;
+                sumDenominator = denominator * otherDenominator;
+                overflow = !fitsIntoInt(left) || !fitsIntoInt(right);
+            }
+            else {
+                long sum = numerator * (otherDenominator / divisor) + otherNumerator * (denominator / divisor);
+                long reduction = Delta.greatestCommonDivisor(Math.floorMod(sum, divisor), divisor);
+                sumNumerator = sum / reduction;
+                sumDenominator = denominator / divisor * (otherDenominator / reduction);
+                overflow = false;
+            }
+
+            if (overflow || !fitsIntoInt(sumNumerator) || sumDenominator > Integer.MAX_VALUE) {
+                var sum = new SafeFraction(Fraction.getFraction((int) numerator, (int) denominator)).add(summand);
+                numerator = sum.getNumerator();
+                denominator = sum.getDenominator();
+            }
+            else {
+                numerator = sumNumerator;
+                denominator = sumDenominator;
+            }
+        }
+
+        private static boolean fitsIntoInt(final long value) {
+            return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+        }
+
+        @Override
+        public FractionValue build() {
+            if (numerator == initial.fraction.getNumerator() && denominator == initial.fraction.getDenominator()) {
+                return initial;
+            }
+            return new FractionValue(initial.getMetric(), Fraction.getFraction((int) numerator, (int) denominator));
+        }
+    }
 }
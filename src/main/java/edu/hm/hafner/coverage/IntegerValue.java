@@ -45,6 +45,11 @@ public abstract class IntegerValue extends Value {
 
     protected abstract IntegerValue create(int value);
 
+    @Override
+    public Accumulator accumulator() {
+        return new IntegerAccumulator(this);
+    }
+
     @Override
     public IntegerValue max(final Value other) {
         return castAndMap(other, this::computeMax);
@@ -52,8 +57,13 @@ public abstract class IntegerValue extends Value {
 
     @Override
     public Fraction delta(final Value other) {
+        return exactDelta(other).toFraction();
+    }
+
+    @Override
+    public Delta exactDelta(final Value other) {
         if (hasSameMetric(other) && other instanceof IntegerValue) {
-            return Fraction.getFraction(getValue() - ((IntegerValue) other).getValue(), 1);
+            return Delta.of(getValue(), 1, ((IntegerValue) other).getValue(), 1);
         }
         throw new IllegalArgumentException(String.format("Cannot cast incompatible types: %s and %s", this, other));
     }
@@ -115,4 +125,37 @@ public abstract class IntegerValue extends Value {
     public int hashCode() {
         return Objects.hash(super.hashCode(), integer);
     }
+
+    @Override
+    void addContentTo(final ContentHash hash) {
+        hash.add(getMetric().ordinal()).add(integer);
+    }
+
+    /**
+     * Mutable accumulator that sums up the values of several {@link IntegerValue} instances of the same type in a
+     * primitive field.
+     */
+    private static final class IntegerAccumulator implements Accumulator {
+        private final IntegerValue initial;
+        private int sum;
+
+        IntegerAccumulator(final IntegerValue initial) {
+            this.initial = initial;
+            sum = initial.getValue();
+        }
+
+        @Override
+        public Accumulator add(final Value other) {
+            sum += initial.castAndMap(other, UnaryOperator.identity()).getValue();
+            return this;
+        }
+
+        @Override
+        public IntegerValue build() {
+            if (sum == initial.getValue()) {
+                return initial;
+            }
+            return initial.create(sum);
+        }
+    }
 }
@@ -86,6 +86,7 @@ public final class MethodNode extends Node {
     }
 
     @Override
+    @SuppressWarnings("PMD.OverrideBothEqualsAndHashcode") // the hash code is computed in computeContentHash
     public boolean equals(final Object o) {
         if (this == o) {
             return true;
@@ -103,8 +104,9 @@ public final class MethodNode extends Node {
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(super.hashCode(), signature, methodName, lineNumber);
+    protected long computeContentHash() {
+        return new ContentHash().add(super.computeContentHash())
+                .add(signature).add(methodName).add(lineNumber).get();
     }
 
     @Override
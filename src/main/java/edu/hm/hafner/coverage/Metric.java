@@ -5,11 +5,11 @@ import java.util.NavigableSet;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.stream.Stream;
 
 import com.google.errorprone.annotations.Immutable;
 
 import edu.hm.hafner.coverage.Coverage.CoverageBuilder;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
@@ -127,6 +127,36 @@ public enum Metric {
 
     @Immutable
     private abstract static class MetricEvaluator {
+        /**
+         * Sums up the values of the children of the specified node. The values are summed up using a single
+         * {@link Value.Accumulator}, so no intermediate values are created.
+         *
+         * @param initial
+         *         the value to start with, or {@code null} if the sum should start with the value of the first child
+         * @param node
+         *         the node to get the children from
+         * @param searchMetric
+         *         the metric of the values to sum up
+         *
+         * @return the sum, or an empty result if neither an initial value nor values of the children are available
+         */
+        static Optional<Value> sumOfChildren(@CheckForNull final Value initial, final Node node,
+                final Metric searchMetric) {
+            Value.Accumulator sum = initial == null ? null : initial.accumulator();
+            for (Node child : node.getChildrenView()) {
+                var value = child.getValue(searchMetric);
+                if (value.isPresent()) {
+                    if (sum == null) {
+                        sum = value.get().accumulator();
+                    }
+                    else {
+                        sum.add(value.get());
+                    }
+                }
+            }
+            return sum == null ? Optional.empty() : Optional.of(sum.build());
+        }
+
         abstract Optional<Value> compute(Node node, Metric searchMetric);
 
         abstract boolean isAggregatingChildren();
@@ -167,14 +197,7 @@ public enum Metric {
 
         @Override
         final Optional<Value> compute(final Node node, final Metric searchMetric) {
-            Optional<Value> aggregatedChildrenValue = node.getChildren().stream()
-                    .map(n -> n.getValue(searchMetric))
-                    .flatMap(Optional::stream)
-                    .reduce(Value::add);
-            Optional<Value> localMetricValue = getMetricOf(node, searchMetric);
-            return Stream.of(localMetricValue, aggregatedChildrenValue)
-                    .flatMap(Optional::stream)
-                    .reduce(Value::add);
+            return sumOfChildren(getMetricOf(node, searchMetric).orElse(null), node, searchMetric);
         }
     }
 
@@ -239,18 +262,12 @@ public enum Metric {
 
         @Override
         final Optional<Value> compute(final Node node, final Metric searchMetric) {
-            Optional<Value> localMetricValue = node.getValues()
-                    .stream()
-                    .filter(leaf -> leaf.getMetric().equals(searchMetric))
-                    .findAny();
+            Optional<Value> localMetricValue = Value.findValue(searchMetric, node.getValuesView());
             if (localMetricValue.isPresent()) {
                 return localMetricValue;
             }
             // aggregate children
-            return node.getChildren().stream()
-                    .map(n -> n.getValue(searchMetric))
-                    .flatMap(Optional::stream)
-                    .reduce(Value::add);
+            return sumOfChildren(null, node, searchMetric);
         }
     }
 }
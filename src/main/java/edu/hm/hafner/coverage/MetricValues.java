@@ -0,0 +1,141 @@
+package edu.hm.hafner.coverage;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+/**
+ * Stores the values of a node indexed by the ordinal of their metric. A bit mask marks the metrics that have a value,
+ * the values themselves are stored in an array that is sorted by the ordinal of the metric and that has no empty
+ * slots. The position of a value in the array is the number of bits that are set in the mask below the ordinal of its
+ * metric. So looking up or replacing the value of a metric takes constant time, and a node with a few values needs
+ * only a few bytes more than the values themselves.
+ *
+ * <p>
+ * This list is read-only, values are added or replaced using {@link #put(Value)}. The values are iterated in the order
+ * of the metrics.
+ * </p>
+ *
+ * @author Ullrich Hafner
+ */
+final class MetricValues extends AbstractList<Value> implements RandomAccess, Serializable {
+    private static final long serialVersionUID = 6383208441096128213L;
+    private static final Value[] EMPTY = new Value[0];
+
+    /**
+     * The metrics that have a value, bit {@code n} is set for the metric with the ordinal {@code n}. The mask is not
+     * serialized since the ordinals of the metrics might change between releases, it is rebuilt from the values.
+     */
+    private transient long mask;
+    private Value[] values = EMPTY;
+
+    /**
+     * Returns whether a value for the specified metric is stored.
+     *
+     * @param metric
+     *         the metric of the value
+     *
+     * @return {@code true} if a value for the metric is stored, {@code false} otherwise
+     */
+    boolean containsMetric(final Metric metric) {
+        return (mask & bit(metric)) != 0;
+    }
+
+    /**
+     * Returns the value for the specified metric.
+     *
+     * @param metric
+     *         the metric of the value
+     *
+     * @return the value, or {@code null} if no value for the metric is stored
+     */
+    @CheckForNull
+    Value find(final Metric metric) {
+        if (containsMetric(metric)) {
+            return values[positionOf(metric)];
+        }
+        return null;
+    }
+
+    /**
+     * Stores the specified value. An existing value of the same metric is replaced.
+     *
+     * @param value
+     *         the value to store
+     */
+    void put(final Value value) {
+        var metric = value.getMetric();
+        int position = positionOf(metric);
+        if (containsMetric(metric)) {
+            values[position] = value;
+        }
+        else {
+            var grown = new Value[values.length + 1];
+            System.arraycopy(values, 0, grown, 0, position);
+            System.arraycopy(values, position, grown, position + 1, values.length - position);
+            grown[position] = value;
+            values = grown;
+            mask |= bit(metric);
+            modCount++;
+        }
+    }
+
+    /**
+     * Stores all values of the specified instance. Existing values of the same metrics are replaced.
+     *
+     * @param other
+     *         the values to store
+     */
+    void putAll(final MetricValues other) {
+        if (mask == 0) {
+            mask = other.mask;
+            values = other.values.length == 0 ? EMPTY : Arrays.copyOf(other.values, other.values.length);
+            modCount++;
+        }
+        else {
+            for (Value value : other.values) {
+                put(value);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        mask = 0;
+        values = EMPTY;
+        modCount++;
+    }
+
+    @Override
+    public Value get(final int index) {
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    private void readObject(final ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+
+        var stored = values; // sorted again, since the ordinals of the metrics might have changed
+        values = EMPTY;
+        for (Value value : stored) {
+            put(value);
+        }
+    }
+
+    private int positionOf(final Metric metric) {
+        return Long.bitCount(mask & (bit(metric) - 1));
+    }
+
+    private static long bit(final Metric metric) {
+        return 1L << metric.ordinal();
+    }
+}
@@ -1,17 +1,18 @@
 package edu.hm.hafner.coverage;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
 /**
  * A {@link Node} which represents a module of a project.
  *
@@ -51,7 +52,11 @@ public final class ModuleNode extends Node {
      *         the source to add
      */
     public void addSource(final String source) {
+        ensureMutable();
+
         sources.add(source);
+
+        invalidateHashCode();
     }
 
     /**
@@ -69,50 +74,79 @@ public final class ModuleNode extends Node {
      *     </li>
      * </ul>
      */
+    @SuppressWarnings({"ReferenceEquality", "PMD.CompareObjectsWithEquals"})
     public void splitPackages() {
+        ensureMutable();
+
         var allPackages = getChildren().stream()
                 .filter(child -> child.getMetric().equals(Metric.PACKAGE))
                 .collect(Collectors.toList());
         allPackages.forEach(this::removeChild);
+
+        Map<String, Node> topLevelPackages = new LinkedHashMap<>();
         for (Node packageNode : allPackages) {
             String[] packageParts = StringUtils.split(packageNode.getName(), "./\\");
+            String topLevelName = packageParts.length > 1 ? packageParts[0] : packageNode.getName();
+
+            Node localRoot = topLevelPackages.remove(topLevelName); // re-inserted to keep the order of the last usage
+            Node localTail;
             if (packageParts.length > 1) {
-                ArrayUtils.reverse(packageParts);
-                Optional<PackageNode> splitPackages = Arrays.stream(packageParts)
-                        .map(subPackage -> createPackageNode(subPackage, packageNode.getValues()))
-                        .reduce(PackageNode::appendPackage);
-                PackageNode localRoot = splitPackages.get();
-                Node localTail = localRoot;
-                while (localTail.hasChildren()) {
-                    localTail = localTail.getChildren().get(0);
+                localRoot = visitPackage(localRoot, topLevelName, packageNode);
+                localTail = localRoot;
+                for (int i = 1; i < packageParts.length; i++) {
+                    localTail = findOrCreateSubPackage(localTail, packageParts[i], packageNode);
                 }
-                localTail.addAllChildren(packageNode.getChildren()); // move the children to the new tail
-                mergeSinglePackage(localRoot);
+            }
+            else if (localRoot == null) {
+                localRoot = packageNode; // reuse the package as is
+                localTail = packageNode;
             }
             else {
-                mergeSinglePackage(packageNode);
+                localRoot.removeValues();
+                localTail = localRoot;
+            }
+            topLevelPackages.put(topLevelName, localRoot);
+
+            if (localTail != packageNode) {
+                moveChildren(packageNode, localTail);
             }
         }
+        addAllChildren(topLevelPackages.values());
     }
 
-    private void mergeSinglePackage(final Node packageNode) {
-        for (Node existing : getChildren()) {
-            if (isEqual(packageNode, existing)) {
-                // replace the existing node with the merged nodes
-                removeChild(existing);
-                Node merged = existing.merge(packageNode);
-                addChild(merged);
-
-                return;
-            }
+    /**
+     * Returns the specified package node of the hierarchy. If the node does not exist yet, then it will be created with
+     * the values of the flat package. Otherwise, the values of the existing node are removed since the node is part of
+     * several flat packages now.
+     */
+    private Node visitPackage(@CheckForNull final Node existing, final String name, final Node flatPackage) {
+        if (existing == null) {
+            return createPackageNode(name, flatPackage.getValues());
         }
+        existing.removeValues();
+        return existing;
+    }
 
-        addChild(packageNode); // fallback: if the package does not yet exist add it as new package node
+    private Node findOrCreateSubPackage(final Node parent, final String name, final Node flatPackage) {
+        var existing = parent.findChild(Metric.PACKAGE, name);
+        if (existing.isPresent()) {
+            return visitPackage(existing.get(), name, flatPackage);
+        }
+        var subPackage = createPackageNode(name, flatPackage.getValues());
+        parent.addChild(subPackage);
+        return subPackage;
     }
 
-    private static boolean isEqual(final Node packageNode, final Node existing) {
-        return existing.getMetric().equals(packageNode.getMetric())
-                && existing.getName().equals(packageNode.getName());
+    private void moveChildren(final Node flatPackage, final Node target) {
+        for (Node child : flatPackage.getChildren()) {
+            var existing = target.findChild(child.getMetric(), child.getName());
+            if (existing.isPresent()) {
+                existing.get().mergeNode(child);
+            }
+            else {
+                target.addChild(child);
+            }
+        }
     }
 
     private PackageNode createPackageNode(final String subPackage, final List<Value> existingValues) {
@@ -136,18 +170,44 @@ public final class ModuleNode extends Node {
     }
 
     /**
-     * Searches for the specified package node. If the package node is not found, then a new package node will be created
-     * and linked to this module node.
+     * Searches for the specified package node in the whole subtree of this module. If the package node is not found,
+     * then a new package node will be created and linked to this module node. The children of this module are looked
+     * up first using an index in constant time, the remaining subtree is searched only if no child matches. This
+     * search uses the index of {@link #find(Metric, String)} that is extended in place when a new node is appended, so
+     * it is not recreated after each created node.
      *
      * @param packageName
      *         the package name
      *
      * @return the existing or created package node
      * @see #createPackageNode(String)
+     * @see #findOrCreateChildPackageNode(String)
      */
     public PackageNode findOrCreatePackageNode(final String packageName) {
         var normalizedPackageName = PackageNode.normalizePackageName(packageName);
-        return findPackage(normalizedPackageName).orElseGet(() -> createPackageNode(normalizedPackageName));
+        return findChild(Metric.PACKAGE, normalizedPackageName)
+                .map(PackageNode.class::cast)
+                .or(() -> findPackage(normalizedPackageName))
+                .orElseGet(() -> createPackageNode(normalizedPackageName));
+    }
+
+    /**
+     * Searches for the specified package node in the children of this module. If the package node is not found, then a
+     * new package node will be created and linked to this module node. In contrast to
+     * {@link #findOrCreatePackageNode(String)} the subtree of the children is not searched, so the lookup takes
+     * constant time. Use this method to build a tree where packages are always direct children of modules.
+     *
+     * @param packageName
+     *         the package name
+     *
+     * @return the existing or created package node
+     * @see #createPackageNode(String)
+     */
+    public PackageNode findOrCreateChildPackageNode(final String packageName) {
+        var normalizedPackageName = PackageNode.normalizePackageName(packageName);
+        return findChild(Metric.PACKAGE, normalizedPackageName)
+                .map(PackageNode.class::cast)
+                .orElseGet(() -> createPackageNode(normalizedPackageName));
     }
 
     @Override
@@ -156,6 +216,7 @@ public final class ModuleNode extends Node {
     }
 
     @Override
+    @SuppressWarnings("PMD.OverrideBothEqualsAndHashcode") // the hash code is computed in computeContentHash
     public boolean equals(final Object o) {
         if (this == o) {
             return true;
@@ -171,8 +232,8 @@ public final class ModuleNode extends Node {
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(super.hashCode(), sources);
+    protected long computeContentHash() {
+        return new ContentHash().add(super.computeContentHash()).add(sources).get();
     }
 
     @Override
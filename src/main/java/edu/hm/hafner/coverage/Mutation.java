@@ -253,12 +253,11 @@ public final class Mutation implements Serializable {
         public void buildAndAddToModule(final ModuleNode root, final TreeStringBuilder treeStringBuilder) {
             String packageName = StringUtils.substringBeforeLast(mutatedClass, ".");
             String className = StringUtils.substringAfterLast(mutatedClass, ".");
-            var packageNode = root.findOrCreatePackageNode(packageName);
+            var packageNode = root.findOrCreateChildPackageNode(packageName);
             var relativePath = packageName.replace('.', '/') + '/' + sourceFile;
-            var fileNode = packageNode.findOrCreateFileNode(sourceFile, treeStringBuilder.intern(relativePath));
-            var classNode = fileNode.findOrCreateClassNode(className);
-            var methodNode = classNode.findMethod(mutatedMethod, mutatedMethodSignature)
-                    .orElseGet(() -> classNode.createMethodNode(mutatedMethod, mutatedMethodSignature));
+            var fileNode = packageNode.findOrCreateChildFileNode(sourceFile, treeStringBuilder.intern(relativePath));
+            var classNode = fileNode.findOrCreateChildClassNode(className);
+            var methodNode = classNode.findOrCreateMethodNode(mutatedMethod, mutatedMethodSignature);
 
             var coverage = methodNode.getValue(Metric.MUTATION)
                     .map(Coverage.class::cast)
@@ -1,11 +1,18 @@
 package edu.hm.hafner.coverage;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.NavigableSet;
 import java.util.NoSuchElementException;
@@ -14,9 +21,13 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.commons.lang3.math.Fraction;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -42,11 +53,63 @@ public abstract class Node implements Serializable {
 
     private /* almost final */ String name;
     private final List<Node> children = new ArrayList<>();
-    private final List<Value> values = new ArrayList<>();
+    private /* almost final */ MetricValues metricValues = new MetricValues();
+
+    // Replaced by metricValues: this field is only set when an old serialization is read, see readObject
+    @CheckForNull
+    private List<Value> values;
 
     @CheckForNull
     private Node parent;
 
+    /**
+     * Creates the children of a lazy view on demand, see {@link #viewByModifiedLines()}. The children are created
+     * when they are accessed for the first time.
+     */
+    @CheckForNull
+    private transient Supplier<List<Node>> pendingChildren;
+
+    /**
+     * Index of the children by name. Since the names of the children are unique, the name is sufficient as key. The
+     * index is created on demand and is not serialized.
+     */
+    @CheckForNull
+    private transient Map<String, Node> childrenByName;
+
+    /**
+     * Index of all nodes in the subtree of this node, used by the various {@code find} methods of all nodes of the
+     * subtree. Usually, only the root of a tree holds an index: it is created on demand, it is extended when a child
+     * is appended, and it is discarded whenever the tree changes otherwise. A lookup in a modified tree creates an
+     * index for the subtree of the receiver only, see {@link #getIndex()}. Since the index of a {@link #freeze()
+     * frozen} tree is never changed, concurrent readers of a frozen tree might create the index twice, but they never
+     * see a partially created index.
+     */
+    @CheckForNull
+    private transient NodeIndex index;
+
+    /**
+     * Aggregated values of the subtree of this node, indexed by the ordinal of the metric. A slot is {@code null} if
+     * the value has not been computed yet. The array is created on demand and is discarded whenever a value in the
+     * subtree changes.
+     */
+    @CheckForNull
+    @SuppressFBWarnings(value = "VO_VOLATILE_REFERENCE_TO_ARRAY", justification = "Slots are written only once")
+    private transient volatile Optional<Value>[] aggregatedValues;
+
+    /**
+     * Determines whether this node is part of a snapshot that has been created by {@link #freeze()}. Frozen nodes
+     * reject all modifications.
+     */
+    private transient boolean frozen;
+
+    /**
+     * 64-bit hash of the subtree of this node: it combines the metric, the name, the values, and the properties of this
+     * node with the hashes of the children (i.e., it is a Merkle hash). A value of 0 means that the hash has not been
+     * computed yet. The hash is discarded whenever this node or a node of the subtree changes, so unchanged subtrees
+     * do not need to be visited again.
+     */
+    private transient long contentHash;
+
     /**
      * Creates a new node with the given name.
      *
@@ -67,7 +130,14 @@ public abstract class Node implements Serializable {
     }
 
     void setName(final String name) { // Might be used during the deserialization of old reports
+        ensureMutable();
+
         this.name = name;
+
+        if (parent != null) {
+            parent.childrenByName = null; // index of the parent is stale now
+        }
+        invalidateIndex();
     }
 
     /**
@@ -98,7 +168,7 @@ public abstract class Node implements Serializable {
      * @return the elements in this tree
      */
     public NavigableSet<Metric> getMetrics() {
-        NavigableSet<Metric> elements = children.stream()
+        NavigableSet<Metric> elements = children().stream()
                 .map(Node::getMetrics)
                 .flatMap(Collection::stream)
                 .collect(Collectors.toCollection(TreeSet::new));
@@ -136,7 +206,7 @@ public abstract class Node implements Serializable {
      * @return a collection of source folders
      */
     public Set<String> getSourceFolders() {
-        return children.stream()
+        return children().stream()
                 .map(Node::getSourceFolders)
                 .flatMap(Collection::parallelStream)
                 .collect(Collectors.toSet());
@@ -148,11 +218,34 @@ public abstract class Node implements Serializable {
      * @return {@code true} if this node has children, {@code false} otherwise
      */
     public boolean hasChildren() {
-        return !children.isEmpty();
+        return !children().isEmpty();
+    }
+
+    @SuppressWarnings("PMD.NullAssignment") // the children have been created
+    private List<Node> children() {
+        var supplier = pendingChildren;
+        if (supplier != null) {
+            pendingChildren = null;
+            for (Node child : supplier.get()) {
+                children.add(child);
+                child.setParent(this);
+            }
+            childrenByName = null;
+        }
+        return children;
     }
 
     public List<Node> getChildren() {
-        return new ArrayList<>(children);
+        return new ArrayList<>(children());
+    }
+
+    /**
+     * Returns the children of this node without creating a copy.
+     *
+     * @return a read-only view of the children
+     */
+    List<Node> getChildrenView() {
+        return Collections.unmodifiableList(children());
     }
 
     /**
@@ -161,22 +254,79 @@ public abstract class Node implements Serializable {
      * @param child
      *         the child to add
      */
+    @SuppressWarnings("PMD.NullAssignment") // the child is not a root anymore
     public void addChild(final Node child) {
-        if (children.stream().anyMatch(node -> node.getName().equals(child.getName()))) {
+        ensureMutable();
+
+        var childIndex = getChildrenByName();
+        if (childIndex.containsKey(child.getName())) {
             throw new IllegalArgumentException(
                     String.format("There is already a child %s with the name %s in %s", child, child.getName(), this));
         }
 
-        children.add(child);
+        children().add(child);
+        childIndex.put(child.getName(), child);
         child.setParent(this);
+        child.index = null;
+
+        appendToIndex(child);
+        invalidateValues();
     }
 
-    @SuppressWarnings("PMD.NullAssignment") // remove link to parent
+    /**
+     * Adds the specified child to the indexes of this node and all of its parents. An index that cannot be extended
+     * in place is discarded, see {@link NodeIndex#append(Node, Node)}.
+     */
+    @SuppressWarnings("PMD.NullAssignment") // the index will be recreated on demand
+    private void appendToIndex(final Node child) {
+        for (Node node = this; node != null && !node.frozen; node = node.parent) {
+            var current = node.index;
+            if (current != null && !current.append(this, child)) {
+                node.index = null;
+            }
+            node.contentHash = 0;
+        }
+    }
+
+    @SuppressWarnings("PMD.NullAssignment") // remove link to parent and the stale index
     protected void removeChild(final Node child) {
-        Ensure.that(children.contains(child)).isTrue("The node %s is not a child of this node %s", child, this);
+        ensureMutable();
+        Ensure.that(children().contains(child)).isTrue("The node %s is not a child of this node %s", child, this);
 
-        children.remove(child);
+        children().remove(child);
+        if (childrenByName != null) {
+            childrenByName.remove(child.getName(), child);
+        }
         child.parent = null;
+        child.index = null;
+
+        invalidateIndex();
+        invalidateValues();
+    }
+
+    private Map<String, Node> getChildrenByName() {
+        if (childrenByName == null) {
+            var index = new HashMap<String, Node>();
+            children().forEach(child -> index.putIfAbsent(child.getName(), child));
+            childrenByName = index;
+        }
+        return childrenByName;
+    }
+
+    /**
+     * Returns the child with the specified metric and name. In contrast to {@link #find(Metric, String)} only the
+     * direct children of this node are inspected, so the lookup takes constant time.
+     *
+     * @param searchMetric
+     *         the metric of the child
+     * @param searchName
+     *         the name of the child
+     *
+     * @return the child or an empty result, if no such child exists
+     */
+    Optional<Node> findChild(final Metric searchMetric, final String searchName) {
+        return Optional.ofNullable(getChildrenByName().get(searchName))
+                .filter(child -> child.getMetric() == searchMetric);
     }
 
     /**
@@ -188,7 +338,7 @@ public abstract class Node implements Serializable {
      * @return {@code true} if this node has a child with the specified name, {@code false} otherwise
      */
     public boolean hasChild(final String childName) {
-        return children.stream().map(Node::getName).anyMatch(childName::equals);
+        return getChildrenByName().containsKey(childName);
     }
 
     /**
@@ -239,7 +389,16 @@ public abstract class Node implements Serializable {
     }
 
     public List<Value> getValues() {
-        return List.copyOf(values);
+        return List.copyOf(metricValues);
+    }
+
+    /**
+     * Returns the values of this node without creating a copy.
+     *
+     * @return a read-only view of the values
+     */
+    List<Value> getValuesView() {
+        return metricValues;
     }
 
     /**
@@ -249,7 +408,7 @@ public abstract class Node implements Serializable {
      *         the value to add
      */
     public void addValue(final Value value) {
-        if (getMetricsOfValues().anyMatch(value.getMetric()::equals)) {
+        if (metricValues.containsMetric(value.getMetric())) {
             throw new IllegalArgumentException(
                     String.format("There is already a leaf %s with the metric %s", value, value.getMetric()));
         }
@@ -264,11 +423,11 @@ public abstract class Node implements Serializable {
      *         the value to replace
      */
     public void replaceValue(final Value value) {
-        values.stream()
-                .filter(v -> v.getMetric().equals(value.getMetric()))
-                .findAny()
-                .ifPresent(values::remove);
-        values.add(value);
+        ensureMutable();
+
+        metricValues.put(value);
+
+        invalidateValues();
     }
 
     protected void addAllValues(final Collection<? extends Value> additionalValues) {
@@ -281,7 +440,7 @@ public abstract class Node implements Serializable {
      * @return the elements in this tree
      */
     public NavigableSet<Metric> getValueMetrics() {
-        NavigableSet<Metric> elements = children.stream()
+        NavigableSet<Metric> elements = children().stream()
                 .map(Node::getValueMetrics)
                 .flatMap(Collection::stream)
                 .collect(Collectors.toCollection(TreeSet::new));
@@ -291,7 +450,7 @@ public abstract class Node implements Serializable {
     }
 
     private Stream<Metric> getMetricsOfValues() {
-        return values.stream().map(Value::getMetric);
+        return metricValues.stream().map(Value::getMetric);
     }
 
     NavigableMap<Metric, Value> getMetricsDistribution() {
@@ -301,7 +460,7 @@ public abstract class Node implements Serializable {
 
     /**
      * Returns the value for the specified metric. The value is aggregated for the whole subtree this node is the root
-     * of.
+     * of. The aggregated value is cached until a value or the structure of the subtree changes.
      *
      * @param searchMetric
      *         the metric to get the value for
@@ -309,7 +468,28 @@ public abstract class Node implements Serializable {
      * @return the value for the specified metric or an empty result if no value has been defined
      */
     public Optional<Value> getValue(final Metric searchMetric) {
-        return searchMetric.getValueFor(this);
+        var cache = getAggregatedValues();
+        int slot = searchMetric.ordinal();
+        var value = cache[slot];
+        if (value == null) {
+            value = searchMetric.getValueFor(this);
+            cache[slot] = value;
+        }
+        return value;
+    }
+
+    void setAggregatedValues(final Optional<Value>[] values) {
+        aggregatedValues = values;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<Value>[] getAggregatedValues() {
+        var cache = aggregatedValues;
+        if (cache == null) {
+            cache = (Optional<Value>[]) new Optional<?>[Metric.values().length];
+            aggregatedValues = cache;
+        }
+        return cache;
     }
 
     /**
@@ -326,20 +506,30 @@ public abstract class Node implements Serializable {
      * @return coverage ratio
      */
     public <T extends Value> T getTypedValue(final Metric searchMetric, final T defaultValue) {
-        var possiblyValue = searchMetric.getValueFor(this);
+        var possiblyValue = getValue(searchMetric);
 
         //noinspection unchecked
         return possiblyValue.map(value -> (T) defaultValue.getClass().cast(value)).orElse(defaultValue);
     }
 
     /**
-     * Aggregates all values that are part of the subtree that is spanned by this node.
+     * Aggregates all values that are part of the subtree that is spanned by this node. The values of all metrics are
+     * computed in a single traversal of the subtree, see {@link TreeAggregator}. The results are cached in the same
+     * way as the results of {@link #getValue(Metric)}.
      *
      * @return aggregation of values below this tree
      */
     public List<Value> aggregateValues() {
-        return getMetrics().stream().map(this::getValue).flatMap(Optional::stream)
-                .collect(Collectors.toList());
+        var cache = getAggregatedValues();
+        if (Arrays.asList(cache).contains(null)) {
+            var aggregated = new TreeAggregator().aggregate(this);
+            for (int i = 0; i < cache.length; i++) {
+                if (cache[i] == null) {
+                    cache[i] = aggregated[i];
+                }
+            }
+        }
+        return Arrays.stream(cache).flatMap(Optional::stream).collect(Collectors.toList());
     }
 
     /**
@@ -353,17 +543,93 @@ public abstract class Node implements Serializable {
      * @return the delta coverage for each available metric as fraction
      */
     public NavigableMap<Metric, Fraction> computeDelta(final Node reference) {
-        NavigableMap<Metric, Fraction> deltaPercentages = new TreeMap<>();
-        NavigableMap<Metric, Value> metricPercentages = getMetricsDistribution();
-        NavigableMap<Metric, Value> referencePercentages = reference.getMetricsDistribution();
-
-        for (Entry<Metric, Value> entry : metricPercentages.entrySet()) {
-            Metric key = entry.getKey();
-            if (referencePercentages.containsKey(key)) {
-                deltaPercentages.put(key, entry.getValue().delta(referencePercentages.get(key)));
+        return computeDeltaWith(reference, Value::delta);
+    }
+
+    /**
+     * Computes the delta of all metrics between this node and the specified reference node using exact long based
+     * arithmetic, see {@link Value#exactDelta(Value)}. The deltas are converted to fractions only on demand, so this
+     * method should be used instead of {@link #computeDelta(Node)} if the deltas of many nodes need to be compared or
+     * checked for zero. If the reference node does not contain a specific metric, then no delta is computed and the
+     * metric is omitted in the result map.
+     *
+     * @param reference
+     *         the reference node
+     *
+     * @return the delta for each available metric
+     */
+    public NavigableMap<Metric, Delta> computeExactDelta(final Node reference) {
+        return computeDeltaWith(reference, Value::exactDelta);
+    }
+
+    private <T> NavigableMap<Metric, T> computeDeltaWith(final Node reference,
+            final BiFunction<Value, Value, T> deltaFunction) {
+        reference.aggregateValues(); // caches the aggregated values of all metrics in a single traversal
+        NavigableMap<Metric, T> deltas = new TreeMap<>();
+        for (Value value : aggregateValues()) {
+            var referenceValue = reference.getValue(value.getMetric());
+            if (referenceValue.isPresent()) {
+                deltas.put(value.getMetric(), deltaFunction.apply(value, referenceValue.get()));
+            }
+        }
+        return deltas;
+    }
+
+    /**
+     * Visits all nodes of the subtree of this node in depth-first order with the specified visitor. The subtree of a
+     * node is skipped if {@link NodeVisitor#enter(Node)} returns {@code false}. No intermediate collections are
+     * created during the traversal.
+     *
+     * @param visitor
+     *         the visitor
+     */
+    @SuppressWarnings("ForLoopReplaceableByForEach") // avoid creating an iterator for each node
+    public void accept(final NodeVisitor visitor) {
+        if (visitor.enter(this)) {
+            var nodes = children();
+            for (int i = 0; i < nodes.size(); i++) {
+                nodes.get(i).accept(visitor);
             }
         }
-        return deltaPercentages;
+        visitor.leave(this);
+    }
+
+    /**
+     * Returns whether the subtree of this node has fewer nodes than the specified limit. The traversal does not descend
+     * any further as soon as the limit has been reached, so the check is cheap even for huge trees.
+     *
+     * @param limit
+     *         the number of nodes
+     *
+     * @return {@code true} if the subtree has fewer nodes than the limit, {@code false} otherwise
+     */
+    boolean isSmallerThan(final int limit) {
+        var counter = new NodeVisitor() {
+            private int count;
+
+            @Override
+            public boolean enter(final Node node) {
+                count++;
+                return count < limit;
+            }
+        };
+        accept(counter);
+        return counter.count < limit;
+    }
+
+    /**
+     * Returns a stream of all nodes of the subtree of this node that have the specified metric. The nodes are
+     * reported in pre-order. The stream traverses the tree lazily without creating intermediate collections. Its
+     * spliterator splits the tree into subtrees, so the stream can be processed in parallel using
+     * {@link Stream#parallel()}.
+     *
+     * @param searchMetric
+     *         the metric to look for
+     *
+     * @return a stream of the nodes with the given metric
+     */
+    public Stream<Node> stream(final Metric searchMetric) {
+        return StreamSupport.stream(new NodeSpliterator(this, searchMetric), false);
     }
 
     /**
@@ -375,17 +641,29 @@ public abstract class Node implements Serializable {
      * @return all nodes for the given metric
      */
     public List<Node> getAll(final Metric searchMetric) {
-        List<Node> childNodes = children.stream()
-                .map(child -> child.getAll(searchMetric))
-                .flatMap(List::stream).collect(Collectors.toList());
-        if (metric.equals(searchMetric)) {
-            childNodes.add(this);
-        }
-        return childNodes;
+        return getAll(searchMetric, Node.class);
+    }
+
+    /**
+     * Returns all nodes of the specified metric in post-order, i.e., a node is appended after the nodes of its
+     * children.
+     */
+    private <T extends Node> List<T> getAll(final Metric searchMetric, final Class<T> type) {
+        List<T> nodes = new ArrayList<>();
+        accept(new NodeVisitor() {
+            @Override
+            public void leave(final Node node) {
+                if (node.getMetric() == searchMetric) {
+                    nodes.add(type.cast(node));
+                }
+            }
+        });
+        return nodes;
     }
 
     /**
-     * Finds the metric with the given name starting from this node.
+     * Finds the metric with the given name starting from this node. The lookup uses an index of the tree (or of the
+     * subtree of this node) that is created on the first call and reused until the tree changes.
      *
      * @param searchMetric
      *         the metric to search for
@@ -395,13 +673,7 @@ public abstract class Node implements Serializable {
      * @return the result if found
      */
     public Optional<Node> find(final Metric searchMetric, final String searchName) {
-        if (matches(searchMetric, searchName)) {
-            return Optional.of(this);
-        }
-        return children.stream()
-                .map(child -> child.find(searchMetric, searchName))
-                .flatMap(Optional::stream)
-                .findAny();
+        return getIndex().find(this, searchMetric, searchName);
     }
 
     /**
@@ -451,25 +723,37 @@ public abstract class Node implements Serializable {
      * @return the first matching method or an empty result, if no such method exists
      */
     public Optional<MethodNode> findMethod(final String searchName, final String searchSignature) {
-        return getAll(Metric.METHOD).stream()
-                .map(MethodNode.class::cast)
-                .filter(node -> node.getMethodName().equals(searchName)
-                        && node.getSignature().equals(searchSignature))
-                .findAny();
+        return getIndex().findMethod(this, searchName, searchSignature);
     }
 
     public List<Mutation> getMutations() {
-        return getChildren().stream()
-                .map(Node::getMutations)
-                .flatMap(Collection::stream)
-                .collect(Collectors.toList());
+        List<Mutation> mutations = new ArrayList<>();
+        accept(new NodeVisitor() {
+            @Override
+            public boolean enter(final Node node) {
+                if (node instanceof FileNode) {
+                    mutations.addAll(node.getMutations());
+                    return false;
+                }
+                return true;
+            }
+        });
+        return mutations;
     }
 
     public List<TestCase> getTestCases() {
-        return getChildren().stream()
-                .map(Node::getTestCases)
-                .flatMap(Collection::stream)
-                .collect(Collectors.toList());
+        List<TestCase> testCases = new ArrayList<>();
+        accept(new NodeVisitor() {
+            @Override
+            public boolean enter(final Node node) {
+                if (node instanceof ClassNode) {
+                    testCases.addAll(node.getTestCases());
+                    return false;
+                }
+                return true;
+            }
+        });
+        return testCases;
     }
 
     /**
@@ -478,23 +762,30 @@ public abstract class Node implements Serializable {
      * @return the file names
      */
     public Set<String> getFiles() {
-        return children.stream().map(Node::getFiles).flatMap(Collection::stream).collect(Collectors.toSet());
+        Set<String> files = new HashSet<>();
+        accept(new NodeVisitor() {
+            @Override
+            public boolean enter(final Node node) {
+                if (node instanceof FileNode) {
+                    files.add(((FileNode) node).getRelativePath());
+                    return false;
+                }
+                return true;
+            }
+        });
+        return files;
     }
 
     public List<FileNode> getAllFileNodes() {
-        return getAll(Metric.FILE, FileNode.class::cast);
+        return getAll(Metric.FILE, FileNode.class);
     }
 
     public List<ClassNode> getAllClassNodes() {
-        return getAll(Metric.CLASS, ClassNode.class::cast);
+        return getAll(Metric.CLASS, ClassNode.class);
     }
 
     public List<MethodNode> getAllMethodNodes() {
-        return getAll(Metric.METHOD, MethodNode.class::cast);
-    }
-
-    private <T extends Node> List<T> getAll(final Metric metric1, final Function<Node, T> cast) {
-        return getAll(metric1).stream().map(cast).collect(Collectors.toList());
+        return getAll(Metric.METHOD, MethodNode.class);
     }
 
     /**
@@ -508,13 +799,7 @@ public abstract class Node implements Serializable {
      * @return the result if found
      */
     public Optional<Node> findByHashCode(final Metric searchMetric, final int searchNameHashCode) {
-        if (matches(searchMetric, searchNameHashCode)) {
-            return Optional.of(this);
-        }
-        return children.stream()
-                .map(child -> child.findByHashCode(searchMetric, searchNameHashCode))
-                .flatMap(Optional::stream)
-                .findAny();
+        return getIndex().findByHashCode(this, searchMetric, searchNameHashCode);
     }
 
     /**
@@ -588,10 +873,11 @@ public abstract class Node implements Serializable {
         if (copiedParent != null) {
             copy.setParent(copiedParent);
         }
-        getChildren().stream()
-                .filter(filter::apply)
-                .map(node -> node.copyTree(this, filter))
-                .forEach(copy::addChild);
+        for (Node child : children()) {
+            if (filter.apply(child)) {
+                copy.addChild(child.copyTree(copy, filter));
+            }
+        }
 
         return copy;
     }
@@ -616,13 +902,13 @@ public abstract class Node implements Serializable {
     /**
      * Creates a copy of this instance that has no children and no parent yet. This method will copy all stored values
      * of this node. This method delegates to the instance local {@link #copy()} method to copy all properties
-     * introduced by subclasses.
+     * introduced by subclasses. Since values are immutable, the copy references the same value instances.
      *
      * @return the copied node
      */
     public final Node copyNode() {
         Node copy = copy();
-        getValues().forEach(copy::addValue);
+        copy.metricValues.putAll(metricValues);
         return copy;
     }
 
@@ -636,7 +922,10 @@ public abstract class Node implements Serializable {
 
     /**
      * Creates a new tree of merged {@link Node nodes} if all nodes have the same name and metric. If the nodes have
-     * different names or metrics, then these nodes will be attached to a new {@link ContainerNode} node.
+     * different names or metrics, then these nodes will be attached to a new {@link ContainerNode} node. The result is
+     * the same as merging the nodes one after another using {@link #merge(Node)}. However, all trees are merged in a
+     * single pass: the children with the same name are collected from all trees and merged at once, so every node of
+     * the given trees is copied at most once.
      *
      * @param nodes
      *         the nodes to merge
@@ -655,10 +944,7 @@ public abstract class Node implements Serializable {
                 .collect(Collectors.groupingBy(n -> new ImmutablePair<>(n.getName(), n.getMetric())));
 
         if (grouped.size() == 1) {
-            return nodes.stream()
-                    .map(t -> (Node) t)
-                    .reduce(Node::merge)
-                    .orElseThrow(() -> new NoSuchElementException("No node found"));
+            return mergeAll(nodes);
         }
 
         var container = new ContainerNode("Container"); // non-compatible nodes will be added to a new container node
@@ -699,7 +985,39 @@ public abstract class Node implements Serializable {
         }
     }
 
-    private void ensureSameMetric(final Node other) {
+    static Node mergeAll(final List<? extends Node> nodes) {
+        var first = nodes.get(0);
+        if (nodes.size() == 1) {
+            return first.copyTree();
+        }
+
+        var merged = first.copy();
+        merged.mergeNodes(nodes);
+        return merged;
+    }
+
+    /**
+     * Merges the specified nodes into this node, which is an empty copy of the first of these nodes. All children
+     * with the same name are merged together, children that are part of a single node only are copied.
+     *
+     * @param nodes
+     *         the nodes to merge, all nodes have the same name as this node
+     */
+    protected void mergeNodes(final List<? extends Node> nodes) {
+        Map<String, List<Node>> childrenByName = new LinkedHashMap<>();
+        for (Node node : nodes) {
+            ensureSameMetric(node);
+
+            for (Node child : node.children()) {
+                childrenByName.computeIfAbsent(child.getName(), name -> new ArrayList<>()).add(child);
+            }
+        }
+        for (List<Node> matching : childrenByName.values()) {
+            addChild(mergeAll(matching));
+        }
+    }
+
+    void ensureSameMetric(final Node other) {
         if (getMetric() != other.getMetric()) {
             throw new IllegalArgumentException(
                     String.format("Cannot merge nodes of different metrics: %s - %s", this, other));
@@ -711,24 +1029,193 @@ public abstract class Node implements Serializable {
 
         removeValues(); // clear all values
 
-        other.getChildren().forEach(otherChild -> {
-            Optional<Node> existingChild = getChildren().stream()
-                    .filter(c -> c.getName().equals(otherChild.getName())).findFirst();
-            if (existingChild.isPresent()) {
-                existingChild.get().mergeNode(otherChild);
+        var existingChildren = getChildrenByName();
+        for (Node otherChild : other.children()) {
+            var existingChild = existingChildren.get(otherChild.getName());
+            if (existingChild == null) {
+                addChild(otherChild.copyTree());
             }
             else {
-                addChild(otherChild.copyTree());
+                existingChild.mergeNode(otherChild);
             }
-        });
+        }
     }
 
     void removeValues() {
-        values.clear();
+        ensureMutable();
+
+        metricValues.clear();
+
+        invalidateValues();
     }
 
+    @SuppressWarnings("PMD.NullAssignment") // the index will be recreated on demand
     void removeChildren() {
+        ensureMutable();
+
+        pendingChildren = null;
         children.clear();
+        childrenByName = null;
+
+        invalidateIndex();
+        invalidateValues();
+    }
+
+    /**
+     * Creates an immutable snapshot of the tree with this node as root. The snapshot is a deep copy of the tree that
+     * rejects all modifications with an {@link UnsupportedOperationException}. While freezing, the aggregated values of
+     * all nodes are computed in a single traversal, the hash codes of all nodes are computed, the children indexes are
+     * replaced with compact immutable maps, and the lists of children are trimmed. Reading a snapshot
+     * therefore does not modify any cached state.
+     * Once the snapshot has been published safely (e.g., by a {@code final} or {@code volatile} field or a concurrent
+     * collection), any number of threads can read it without locking or copying. Copies and deserialized instances
+     * of a snapshot are mutable again.
+     *
+     * @return the root of the frozen snapshot, or this node if it already is the root of a frozen snapshot
+     */
+    public Node freeze() {
+        if (frozen && isRoot()) {
+            return this; // already a snapshot
+        }
+
+        return createSnapshot(new NodeVisitor() { });
+    }
+
+    /**
+     * Creates an immutable snapshot of the tree with this node as root, see {@link #freeze()}. The specified visitor
+     * visits the copied tree before it is frozen, so it can still modify the copied nodes.
+     *
+     * @param preparation
+     *         the visitor that prepares the copied nodes
+     *
+     * @return the root of the frozen snapshot
+     */
+    Node createSnapshot(final NodeVisitor preparation) {
+        var snapshot = copyTree();
+        snapshot.accept(preparation);
+        new TreeAggregator().aggregateAll(snapshot);
+        snapshot.freezeTree();
+        return snapshot;
+    }
+
+    private void freezeTree() {
+        children().forEach(Node::freezeTree);
+
+        childrenByName = Map.copyOf(getChildrenByName());
+        trimToSize(children());
+        cacheContentHash(); // the hash codes of the children are already cached
+        frozen = true;
+    }
+
+    private static void trimToSize(final List<?> list) {
+        if (list instanceof ArrayList) {
+            ((ArrayList<?>) list).trimToSize();
+        }
+    }
+
+    /**
+     * Returns whether this node is part of a snapshot that has been created by {@link #freeze()}.
+     *
+     * @return {@code true} if this node cannot be modified anymore, {@code false} otherwise
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Ensures that this node is not part of a frozen snapshot. Subclasses need to call this method before modifying
+     * any of their properties.
+     *
+     * @throws UnsupportedOperationException
+     *         if this node is frozen
+     */
+    protected void ensureMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException(
+                    String.format("The node %s is part of a frozen snapshot and cannot be modified", this));
+        }
+    }
+
+    /**
+     * Discards the index of the {@code find} methods of this node and all of its parents. This method needs to be
+     * called whenever the structure of the tree or a property that is used by {@link #matches(Metric, String)}
+     * changes. The caches of frozen nodes never change, so the walk stops at the first frozen node.
+     */
+    @SuppressWarnings("PMD.NullAssignment") // the index will be recreated on demand
+    void invalidateIndex() {
+        for (Node node = this; node != null && !node.frozen; node = node.parent) {
+            node.index = null;
+            node.contentHash = 0;
+        }
+    }
+
+    /**
+     * Discards the aggregated values of this node and all of its parents. This method needs to be called whenever a
+     * value in the tree or the structure of the tree changes. The walk stops at the first frozen node.
+     */
+    @SuppressWarnings("PMD.NullAssignment") // the values will be recomputed on demand
+    void invalidateValues() {
+        for (Node node = this; node != null && !node.frozen; node = node.parent) {
+            node.aggregatedValues = null;
+            node.contentHash = 0;
+        }
+    }
+
+    /**
+     * Discards the cached hash code of this node and all of its parents. Subclasses need to call this method whenever
+     * a property that is used by {@link #computeContentHash()} changes. The walk stops at the first frozen node.
+     */
+    protected void invalidateHashCode() {
+        for (Node node = this; node != null && !node.frozen; node = node.parent) {
+            node.contentHash = 0;
+        }
+    }
+
+    /**
+     * Returns the index that contains this node. This is the index of the nearest node on the path to the root that has
+     * a valid index containing this node, usually the index of the root of the tree. If there is no such index, e.g.,
+     * since the tree has been modified after the last lookup, then an index for the subtree of this node is created. So
+     * a lookup in a small subtree never needs to index the whole tree. A copy that has been linked to a parent that
+     * does not contain the copy as a child (see {@link #copyTree(Node)}) uses an index of its own as well.
+     *
+     * @return the index
+     */
+    private NodeIndex getIndex() {
+        for (Node node = this; node != null; node = node.parent) {
+            var current = node.index;
+            if (current != null && current.contains(this)) {
+                return current;
+            }
+        }
+        return getOrCreateIndex();
+    }
+
+    private NodeIndex getOrCreateIndex() {
+        var current = index;
+        if (current == null) {
+            current = new NodeIndex(this);
+            index = current;
+        }
+        return current;
+    }
+
+    private void writeObject(final ObjectOutputStream output) throws IOException {
+        children(); // the children of a lazy view need to be created before the view is serialized
+
+        output.defaultWriteObject();
+    }
+
+    @SuppressWarnings("PMD.NullAssignment") // the values of an old serialization have been converted
+    private void readObject(final ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+
+        if (metricValues == null) {
+            metricValues = new MetricValues();
+        }
+        if (values != null) {
+            values.forEach(metricValues::put);
+        }
+        values = null;
     }
 
     @Override
@@ -740,13 +1227,72 @@ public abstract class Node implements Serializable {
             return false;
         }
         Node node = (Node) o;
+        if (getContentHash() != node.getContentHash()) {
+            return false; // the hashes are cached, so different trees are detected without visiting the subtrees
+        }
         return Objects.equals(metric, node.metric) && Objects.equals(name, node.name)
-                && Objects.equals(children, node.children) && Objects.equals(values, node.values);
+                && Objects.equals(children(), node.children()) && Objects.equals(metricValues, node.metricValues);
     }
 
+    /**
+     * Returns the hash code of the subtree of this node. The hash code is derived from the {@link #getContentHash()
+     * content hash}, so subclasses need to override {@link #computeContentHash()} rather than this method.
+     *
+     * @return the hash code of the subtree
+     */
     @Override
-    public int hashCode() {
-        return Objects.hash(metric, name, children, values);
+    public final int hashCode() {
+        return Long.hashCode(getContentHash());
+    }
+
+    /**
+     * Returns the 64-bit content hash of the subtree of this node. The hash combines the state of this node with the
+     * content hashes of the children (i.e., it is a Merkle hash), so two subtrees with the same content have the same
+     * hash. Since the hash is wide and well mixed, two subtrees with the same hash have the same content with a
+     * probability of about 1 - 2<sup>-64</sup>: so unchanged subtrees can be detected by comparing the hashes only,
+     * see {@link TreeDiff}. The order of the children does not change the hash. The hash is computed by
+     * {@link #computeContentHash()} and cached until this node or a node of the subtree changes.
+     *
+     * @return the content hash of the subtree
+     */
+    public long getContentHash() {
+        cacheContentHash();
+        return contentHash;
+    }
+
+    /**
+     * Computes the hash of the subtree of this node if it is not cached yet.
+     */
+    void cacheContentHash() {
+        if (contentHash == 0) {
+            long hash = computeContentHash();
+            contentHash = hash == 0 ? 1 : hash; // 0 marks a hash that has not been computed yet
+        }
+    }
+
+    /**
+     * Computes the content hash of the subtree of this node. Since the hashes of the children are cached as well,
+     * only the nodes that have been changed since the last computation are visited. The hashes of the children are
+     * sorted before they are combined, so the result does not depend on the order of the children. Subclasses that
+     * compare additional properties in {@link #equals(Object)} need to mix these properties into the result of this
+     * method.
+     *
+     * @return the content hash of the subtree
+     */
+    protected long computeContentHash() {
+        var hash = new ContentHash().add(metric).add(name).add(metricValues);
+
+        var nodes = Objects.requireNonNullElse(children(), List.<Node>of()); // null while EqualsVerifier runs
+        var childHashes = new long[nodes.size()];
+        for (int i = 0; i < childHashes.length; i++) {
+            childHashes[i] = nodes.get(i).getContentHash();
+        }
+        Arrays.sort(childHashes);
+        hash.add(childHashes.length);
+        for (long childHash : childHashes) {
+            hash.add(childHash);
+        }
+        return hash.get();
     }
 
     @Override
@@ -754,11 +1300,11 @@ public abstract class Node implements Serializable {
         return getValue(Metric.LINE)
                 .map(lineCoverage -> String.format("[%s] %s <%d, %s>",
                         getMetric(), getName(), getChildren().size(), lineCoverage))
-                .orElse(String.format("[%s] %s <%d>", getMetric(), getName(), children.size()));
+                .orElse(String.format("[%s] %s <%d>", getMetric(), getName(), children().size()));
     }
 
     public boolean isEmpty() {
-        return getChildren().isEmpty() && getValues().isEmpty();
+        return getChildren().isEmpty() && metricValues.isEmpty();
     }
 
     /**
@@ -814,6 +1360,90 @@ public abstract class Node implements Serializable {
         return filterTreeByMapping(Node::filterTreeByIndirectChanges);
     }
 
+    /**
+     * Creates a lazy view of the coverage tree that represents the modified lines coverage. The view contains the same
+     * elements as the tree that is created by {@link #filterByModifiedLines()}. However, the children of a node in the
+     * view are created only when they are accessed for the first time, and aggregated values are computed only when
+     * they are requested. So reading the values of the root or of a few files does not copy the whole tree. The view
+     * reads the nodes of this tree on demand, so this tree must not be modified while the view is in use (e.g.,
+     * create the view from a {@link #freeze() frozen} tree).
+     *
+     * @return the root of the lazy view
+     */
+    public Node viewByModifiedLines() {
+        return createView(FileNode::hasCoveredAndModifiedLines, FileNode::filterTreeByModifiedLines);
+    }
+
+    /**
+     * Creates a lazy view of the coverage tree that represents the modified files coverage. The view contains the
+     * same elements as the tree that is created by {@link #filterByModifiedFiles()}. The children of the view are
+     * created on demand, see {@link #viewByModifiedLines()} for details.
+     *
+     * @return the root of the lazy view
+     */
+    public Node viewByModifiedFiles() {
+        return createView(FileNode::hasCoveredAndModifiedLines, FileNode::filterTreeByModifiedFiles);
+    }
+
+    /**
+     * Creates a lazy view of the coverage tree that shows indirect coverage changes. The view contains the same
+     * elements as the tree that is created by {@link #filterByIndirectChanges()}. The children of the view are created
+     * on demand, see {@link #viewByModifiedLines()} for details.
+     *
+     * @return the root of the lazy view
+     */
+    public Node viewByIndirectChanges() {
+        return createView(FileNode::hasIndirectCoverageChanges, FileNode::filterTreeByIndirectChanges);
+    }
+
+    private Node createView(final Predicate<FileNode> isRetained,
+            final Function<FileNode, Optional<Node>> fileFilter) {
+        return createView(isRetained, fileFilter, this).orElse(copy());
+    }
+
+    /**
+     * Creates a lazy view of the specified node. Files are filtered with the given filter function, all other nodes
+     * are copied if their subtree contains a retained file. The children of a copied node are created on demand.
+     *
+     * @param isRetained
+     *         determines whether a file is part of the view, must match the result of the filter function
+     * @param fileFilter
+     *         the function that filters a file
+     * @param node
+     *         the node to create the view for
+     *
+     * @return the view of the node, or an empty result if the subtree of the node contains no retained files
+     */
+    private static Optional<Node> createView(final Predicate<FileNode> isRetained,
+            final Function<FileNode, Optional<Node>> fileFilter, final Node node) {
+        if (node instanceof FileNode) {
+            var file = (FileNode) node;
+            return isRetained.test(file) ? fileFilter.apply(file) : Optional.empty();
+        }
+        if (!containsRetainedFile(isRetained, node)) {
+            return Optional.empty();
+        }
+
+        var view = node.copy();
+        view.pendingChildren = () -> node.children().stream()
+                .map(child -> createView(isRetained, fileFilter, child))
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+        return Optional.of(view);
+    }
+
+    private static boolean containsRetainedFile(final Predicate<FileNode> isRetained, final Node node) {
+        if (node instanceof FileNode) {
+            return isRetained.test((FileNode) node);
+        }
+        for (Node child : node.children()) {
+            if (containsRetainedFile(isRetained, child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Filters a coverage tree by the given mapping function.
      *
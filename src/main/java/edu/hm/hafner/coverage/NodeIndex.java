@@ -0,0 +1,241 @@
+package edu.hm.hafner.coverage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+/**
+ * An index of all nodes of the tree that is spanned by a given root node. The index answers the lookups of
+ * {@link Node#find(Metric, String)}, {@link Node#findByHashCode(Metric, int)}, and
+ * {@link Node#findMethod(String, String)} for the root and for all other nodes of the tree, so a tree needs a single
+ * index only. The nodes are numbered in the order of a depth-first traversal, so the subtree of a node is a contiguous
+ * range of positions. For each key, the index stores the ascending positions of all matching nodes: a lookup in a
+ * subtree returns the first position within the range of the subtree, found by a binary search. If several nodes match
+ * a lookup, then the node that is visited first in a depth-first traversal of the subtree is returned, i.e., the same
+ * node a recursive search of the subtree would return.
+ * <p>
+ * A child that is appended as the last child of a node on the last path of the depth-first traversal (e.g., a new
+ * file in the package that has been created last) does not change the positions of the other nodes: the index is
+ * extended in place, see {@link #append(Node, Node)}. So building a tree by appending nodes does not require to
+ * recreate the index after every insertion. All other changes of the structure of the tree, the names of the nodes,
+ * or the relative paths of the files require to recreate the index. The index of a {@link Node#freeze() frozen} tree
+ * never changes.
+ * </p>
+ *
+ * @author Ullrich Hafner
+ */
+final class NodeIndex {
+    private final List<Node> nodes = new ArrayList<>();
+    private final IdentityHashMap<Node, Integer> positions = new IdentityHashMap<>();
+    private final Positions subtreeEnds = new Positions();
+
+    private final Map<Metric, Map<String, Positions>> byName = new EnumMap<>(Metric.class);
+    private final Map<Metric, Map<Integer, Positions>> byNameHashCode = new EnumMap<>(Metric.class);
+    private final Map<String, Positions> byRelativePath = new HashMap<>();
+    private final Map<Integer, Positions> byRelativePathHashCode = new HashMap<>();
+    private final Map<ImmutablePair<String, String>, Positions> methods = new HashMap<>();
+
+    /**
+     * Creates an index for the tree that is spanned by the specified node.
+     *
+     * @param root
+     *         the root of the tree
+     */
+    NodeIndex(final Node root) {
+        add(root);
+    }
+
+    private void add(final Node node) {
+        int position = nodes.size();
+        nodes.add(node);
+        positions.put(node, position);
+        subtreeEnds.add(position);
+
+        var metric = node.getMetric();
+        var name = node.getName();
+        addPosition(byName.computeIfAbsent(metric, m -> new HashMap<>()), name, position);
+        addPosition(byNameHashCode.computeIfAbsent(metric, m -> new HashMap<>()), name.hashCode(), position);
+        if (node instanceof FileNode) {
+            var relativePath = ((FileNode) node).getRelativePath();
+            addPosition(byRelativePath, relativePath, position);
+            addPosition(byRelativePathHashCode, relativePath.hashCode(), position);
+        }
+        else if (node instanceof MethodNode) {
+            var method = (MethodNode) node;
+            addPosition(methods, new ImmutablePair<>(method.getMethodName(), method.getSignature()), position);
+        }
+
+        node.getChildren().forEach(this::add);
+
+        subtreeEnds.set(position, nodes.size());
+    }
+
+    /**
+     * Appends the subtree of the specified child to this index. The child must have been added as the last child of
+     * the specified parent. The index can be extended in place only if the subtree of the parent is the last range of
+     * positions in this index, otherwise the positions of the following nodes would change.
+     *
+     * @param parent
+     *         the parent of the child
+     * @param child
+     *         the child that has been added
+     *
+     * @return {@code true} if the child has been added to this index, {@code false} if this index needs to be
+     *         recreated
+     */
+    boolean append(final Node parent, final Node child) {
+        var parentPosition = positions.get(parent);
+        if (parentPosition == null || subtreeEnds.get(parentPosition) != nodes.size()) {
+            return false;
+        }
+
+        add(child);
+
+        int end = nodes.size();
+        for (Node node = parent; node != null; node = node.hasParent() ? node.getParent() : null) {
+            var position = positions.get(node);
+            if (position == null) {
+                break; // the root of this index has been reached
+            }
+            subtreeEnds.set(position, end);
+        }
+        return true;
+    }
+
+    private static <K> void addPosition(final Map<K, Positions> map, final K key, final int position) {
+        map.computeIfAbsent(key, k -> new Positions()).add(position);
+    }
+
+    /**
+     * Returns whether the specified node is part of the indexed tree.
+     *
+     * @param node
+     *         the node to check
+     *
+     * @return {@code true} if the node is part of the indexed tree, {@code false} otherwise
+     */
+    boolean contains(final Node node) {
+        return positions.containsKey(node);
+    }
+
+    /**
+     * Finds the node with the specified metric and name in the subtree of the specified node. File nodes match by
+     * name or by relative path, see {@link FileNode#matches(Metric, String)}.
+     *
+     * @param subtree
+     *         the root of the subtree to search in, must be part of the indexed tree
+     * @param metric
+     *         the metric of the node
+     * @param name
+     *         the name of the node
+     *
+     * @return the node or an empty result, if no such node exists
+     */
+    Optional<Node> find(final Node subtree, final Metric metric, final String name) {
+        return first(subtree, byName.getOrDefault(metric, Map.of()).get(name), byRelativePath.get(name));
+    }
+
+    /**
+     * Finds the node with the specified metric and name hash code in the subtree of the specified node. File nodes
+     * match by the hash code of the name or the relative path, see {@link FileNode#matches(Metric, int)}.
+     *
+     * @param subtree
+     *         the root of the subtree to search in, must be part of the indexed tree
+     * @param metric
+     *         the metric of the node
+     * @param nameHashCode
+     *         the hash code of the name of the node
+     *
+     * @return the node or an empty result, if no such node exists
+     */
+    Optional<Node> findByHashCode(final Node subtree, final Metric metric, final int nameHashCode) {
+        return first(subtree, byNameHashCode.getOrDefault(metric, Map.of()).get(nameHashCode),
+                byRelativePathHashCode.get(nameHashCode));
+    }
+
+    /**
+     * Finds the method with the specified name and signature in the subtree of the specified node.
+     *
+     * @param subtree
+     *         the root of the subtree to search in, must be part of the indexed tree
+     * @param methodName
+     *         the name of the method
+     * @param signature
+     *         the signature of the method
+     *
+     * @return the method or an empty result, if no such method exists
+     */
+    Optional<MethodNode> findMethod(final Node subtree, final String methodName, final String signature) {
+        return first(subtree, methods.get(new ImmutablePair<>(methodName, signature)), null)
+                .map(MethodNode.class::cast);
+    }
+
+    private Optional<Node> first(final Node subtree,
+            @CheckForNull final Positions candidates, @CheckForNull final Positions otherCandidates) {
+        int start = Objects.requireNonNull(positions.get(subtree),
+                () -> String.format("The node '%s' is not part of the indexed tree", subtree));
+        int end = subtreeEnds.get(start);
+
+        int position = candidates == null ? end : candidates.firstInRange(start, end);
+        int otherPosition = otherCandidates == null ? end : otherCandidates.firstInRange(start, end);
+        int first = Math.min(position, otherPosition);
+        if (first < end) {
+            return Optional.of(nodes.get(first));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * A growable list of int values. The positions that are stored for a key are added in ascending order.
+     */
+    private static final class Positions {
+        private int[] values = new int[1];
+        private int size;
+
+        void add(final int position) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = position;
+        }
+
+        int get(final int index) {
+            return values[index];
+        }
+
+        void set(final int index, final int value) {
+            values[index] = value;
+        }
+
+        /**
+         * Returns the first position in the range {@code [start, end)}.
+         *
+         * @param start
+         *         the first position of the range
+         * @param end
+         *         the end of the range (exclusive)
+         *
+         * @return the first position in the range, or {@code end} if there is no such position
+         */
+        int firstInRange(final int start, final int end) {
+            int index = Arrays.binarySearch(values, 0, size, start);
+            if (index < 0) {
+                index = -(index + 1);
+            }
+            if (index < size && values[index] < end) {
+                return values[index];
+            }
+            return end;
+        }
+    }
+}
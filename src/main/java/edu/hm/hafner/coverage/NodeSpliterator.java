@@ -0,0 +1,108 @@
+package edu.hm.hafner.coverage;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+/**
+ * A {@link Spliterator} that traverses the nodes of a subtree in pre-order and reports the nodes of a given metric.
+ * The traversal uses a single stack of the subtrees that still need to be visited, so no lists are created for the
+ * individual levels of the tree. A split hands over the first half of the pending subtrees to the new spliterator.
+ * If only a single subtree is pending, then its root is expanded first so that its children can be split.
+ *
+ * @author Ullrich Hafner
+ */
+final class NodeSpliterator implements Spliterator<Node> {
+    private final Metric metric;
+    /** The subtrees that still need to be visited, the next subtree is at the head. */
+    private final Deque<Node> pending = new ArrayDeque<>();
+    /** A node whose children have been pushed to the stack already, but which itself has not been reported yet. */
+    @CheckForNull
+    private Node expanded;
+    private long estimate;
+
+    /**
+     * Creates a new spliterator for the subtree of the specified node.
+     *
+     * @param root
+     *         the root of the subtree
+     * @param metric
+     *         the metric of the nodes to report
+     */
+    NodeSpliterator(final Node root, final Metric metric) {
+        this(metric, Long.MAX_VALUE);
+
+        pending.push(root);
+    }
+
+    private NodeSpliterator(final Metric metric, final long estimate) {
+        this.metric = metric;
+        this.estimate = estimate;
+    }
+
+    @Override
+    @SuppressWarnings("PMD.NullAssignment") // the expanded node has been reported
+    public boolean tryAdvance(final Consumer<? super Node> action) {
+        while (true) {
+            Node node;
+            if (expanded != null) {
+                node = expanded;
+                expanded = null;
+            }
+            else if (pending.isEmpty()) {
+                return false;
+            }
+            else {
+                node = pending.pop();
+                pushChildren(node);
+            }
+            if (node.getMetric() == metric) {
+                action.accept(node);
+                return true;
+            }
+        }
+    }
+
+    private void pushChildren(final Node node) {
+        List<Node> children = node.getChildrenView();
+        for (int i = children.size() - 1; i >= 0; i--) {
+            pending.push(children.get(i));
+        }
+    }
+
+    @Override
+    @CheckForNull
+    @SuppressWarnings("PMD.NullAssignment") // the expanded node is reported by the prefix
+    public Spliterator<Node> trySplit() {
+        if (expanded == null && pending.size() == 1) {
+            expanded = pending.pop();
+            pushChildren(expanded);
+        }
+        if (pending.size() < 2) {
+            return null;
+        }
+
+        estimate >>>= 1;
+        var prefix = new NodeSpliterator(metric, estimate);
+        prefix.expanded = expanded;
+        expanded = null;
+        for (int i = pending.size() / 2; i > 0; i--) {
+            prefix.pending.addLast(pending.pop());
+        }
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return estimate;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL;
+    }
+}
@@ -0,0 +1,33 @@
+package edu.hm.hafner.coverage;
+
+/**
+ * A visitor for the nodes of a coverage tree, see {@link Node#accept(NodeVisitor)}. The nodes are visited in
+ * depth-first order: {@link #enter(Node)} is called before the children of a node are visited (pre-order) and
+ * {@link #leave(Node)} is called after all children of the node have been visited (post-order). The visitor can skip
+ * the subtree of a node by returning {@code false} in {@link #enter(Node)}.
+ *
+ * @author Ullrich Hafner
+ */
+public interface NodeVisitor {
+    /**
+     * Called before the children of the specified node are visited.
+     *
+     * @param node
+     *         the visited node
+     *
+     * @return {@code true} if the children of the node should be visited, {@code false} to skip the subtree
+     */
+    default boolean enter(final Node node) {
+        return true;
+    }
+
+    /**
+     * Called after the children of the specified node have been visited or skipped.
+     *
+     * @param node
+     *         the visited node
+     */
+    default void leave(final Node node) {
+        // empty default implementation
+    }
+}
@@ -0,0 +1,301 @@
+package edu.hm.hafner.coverage;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+/**
+ * Stores the line counters of the files of frozen coverage trees outside the Java heap. The counters are written to
+ * slabs of direct memory ({@link ByteBuffer#allocateDirect(int) direct byte buffers}) and are read through the
+ * existing accessors of {@link FileNode}. Keeping the line data of many trees resident (e.g., the trees of the last
+ * builds) then does not increase the heap that needs to be scanned by the garbage collector.
+ * <p>
+ * Each snapshot that is created by {@link #freeze(Node)} gets its own slabs. Releasing a snapshot with
+ * {@link #release(Node)} frees the memory of its slabs deterministically, i.e., without waiting for the garbage
+ * collector: every read of the line counters holds the {@link ReadGuard} of the snapshot, so the slabs are freed
+ * immediately if no thread reads the snapshot, otherwise as soon as the last reader has finished. After the release,
+ * the line counters of the snapshot cannot be accessed anymore, any new access fails with an
+ * {@link IllegalStateException}. The slabs are never reused for another snapshot. If the running JVM does not provide
+ * the cleaner of direct buffers (see {@link #isExplicitFreeSupported()}), the slabs are left to the garbage collector.
+ * </p>
+ * <p>
+ * This storage covers the line counters only, i.e., the covered and missed items per line of
+ * {@link FileNode#getCoveredCounters()} and {@link FileNode#getMissedCounters()}. The modified lines and the indirect
+ * coverage changes of the files stay on the heap: they cover the lines of a change set only, so they are usually much
+ * smaller than the line counters.
+ * </p>
+ *
+ * @author Ullrich Hafner
+ */
+public final class OffHeapLineCounterStorage implements AutoCloseable {
+    /** The default size of a slab in bytes. */
+    public static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+    /** Frees the memory of a direct buffer, {@code null} if the JVM does not provide such a cleaner. */
+    @CheckForNull
+    private static final MethodHandle INVOKE_CLEANER = findCleaner();
+
+    private final int slabSize;
+    private final IdentityHashMap<Node, Arena> arenas = new IdentityHashMap<>();
+    private boolean closed;
+
+    /**
+     * Creates a new {@link OffHeapLineCounterStorage} with slabs of the default size.
+     */
+    public OffHeapLineCounterStorage() {
+        this(DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Creates a new {@link OffHeapLineCounterStorage}.
+     *
+     * @param slabSize
+     *         the size of a slab in bytes, the counters of files that do not fit into a slab get a buffer of their own
+     */
+    public OffHeapLineCounterStorage(final int slabSize) {
+        if (slabSize < 1) {
+            throw new IllegalArgumentException("The slab size must be positive: " + slabSize);
+        }
+
+        this.slabSize = slabSize;
+    }
+
+    /**
+     * Creates an immutable snapshot of the tree with the specified node as root, see {@link Node#freeze()}. The line
+     * counters of all files of the snapshot are stored in the slabs of this storage.
+     *
+     * @param root
+     *         the root of the tree
+     *
+     * @return the root of the frozen snapshot
+     * @throws IllegalStateException
+     *         if this storage has been closed
+     */
+    public synchronized Node freeze(final Node root) {
+        ensureOpen();
+
+        var arena = new Arena();
+        var snapshot = root.createSnapshot(new NodeVisitor() {
+            @Override
+            public boolean enter(final Node node) {
+                if (node instanceof FileNode) {
+                    arena.store(((FileNode) node).getLineCounters());
+                    return false;
+                }
+                return true;
+            }
+        });
+        arenas.put(snapshot, arena);
+        return snapshot;
+    }
+
+    /**
+     * Releases the memory of the line counters of the specified snapshot. The memory is freed immediately if no other
+     * thread currently reads the line counters of the snapshot, otherwise as soon as the last of these reads has
+     * finished. Afterward, the line counters of the files of the snapshot cannot be read anymore, all other properties
+     * of the nodes are still available.
+     *
+     * @param snapshot
+     *         the root of a snapshot that has been created by {@link #freeze(Node)}
+     *
+     * @throws IllegalArgumentException
+     *         if the snapshot has not been created by this storage or has been released already
+     */
+    public synchronized void release(final Node snapshot) {
+        var arena = arenas.remove(snapshot);
+        if (arena == null) {
+            throw new IllegalArgumentException(
+                    String.format("The node %s is not a snapshot of this storage", snapshot));
+        }
+        arena.release();
+    }
+
+    /**
+     * Returns the number of bytes of direct memory that are used by the snapshots of this storage.
+     *
+     * @return the number of used bytes
+     */
+    public synchronized long getUsedBytes() {
+        return arenas.values().stream().mapToLong(Arena::getCapacity).sum();
+    }
+
+    /**
+     * Releases all snapshots.
+     */
+    @Override
+    public synchronized void close() {
+        arenas.values().forEach(Arena::release);
+        arenas.clear();
+        closed = true;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("The storage has been closed");
+        }
+    }
+
+    /**
+     * Returns whether the memory of released snapshots is freed explicitly. Otherwise, the memory is returned to the
+     * operating system when the garbage collector discards the slabs.
+     *
+     * @return {@code true} if the memory is freed explicitly, {@code false} if it is freed by the garbage collector
+     */
+    public static boolean isExplicitFreeSupported() {
+        return INVOKE_CLEANER != null;
+    }
+
+    @CheckForNull
+    @SuppressWarnings("PMD.AvoidAccessibilityAlteration") // the cleaner of direct buffers is not part of the public API
+    private static MethodHandle findCleaner() {
+        try {
+            var unsafeClass = Class.forName("sun.misc.Unsafe");
+            var field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        }
+        catch (ReflectiveOperationException | RuntimeException exception) {
+            return null; // the slabs will be freed by the garbage collector
+        }
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private static void free(final ByteBuffer slab) {
+        var cleaner = INVOKE_CLEANER;
+        if (cleaner != null) {
+            try {
+                cleaner.invokeExact(slab);
+            }
+            catch (Throwable exception) { // NOPMD: invokeExact declares Throwable
+                throw new IllegalStateException("Cannot free the memory of a slab", exception);
+            }
+        }
+    }
+
+    /**
+     * Guards the slabs of a snapshot against being freed while they are read. Readers {@link #enter() enter} the guard
+     * before they read a slab and {@link #exit() exit} it afterward. The slabs are freed by the thread that
+     * {@link #close() closes} the guard if there are no readers, otherwise by the last reader that exits the guard.
+     * The state is a single atomic integer: the lower bits count the readers, the sign bit marks a closed guard.
+     */
+    static final class ReadGuard {
+        private static final int CLOSED = Integer.MIN_VALUE;
+
+        private final AtomicInteger state = new AtomicInteger();
+        private final Runnable onFree;
+
+        ReadGuard(final Runnable onFree) {
+            this.onFree = onFree;
+        }
+
+        /**
+         * Registers a reader of the slabs.
+         *
+         * @return {@code true} if the slabs can be read until {@link #exit()} is called, {@code false} if the guard has
+         *         been closed
+         */
+        boolean enter() {
+            while (true) {
+                int current = state.get();
+                if ((current & CLOSED) != 0) {
+                    return false;
+                }
+                if (state.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Unregisters a reader of the slabs. The last reader of a closed guard frees the slabs.
+         */
+        void exit() {
+            if (state.decrementAndGet() == CLOSED) {
+                onFree.run();
+            }
+        }
+
+        /**
+         * Closes this guard so that no new readers are accepted. The slabs are freed immediately if there are no
+         * readers, otherwise by the last reader.
+         */
+        void close() {
+            int previous = state.getAndUpdate(current -> current | CLOSED);
+            if (previous == 0) {
+                onFree.run();
+            }
+        }
+    }
+
+    /**
+     * The slabs of a single snapshot. Regions of the slabs are allocated sequentially, the slabs are freed when the
+     * snapshot is released and no thread reads them anymore.
+     */
+    private final class Arena {
+        private final List<ByteBuffer> slabs = new ArrayList<>();
+        private final List<ByteBuffer> largeBuffers = new ArrayList<>();
+        private final ReadGuard guard = new ReadGuard(this::free);
+        @CheckForNull
+        private ByteBuffer current;
+        private int position;
+
+        void store(final CountersPerLine lineCounters) {
+            int bytes = lineCounters.getSizeInBytes();
+            if (bytes == 0) {
+                return; // nothing to store
+            }
+
+            lineCounters.moveTo(allocate(bytes), guard);
+        }
+
+        private ByteBuffer allocate(final int bytes) {
+            if (bytes > slabSize) {
+                var buffer = ByteBuffer.allocateDirect(bytes);
+                largeBuffers.add(buffer);
+                return buffer;
+            }
+            var slab = current;
+            if (slab == null || position + bytes > slabSize) {
+                slab = ByteBuffer.allocateDirect(slabSize);
+                slabs.add(slab);
+                current = slab;
+                position = 0;
+            }
+            var region = slab.duplicate();
+            region.position(position).limit(position + bytes);
+            position += bytes;
+            return region.slice();
+        }
+
+        long getCapacity() {
+            return (long) slabs.size() * slabSize
+                    + largeBuffers.stream().mapToLong(ByteBuffer::capacity).sum();
+        }
+
+        void release() {
+            guard.close();
+        }
+
+        /**
+         * Frees the memory of all slabs. This method is called exactly once by the {@link ReadGuard} when the snapshot
+         * has been released and no thread reads the slabs anymore.
+         */
+        @SuppressWarnings("PMD.NullAssignment") // the arena cannot be used anymore
+        private void free() {
+            slabs.forEach(OffHeapLineCounterStorage::free);
+            largeBuffers.forEach(OffHeapLineCounterStorage::free);
+            slabs.clear();
+            largeBuffers.clear();
+            current = null;
+        }
+    }
+}
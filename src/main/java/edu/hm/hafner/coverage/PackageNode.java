@@ -41,11 +41,6 @@ public final class PackageNode extends Node {
         super(Metric.PACKAGE, normalizePackageName(name));
     }
 
-    static PackageNode appendPackage(final PackageNode localChild, final PackageNode localParent) {
-        localParent.addChild(localChild);
-        return localParent;
-    }
-
     @Override
     public PackageNode copy() {
         return new PackageNode(getName());
@@ -68,8 +63,11 @@ public final class PackageNode extends Node {
     }
 
     /**
-     * Searches for the specified file node. If the file node is not found then a new file node will be created and
-     * linked to this package node.
+     * Searches for the specified file node in the whole subtree of this package. If the file node is not found then a
+     * new file node will be created and linked to this package node. The children of this package are looked up first
+     * using an index in constant time, the remaining subtree is searched only if no child matches. This search uses the
+     * index of {@link #find(Metric, String)} that is extended in place when a new node is appended, so it is not
+     * recreated after each created node.
      *
      * @param fileName
      *         the file name
@@ -78,23 +76,72 @@ public final class PackageNode extends Node {
      *
      * @return the existing or created file node
      * @see #createFileNode(String, TreeString)
+     * @see #findOrCreateChildFileNode(String, TreeString)
      */
     public FileNode findOrCreateFileNode(final String fileName, final TreeString relativePath) {
-        return findFile(fileName).orElseGet(() -> createFileNode(fileName, relativePath));
+        return findChild(Metric.FILE, fileName)
+                .map(FileNode.class::cast)
+                .or(() -> findFile(fileName))
+                .orElseGet(() -> createFileNode(fileName, relativePath));
+    }
+
+    /**
+     * Searches for the specified file node in the children of this package. If the file node is not found then a new
+     * file node will be created and linked to this package node. In contrast to
+     * {@link #findOrCreateFileNode(String, TreeString)} the subtree of the children is not searched, so the lookup
+     * takes constant time. Use this method to build a tree where files are always direct children of packages.
+     *
+     * @param fileName
+     *         the file name
+     * @param relativePath
+     *         the relative path of the file
+     *
+     * @return the existing or created file node
+     * @see #createFileNode(String, TreeString)
+     */
+    public FileNode findOrCreateChildFileNode(final String fileName, final TreeString relativePath) {
+        return findChild(Metric.FILE, fileName)
+                .map(FileNode.class::cast)
+                .orElseGet(() -> createFileNode(fileName, relativePath));
     }
 
     /**
-     * Searches for the specified class node. If the class node is not found then a new class node will be created and
-     * linked to this file node.
+     * Searches for the specified class node in the whole subtree of this package, i.e., in the children of this
+     * package and in its files. If the class node is not found then a new class node will be created and linked to
+     * this package node. The children of this package are looked up first using an index in constant time, the
+     * remaining subtree is searched only if no child matches. This search uses the index of
+     * {@link #find(Metric, String)} that is extended in place when a new node is appended, so it is not recreated
+     * after each created node.
      *
      * @param className
      *         the class name
      *
-     * @return the created and linked class node
+     * @return the existing or created class node
      * @see #createClassNode(String)
+     * @see #findOrCreateChildClassNode(String)
      */
     public ClassNode findOrCreateClassNode(final String className) {
-        return findClass(className).orElseGet(() -> createClassNode(className));
+        return findChild(Metric.CLASS, className)
+                .map(ClassNode.class::cast)
+                .or(() -> findClass(className))
+                .orElseGet(() -> createClassNode(className));
+    }
+
+    /**
+     * Searches for the specified class node in the children of this package. If the class node is not found then a new
+     * class node will be created and linked to this package node. In contrast to {@link #findOrCreateClassNode(String)}
+     * the classes of the files in this package are not searched, so the lookup takes constant time.
+     *
+     * @param className
+     *         the class name
+     *
+     * @return the existing or created class node
+     * @see #createClassNode(String)
+     */
+    public ClassNode findOrCreateChildClassNode(final String className) {
+        return findChild(Metric.CLASS, className)
+                .map(ClassNode.class::cast)
+                .orElseGet(() -> createClassNode(className));
     }
 
     /**
@@ -0,0 +1,240 @@
+package edu.hm.hafner.coverage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+/**
+ * Aggregates, filters, and merges large coverage trees in parallel. The work is split into tasks for the subtrees of
+ * the children of a node (i.e., modules, packages, and files) that are executed by a {@link ForkJoinPool}. Subtrees
+ * with fewer nodes than a given threshold are processed sequentially by a single task. The results are the same as the
+ * results of the corresponding sequential methods of {@link Node}.
+ * <p>
+ * The trees must not be modified while they are processed.
+ * </p>
+ *
+ * @author Ullrich Hafner
+ */
+public final class ParallelTreeProcessor {
+    /** The default number of nodes of a subtree below which the subtree is processed sequentially. */
+    public static final int DEFAULT_THRESHOLD = 10_000;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * Creates a new instance of {@link ParallelTreeProcessor} that uses the common pool and the default threshold.
+     */
+    public ParallelTreeProcessor() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Creates a new instance of {@link ParallelTreeProcessor}.
+     *
+     * @param pool
+     *         the pool that runs the tasks
+     * @param threshold
+     *         the number of nodes of a subtree below which the subtree is processed sequentially
+     */
+    public ParallelTreeProcessor(final ForkJoinPool pool, final int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("The threshold must be positive: " + threshold);
+        }
+
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Aggregates all values of the subtree that is spanned by the specified node. The result is the same as the result
+     * of {@link Node#aggregateValues()}. The aggregated values are stored in the cache of the node, so subsequent calls
+     * of {@link Node#getValue(Metric)} do not need to visit the subtree again.
+     *
+     * @param root
+     *         the root of the subtree
+     *
+     * @return aggregation of values below this tree
+     */
+    public List<Value> aggregateValues(final Node root) {
+        if (!root.isFrozen()) { // the values of a frozen tree have been aggregated already
+            root.setAggregatedValues(new TreeAggregator().aggregateInParallel(root, pool, threshold));
+        }
+        return root.aggregateValues();
+    }
+
+    /**
+     * Creates a new coverage tree that represents the modified lines coverage, see {@link Node#filterByModifiedLines()}.
+     *
+     * @param root
+     *         the root of the tree to filter
+     *
+     * @return the filtered tree
+     */
+    public Node filterByModifiedLines(final Node root) {
+        return filter(root, Node::filterTreeByModifiedLines);
+    }
+
+    /**
+     * Creates a new coverage tree that represents the modified files coverage, see {@link Node#filterByModifiedFiles()}.
+     *
+     * @param root
+     *         the root of the tree to filter
+     *
+     * @return the filtered tree
+     */
+    public Node filterByModifiedFiles(final Node root) {
+        return filter(root, Node::filterTreeByModifiedFiles);
+    }
+
+    /**
+     * Creates a new coverage tree that shows indirect coverage changes, see {@link Node#filterByIndirectChanges()}.
+     *
+     * @param root
+     *         the root of the tree to filter
+     *
+     * @return the filtered tree
+     */
+    public Node filterByIndirectChanges(final Node root) {
+        return filter(root, Node::filterTreeByIndirectChanges);
+    }
+
+    /**
+     * Creates a new tree of {@link Node nodes} that contains the merged nodes of the specified trees. The result is the
+     * same as the result of {@link Node#merge(List)}. The subtrees of children with the same name are merged by
+     * subtasks, unless the subtree is smaller than the threshold.
+     *
+     * @param nodes
+     *         the roots of the trees to merge
+     *
+     * @return a new tree with the merged {@link Node nodes}, or the node itself if the list contains a single node
+     * @throws IllegalArgumentException
+     *         if the list is empty or if nodes with the same name use different metrics
+     */
+    public Node merge(final List<? extends Node> nodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Cannot merge an empty list of nodes");
+        }
+        if (nodes.size() == 1) {
+            return nodes.get(0); // No merge required
+        }
+
+        Map<ImmutablePair<String, Metric>, ? extends List<? extends Node>> grouped = nodes.stream()
+                .collect(Collectors.groupingBy(n -> new ImmutablePair<>(n.getName(), n.getMetric())));
+        if (grouped.size() == 1) {
+            return pool.invoke(new MergeTask(nodes, threshold));
+        }
+
+        var container = new ContainerNode("Container"); // non-compatible nodes will be added to a new container node
+        for (List<? extends Node> matching : grouped.values()) {
+            container.addChild(merge(matching));
+        }
+        return container;
+    }
+
+    private Node filter(final Node root, final Function<Node, Optional<Node>> mappingFunction) {
+        return pool.invoke(new FilterTask(root, mappingFunction, threshold)).orElse(root.copy());
+    }
+
+    /**
+     * Merges nodes with the same name: the children with the same name are merged by subtasks, unless the subtree of
+     * the first node is smaller than the threshold. Files are always merged by {@code Node.mergeAll} since they define
+     * their own merge. The merged children are combined in the same way as in {@code Node.mergeNodes}.
+     */
+    private static final class MergeTask extends RecursiveTask<Node> {
+        private static final long serialVersionUID = -3129856164726232017L;
+
+        private final transient List<? extends Node> nodes;
+        private final int threshold;
+
+        MergeTask(final List<? extends Node> nodes, final int threshold) {
+            super();
+
+            this.nodes = nodes;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Node compute() {
+            var first = nodes.get(0);
+            if (nodes.size() == 1 || first instanceof FileNode || first.isSmallerThan(threshold)) {
+                return Node.mergeAll(nodes);
+            }
+
+            Map<String, List<Node>> childrenByName = new LinkedHashMap<>();
+            var merged = first.copy();
+            for (Node node : nodes) {
+                merged.ensureSameMetric(node);
+
+                for (Node child : node.getChildrenView()) {
+                    childrenByName.computeIfAbsent(child.getName(), name -> new ArrayList<>()).add(child);
+                }
+            }
+
+            var tasks = new ArrayList<MergeTask>();
+            for (List<Node> matching : childrenByName.values()) {
+                tasks.add(new MergeTask(matching, threshold));
+            }
+            invokeAll(tasks);
+
+            for (MergeTask task : tasks) {
+                merged.addChild(task.join());
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * Filters the subtree of a node: the subtrees of the children are filtered by subtasks, unless the subtree is
+     * smaller than the threshold. Files are always filtered by the mapping function since they define their own
+     * filters. The filtered children are combined in the same way as in {@code Node.filterTreeByMapping}.
+     */
+    private static final class FilterTask extends RecursiveTask<Optional<Node>> {
+        private static final long serialVersionUID = 5529387283629574190L;
+
+        private final Node node;
+        private final transient Function<Node, Optional<Node>> mappingFunction;
+        private final int threshold;
+
+        FilterTask(final Node node, final Function<Node, Optional<Node>> mappingFunction, final int threshold) {
+            super();
+
+            this.node = node;
+            this.mappingFunction = mappingFunction;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Optional<Node> compute() {
+            if (node instanceof FileNode || node.isSmallerThan(threshold)) {
+                return mappingFunction.apply(node);
+            }
+
+            var tasks = new ArrayList<FilterTask>();
+            for (Node child : node.getChildrenView()) {
+                tasks.add(new FilterTask(child, mappingFunction, threshold));
+            }
+            invokeAll(tasks);
+
+            var prunedChildren = new ArrayList<Node>();
+            for (FilterTask task : tasks) {
+                task.join().ifPresent(prunedChildren::add);
+            }
+            if (prunedChildren.isEmpty()) {
+                return Optional.empty();
+            }
+
+            var copy = node.copy();
+            copy.addAllChildren(prunedChildren);
+            return Optional.of(copy);
+        }
+    }
+}
@@ -147,7 +147,20 @@ public final class Percentage implements Serializable {
      * @return a {@code Fraction} instance with the resulting values
      */
     public Fraction subtract(final Percentage subtrahend) {
-        return new SafeFraction(items, total).subtract(subtrahend.getItems(), subtrahend.getTotal());
+        return exactDelta(subtrahend).toFraction();
+    }
+
+    /**
+     * Subtracts the other percentage from this percentage using exact long based arithmetic. The result is converted
+     * to a {@link Fraction} only on demand, see {@link Delta#toFraction()}.
+     *
+     * @param subtrahend
+     *         the percentage to subtract
+     *
+     * @return the delta of this and the other percentage
+     */
+    public Delta exactDelta(final Percentage subtrahend) {
+        return Delta.of(items, total, subtrahend.getItems(), subtrahend.getTotal());
     }
 
     /**
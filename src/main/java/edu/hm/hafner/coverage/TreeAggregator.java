@@ -0,0 +1,288 @@
+package edu.hm.hafner.coverage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+import edu.hm.hafner.coverage.Coverage.CoverageBuilder;
+
+/**
+ * Computes the aggregated values of all metrics for the subtree of a node in a single bottom-up traversal. The
+ * results are the same as the results of the individual evaluators of {@link Metric#getValueFor(Node)}, but the
+ * tree is visited only once and the intermediate sums are stored in primitive accumulators. {@link Value} instances
+ * are created only for the root of the subtree, unless the values of all nodes are requested using
+ * {@link #aggregateAll(Node)}.
+ *
+ * @author Ullrich Hafner
+ */
+final class TreeAggregator {
+    private static final Metric[] METRICS = Metric.values();
+
+    /** Accumulators for the levels of the tree, reused for all nodes of the same depth. */
+    private final List<Accumulator> levels = new ArrayList<>();
+    private boolean isStoringAllNodes;
+
+    /**
+     * Computes the aggregated values of all metrics for the subtree of the specified node.
+     *
+     * @param root
+     *         the root of the subtree
+     *
+     * @return the aggregated values, indexed by the ordinal of the metric
+     */
+    Optional<Value>[] aggregate(final Node root) {
+        return getValues(root, aggregateSubtree(root, 0));
+    }
+
+    /**
+     * Computes the aggregated values of all metrics for the subtree of the specified node in parallel. Every subtree
+     * that has at least {@code threshold} nodes is split into tasks for the subtrees of its children, smaller subtrees
+     * are aggregated sequentially. The results are the same as the results of {@link #aggregate(Node)}.
+     *
+     * @param root
+     *         the root of the subtree
+     * @param pool
+     *         the pool that runs the tasks
+     * @param threshold
+     *         the number of nodes of a subtree below which the subtree is aggregated sequentially
+     *
+     * @return the aggregated values, indexed by the ordinal of the metric
+     */
+    Optional<Value>[] aggregateInParallel(final Node root, final ForkJoinPool pool, final int threshold) {
+        return getValues(root, pool.invoke(new AggregationTask(root, threshold)));
+    }
+
+    /**
+     * Computes the aggregated values of all metrics for every node of the subtree of the specified node and stores
+     * them in the cache of the corresponding node. The subtree is still visited only once.
+     *
+     * @param root
+     *         the root of the subtree
+     */
+    void aggregateAll(final Node root) {
+        isStoringAllNodes = true;
+        aggregateSubtree(root, 0);
+    }
+
+    private Optional<Value>[] getValues(final Node node, final Accumulator totals) {
+        @SuppressWarnings("unchecked")
+        var result = (Optional<Value>[]) new Optional<?>[METRICS.length];
+        for (Metric metric : METRICS) {
+            result[metric.ordinal()] = totals.isSupported ? totals.getValue(metric) : metric.getValueFor(node);
+        }
+        return result;
+    }
+
+    private Accumulator aggregateSubtree(final Node node, final int depth) {
+        if (levels.size() == depth) {
+            levels.add(new Accumulator());
+        }
+        var totals = levels.get(depth);
+        totals.clear();
+
+        for (Node child : node.getChildrenView()) {
+            totals.add(aggregateSubtree(child, depth + 1));
+        }
+        for (Value value : node.getValuesView()) {
+            totals.isSupported &= totals.replace(value);
+        }
+        totals.addNode(node);
+        if (isStoringAllNodes) {
+            node.setAggregatedValues(getValues(node, totals));
+        }
+
+        return totals;
+    }
+
+    /**
+     * Aggregates the subtree of a node: the subtrees of the children are aggregated by subtasks, unless the subtree is
+     * smaller than the threshold. The children are combined in the same way as in {@link #aggregateSubtree(Node, int)}.
+     */
+    private static final class AggregationTask extends RecursiveTask<Accumulator> {
+        private static final long serialVersionUID = -2011935346312307433L;
+
+        private final Node node;
+        private final int threshold;
+
+        AggregationTask(final Node node, final int threshold) {
+            super();
+
+            this.node = node;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (node.isSmallerThan(threshold)) {
+                return new TreeAggregator().aggregateSubtree(node, 0);
+            }
+
+            var tasks = new ArrayList<AggregationTask>();
+            for (Node child : node.getChildrenView()) {
+                tasks.add(new AggregationTask(child, threshold));
+            }
+            invokeAll(tasks);
+
+            var totals = new Accumulator();
+            totals.clear();
+            for (AggregationTask task : tasks) {
+                totals.add(task.join());
+            }
+            for (Value value : node.getValuesView()) {
+                totals.isSupported &= totals.replace(value);
+            }
+            totals.addNode(node);
+            return totals;
+        }
+    }
+
+    /**
+     * Sums of the values of all metrics for the subtree of a node. The sums of coverage metrics are stored in the
+     * fields {@code covered} and {@code missed}, the sums of integer metrics are stored in the field {@code covered}.
+     */
+    private static final class Accumulator {
+        private final int[] covered = new int[METRICS.length];
+        private final int[] missed = new int[METRICS.length];
+        private final boolean[] isSet = new boolean[METRICS.length];
+        private int maximumComplexity;
+        private boolean hasMaximumComplexity;
+        private boolean isSupported;
+
+        void clear() {
+            Arrays.fill(covered, 0);
+            Arrays.fill(missed, 0);
+            Arrays.fill(isSet, false);
+            maximumComplexity = 0;
+            hasMaximumComplexity = false;
+            isSupported = true;
+        }
+
+        void add(final Accumulator child) {
+            isSupported &= child.isSupported;
+            for (int i = 0; i < covered.length; i++) {
+                if (child.isSet[i]) {
+                    covered[i] += child.covered[i];
+                    missed[i] += child.missed[i];
+                    isSet[i] = true;
+                }
+            }
+            if (child.hasMaximumComplexity) {
+                maximumComplexity = hasMaximumComplexity
+                        ? Math.max(maximumComplexity, child.maximumComplexity)
+                        : child.maximumComplexity;
+                hasMaximumComplexity = true;
+            }
+        }
+
+        /**
+         * Replaces the aggregated sum of the children with the value stored in a node.
+         *
+         * @param value
+         *         the value of the node
+         *
+         * @return {@code false} if the type of the value is not supported by this aggregator, {@code true} otherwise
+         */
+        boolean replace(final Value value) {
+            int slot = value.getMetric().ordinal();
+            switch (value.getMetric()) {
+                case LINE:
+                case BRANCH:
+                case INSTRUCTION:
+                case MUTATION:
+                    if (value instanceof Coverage) {
+                        covered[slot] = ((Coverage) value).getCovered();
+                        missed[slot] = ((Coverage) value).getMissed();
+                        isSet[slot] = true;
+                        return true;
+                    }
+                    return false;
+                case COMPLEXITY:
+                case TESTS:
+                    if (value instanceof IntegerValue) {
+                        covered[slot] = ((IntegerValue) value).getValue();
+                        isSet[slot] = true;
+                        return true;
+                    }
+                    return false;
+                default:
+                    return true; // values of all other metrics are computed and not read from the nodes
+            }
+        }
+
+        void addNode(final Node node) {
+            var metric = node.getMetric();
+            if (metric.isContainer()) {
+                int slot = metric.ordinal();
+                if (hasCoverage(Metric.INSTRUCTION) || hasCoverage(Metric.LINE) || hasCoverage(Metric.BRANCH)) {
+                    covered[slot]++;
+                }
+                else {
+                    missed[slot]++;
+                }
+                isSet[slot] = true;
+            }
+            if (metric == Metric.METHOD) { // the maximum is computed from methods only
+                maximumComplexity = covered[Metric.COMPLEXITY.ordinal()];
+                hasMaximumComplexity = isSet[Metric.COMPLEXITY.ordinal()];
+            }
+        }
+
+        private boolean hasCoverage(final Metric metric) {
+            return isSet[metric.ordinal()] && covered[metric.ordinal()] > 0;
+        }
+
+        @SuppressWarnings("PMD.CyclomaticComplexity")
+        Optional<Value> getValue(final Metric metric) {
+            int slot = metric.ordinal();
+            switch (metric) {
+                case CONTAINER:
+                case MODULE:
+                case PACKAGE:
+                case FILE:
+                case CLASS:
+                case METHOD:
+                case LINE:
+                case BRANCH:
+                case INSTRUCTION:
+                case MUTATION:
+                    return createIfSet(slot, () -> new CoverageBuilder(metric)
+                            .withCovered(covered[slot])
+                            .withMissed(missed[slot])
+                            .build());
+                case COMPLEXITY:
+                    return createIfSet(slot, () -> new CyclomaticComplexity(covered[slot]));
+                case TESTS:
+                    return createIfSet(slot, () -> new TestCount(covered[slot]));
+                case COMPLEXITY_MAXIMUM:
+                    if (hasMaximumComplexity) {
+                        return Optional.of(new CyclomaticComplexity(maximumComplexity, Metric.COMPLEXITY_MAXIMUM));
+                    }
+                    return Optional.empty();
+                case LOC:
+                    return createIfSet(Metric.LINE.ordinal(), () -> new LinesOfCode(getLinesOfCode()));
+                case COMPLEXITY_DENSITY:
+                    if (isSet[Metric.LINE.ordinal()] && isSet[Metric.COMPLEXITY.ordinal()] && getLinesOfCode() > 0) {
+                        return Optional.of(new FractionValue(Metric.COMPLEXITY_DENSITY,
+                                covered[Metric.COMPLEXITY.ordinal()], getLinesOfCode()));
+                    }
+                    return Optional.empty();
+            }
+            throw new IllegalArgumentException("Unsupported metric: " + metric);
+        }
+
+        private int getLinesOfCode() {
+            return covered[Metric.LINE.ordinal()] + missed[Metric.LINE.ordinal()];
+        }
+
+        private Optional<Value> createIfSet(final int slot, final Supplier<Value> factory) {
+            if (isSet[slot]) {
+                return Optional.of(factory.get());
+            }
+            return Optional.empty();
+        }
+    }
+}
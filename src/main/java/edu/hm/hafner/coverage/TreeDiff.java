@@ -0,0 +1,173 @@
+package edu.hm.hafner.coverage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.math.Fraction;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+
+/**
+ * Computes the changes between the coverage trees of a reference build and a current build. The nodes of both trees
+ * are aligned by their path, i.e., by the metric and name of all nodes from the root to the node. Subtrees with the
+ * same {@link Node#getContentHash() content hash} are skipped without visiting them. For each changed node, only its
+ * children are looked up (using the child index) and compared by their hashes. Once the content hashes of both trees
+ * are known, the effort is therefore proportional to the number of changed nodes and their children rather than to
+ * the size of the trees. The hashes are cached in the nodes: they are computed when a snapshot is
+ * {@link Node#freeze() frozen}, otherwise the first comparison computes the missing hashes in a single pass over each
+ * tree, and later comparisons only recompute the hashes of subtrees that have been changed in the meantime.
+ * <p>
+ * Since the content hash has 64 bits and is well mixed, a changed subtree is missed only if its hash collides with
+ * the hash of the reference subtree, which happens with a probability of about 2<sup>-64</sup>.
+ * </p>
+ *
+ * @author Ullrich Hafner
+ */
+public final class TreeDiff {
+    /**
+     * Defines the type of change of a node.
+     */
+    public enum ChangeType {
+        /** The node is part of the current tree only. */
+        ADDED,
+        /** The node is part of the reference tree only. */
+        REMOVED,
+        /** The node is part of both trees, but the node or its subtree has been changed. */
+        CHANGED
+    }
+
+    /**
+     * Computes the changes between the specified trees. The changes are reported in depth-first order: a changed
+     * node is reported before the changes of its children. Added and removed nodes are reported without their
+     * subtrees.
+     * <p>
+     * Note that the result is probabilistic: subtrees with the same {@link Node#getContentHash() content hash} are
+     * treated as unchanged without comparing them with {@link Node#equals(Object)}. If the hash of a changed subtree
+     * collides with the hash of the reference subtree (with a probability of about 2<sup>-64</sup> for the built-in
+     * nodes), then the changes of this subtree are not reported.
+     * </p>
+     *
+     * @param reference
+     *         the root of the reference tree
+     * @param current
+     *         the root of the current tree
+     *
+     * @return the changes, an empty list if both trees have the same content
+     * @throws IllegalArgumentException
+     *         if the root nodes use different metrics
+     */
+    public List<Change> compare(final Node reference, final Node current) {
+        if (reference.getMetric() != current.getMetric()) {
+            throw new IllegalArgumentException(
+                    String.format("Cannot compare nodes of different metrics: %s - %s", reference, current));
+        }
+
+        List<Change> changes = new ArrayList<>();
+        compare(reference, current, changes);
+        return changes;
+    }
+
+    private void compare(final Node reference, final Node current, final List<Change> changes) {
+        if (reference.getContentHash() == current.getContentHash()) {
+            return; // unchanged subtree
+        }
+
+        changes.add(new Change(ChangeType.CHANGED, reference, current, computeDelta(reference, current)));
+
+        for (Node referenceChild : reference.getChildrenView()) {
+            if (current.findChild(referenceChild.getMetric(), referenceChild.getName()).isEmpty()) {
+                changes.add(new Change(ChangeType.REMOVED, referenceChild, null, Collections.emptyNavigableMap()));
+            }
+        }
+        for (Node currentChild : current.getChildrenView()) {
+            var referenceChild = reference.findChild(currentChild.getMetric(), currentChild.getName());
+            if (referenceChild.isPresent()) {
+                compare(referenceChild.get(), currentChild, changes);
+            }
+            else {
+                changes.add(new Change(ChangeType.ADDED, null, currentChild, Collections.emptyNavigableMap()));
+            }
+        }
+    }
+
+    private NavigableMap<Metric, Fraction> computeDelta(final Node reference, final Node current) {
+        NavigableMap<Metric, Fraction> delta = new TreeMap<>();
+        current.computeExactDelta(reference).forEach((metric, value) -> {
+            if (!value.isZero()) {
+                delta.put(metric, value.toFraction());
+            }
+        });
+        return delta;
+    }
+
+    /**
+     * A change of a node between the reference tree and the current tree.
+     */
+    public static final class Change {
+        private final ChangeType type;
+        @CheckForNull
+        private final Node reference;
+        @CheckForNull
+        private final Node current;
+        private final NavigableMap<Metric, Fraction> delta;
+
+        Change(final ChangeType type, @CheckForNull final Node reference, @CheckForNull final Node current,
+                final NavigableMap<Metric, Fraction> delta) {
+            this.type = type;
+            this.reference = reference;
+            this.current = current;
+            this.delta = delta;
+        }
+
+        public ChangeType getType() {
+            return type;
+        }
+
+        /**
+         * Returns the changed node. For removed nodes the node of the reference tree is returned, otherwise the node
+         * of the current tree.
+         *
+         * @return the changed node
+         */
+        public Node getNode() {
+            return Objects.requireNonNullElse(current, reference);
+        }
+
+        public Metric getMetric() {
+            return getNode().getMetric();
+        }
+
+        public String getName() {
+            return getNode().getName();
+        }
+
+        public Optional<Node> getReference() {
+            return Optional.ofNullable(reference);
+        }
+
+        public Optional<Node> getCurrent() {
+            return Optional.ofNullable(current);
+        }
+
+        /**
+         * Returns the delta of the aggregated values of all metrics that have been changed. Metrics that are not part
+         * of both nodes are omitted. The delta is empty for added and removed nodes.
+         *
+         * @return the delta of the changed metrics
+         * @see Node#computeDelta(Node)
+         */
+        public NavigableMap<Metric, Fraction> getDelta() {
+            return Collections.unmodifiableNavigableMap(delta);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s %s", type, getNode(), delta);
+        }
+    }
+}
@@ -9,6 +9,8 @@ import java.util.Optional;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.Fraction;
 
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+
 import edu.hm.hafner.coverage.Metric.MetricTendency;
 import edu.umd.cs.findbugs.annotations.CheckReturnValue;
 
@@ -52,9 +54,15 @@ public abstract class Value implements Serializable {
      * @see #getValue(Metric, List)
      */
     public static Optional<Value> findValue(final Metric metric, final List<Value> values) {
-        return values.stream()
-                .filter(v -> metric.equals(v.getMetric()))
-                .findAny();
+        if (values instanceof MetricValues) {
+            return Optional.ofNullable(((MetricValues) values).find(metric));
+        }
+        for (Value value : values) {
+            if (value.getMetric() == metric) {
+                return Optional.of(value);
+            }
+        }
+        return Optional.empty();
     }
 
     /**
@@ -137,6 +145,18 @@ public abstract class Value implements Serializable {
     @CheckReturnValue
     public abstract Value add(Value other);
 
+    /**
+     * Creates a mutable accumulator that starts with this value. The accumulator sums up additional values of the same
+     * metric without creating intermediate values, so it should be used instead of a chain of {@link #add(Value)}
+     * calls when many values need to be summed up. The result is created by a single call of
+     * {@link Accumulator#build()} at the end.
+     *
+     * @return the accumulator
+     */
+    public Accumulator accumulator() {
+        return new ReducingAccumulator(this);
+    }
+
     /**
      * Computes the delta of this value with the specified value.
      *
@@ -148,6 +168,21 @@ public abstract class Value implements Serializable {
     @CheckReturnValue
     public abstract Fraction delta(Value other);
 
+    /**
+     * Computes the delta of this value with the specified value using exact long based arithmetic. In contrast to
+     * {@link #delta(Value)} no {@link Fraction} is created, unless requested by {@link Delta#toFraction()}. So this
+     * method should be used if many deltas need to be compared or checked for zero.
+     *
+     * @param other
+     *         the value to compare with
+     *
+     * @return the delta of this and the additional value
+     */
+    @CheckReturnValue
+    public Delta exactDelta(final Value other) {
+        return Delta.of(delta(other));
+    }
+
     /**
      * Merge this coverage with the specified coverage.
      *
@@ -193,6 +228,18 @@ public abstract class Value implements Serializable {
         return other.getMetric().equals(getMetric());
     }
 
+    /**
+     * Mixes the content of this value into the specified 64-bit hash, see {@link Node#getContentHash()}. The default
+     * implementation uses the {@link #serialize() serialization} of this value, subclasses can mix in their fields
+     * directly.
+     *
+     * @param hash
+     *         the hash to add the content to
+     */
+    void addContentTo(final ContentHash hash) {
+        hash.add(getMetric().ordinal()).add(serialize());
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
@@ -209,4 +256,52 @@ public abstract class Value implements Serializable {
     public int hashCode() {
         return Objects.hash(metric);
     }
+
+    /**
+     * Mutable accumulator that sums up values of the same metric, see {@link Value#accumulator()}.
+     */
+    public interface Accumulator {
+        /**
+         * Adds the specified value to the sum of this accumulator.
+         *
+         * @param other
+         *         the value to add
+         *
+         * @return this
+         * @throws IllegalArgumentException
+         *         if the value is of an incompatible type or metric
+         */
+        @CanIgnoreReturnValue
+        Accumulator add(Value other);
+
+        /**
+         * Creates a value that represents the sum of all added values.
+         *
+         * @return the sum
+         */
+        Value build();
+    }
+
+    /**
+     * Fallback accumulator for values that provide no accumulator of their own: sums up the values using
+     * {@link Value#add(Value)}.
+     */
+    private static final class ReducingAccumulator implements Accumulator {
+        private Value sum;
+
+        ReducingAccumulator(final Value initial) {
+            sum = initial;
+        }
+
+        @Override
+        public Accumulator add(final Value other) {
+            sum = sum.add(other);
+            return this;
+        }
+
+        @Override
+        public Value build() {
+            return sum;
+        }
+    }
 }
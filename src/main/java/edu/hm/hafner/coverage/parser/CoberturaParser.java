@@ -4,7 +4,6 @@ import java.io.Reader;
 import java.nio.file.Paths;
 import java.util.NoSuchElementException;
 import java.util.UUID;
-import java.util.regex.Pattern;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamException;
@@ -28,9 +27,12 @@ import edu.hm.hafner.util.FilteredLog;
 import edu.hm.hafner.util.PathUtil;
 import edu.hm.hafner.util.SecureXmlParserFactory;
 import edu.hm.hafner.util.SecureXmlParserFactory.ParsingException;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 
 /**
- * Parses Cobertura reports into a hierarchical Java Object Model.
+ * Parses Cobertura reports into a hierarchical Java Object Model. The line and branch counters of a class or method
+ * are summed up in primitive fields so that only a single {@link Coverage} instance per metric is created for each
+ * class or method.
  *
  * @author Melissa Bauer
  * @author Ullrich Hafner
@@ -39,13 +41,8 @@ import edu.hm.hafner.util.SecureXmlParserFactory.ParsingException;
 public class CoberturaParser extends CoverageParser {
     private static final long serialVersionUID = -3625341318291829577L;
 
-    private static final Pattern BRANCH_PATTERN = Pattern.compile(".*\\((?<covered>\\d+)/(?<total>\\d+)\\)");
     private static final PathUtil PATH_UTIL = new PathUtil();
 
-    private static final Coverage DEFAULT_BRANCH_COVERAGE = new CoverageBuilder(Metric.BRANCH).withCovered(2).withMissed(0).build();
-    private static final Coverage LINE_COVERED = new CoverageBuilder(Metric.LINE).withCovered(1).withMissed(0).build();
-    private static final Coverage LINE_MISSED = new CoverageBuilder(Metric.LINE).withCovered(0).withMissed(1).build();
-
     /** XML elements. */
     private static final QName SOURCE = new QName("source");
     private static final QName PACKAGE = new QName("package");
@@ -129,7 +126,7 @@ public class CoberturaParser extends CoverageParser {
 
     private void readPackage(final XMLEventReader reader, final ModuleNode root,
             final String packageName, final FilteredLog log) throws XMLStreamException {
-        var packageNode = root.findOrCreatePackageNode(packageName);
+        var packageNode = root.findOrCreateChildPackageNode(packageName);
 
         while (reader.hasNext()) {
             XMLEvent event = reader.nextEvent();
@@ -152,7 +149,7 @@ public class CoberturaParser extends CoverageParser {
         var fileName = getValueOf(element, FILE_NAME);
         var path = getTreeStringBuilder().intern(PATH_UTIL.getRelativePath(fileName));
 
-        return packageNode.findOrCreateFileNode(getFileName(fileName), path);
+        return packageNode.findOrCreateChildFileNode(getFileName(fileName), path);
     }
 
     private String getFileName(final String relativePath) {
@@ -163,12 +160,10 @@ public class CoberturaParser extends CoverageParser {
         return path.toString();
     }
 
-    @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.CognitiveComplexity"})
     private void readClassOrMethod(final XMLEventReader reader,
             final FileNode fileNode, final Node parentNode,
             final StartElement element, final FilteredLog log) throws XMLStreamException {
-        var lineCoverage = Coverage.nullObject(Metric.LINE);
-        var branchCoverage = Coverage.nullObject(Metric.BRANCH);
+        var counters = new LineCounters();
 
         Node node = createNode(parentNode, element, log);
         getOptionalValueOf(element, COMPLEXITY)
@@ -180,24 +175,16 @@ public class CoberturaParser extends CoverageParser {
             if (event.isStartElement()) {
                 var nextElement = event.asStartElement();
                 if (LINE.equals(nextElement.getName())) {
-                    Coverage coverage;
-                    Coverage currentLineCoverage;
                     if (isBranchCoverage(nextElement)) {
-                        coverage = readBranchCoverage(nextElement);
-                        currentLineCoverage = computeLineCoverage(coverage.getCovered());
-
-                        branchCoverage = branchCoverage.add(coverage);
+                        counters.addBranchLine(getAttributeValue(nextElement, CONDITION_COVERAGE));
                     }
                     else {
-                        int lineHits = getIntegerValueOf(nextElement, HITS);
-                        currentLineCoverage = computeLineCoverage(lineHits);
-                        coverage = currentLineCoverage;
+                        counters.addLine(getIntegerValueOf(nextElement, HITS));
                     }
-                    lineCoverage = lineCoverage.add(currentLineCoverage);
 
                     if (CLASS.equals(element.getName())) { // Use the line counters at the class level for a file
                         int lineNumber = getIntegerValueOf(nextElement, NUMBER);
-                        fileNode.addCounters(lineNumber, coverage.getCovered(), coverage.getMissed());
+                        fileNode.addCounters(lineNumber, counters.getCovered(), counters.getMissed());
                     }
                 }
                 else if (METHOD.equals(nextElement.getName())) {
@@ -207,10 +194,7 @@ public class CoberturaParser extends CoverageParser {
             else if (event.isEndElement()) {
                 var endElement = event.asEndElement();
                 if (CLASS.equals(endElement.getName()) || METHOD.equals(endElement.getName())) {
-                    node.addValue(lineCoverage);
-                    if (branchCoverage.isSet()) {
-                        node.addValue(branchCoverage);
-                    }
+                    counters.addValuesTo(node);
                     return;
                 }
             }
@@ -218,10 +202,6 @@ public class CoberturaParser extends CoverageParser {
         throw createEofException();
     }
 
-    private Coverage computeLineCoverage(final int coverage) {
-        return coverage > 0 ? LINE_COVERED : LINE_MISSED;
-    }
-
     private Node createNode(final Node parentNode, final StartElement element, final FilteredLog log) {
         var name = readName(element);
         if (CLASS.equals(element.getName())) {
@@ -235,7 +215,7 @@ public class CoberturaParser extends CoverageParser {
         String className = name;
         var signature = getValueOf(element, SIGNATURE);
         var classNode = (ClassNode) parentNode;
-        if (classNode.findMethod(className, signature).isPresent() && ignoreErrors()) {
+        if (classNode.hasChild(className + signature) && ignoreErrors()) { // method names contain the signature
             log.logError("Found a duplicate method '%s' with signature '%s' in '%s'",
                     className, signature, parentNode.getName());
             className = name + "-" + createId();
@@ -270,9 +250,13 @@ public class CoberturaParser extends CoverageParser {
     }
 
     private boolean isBranchCoverage(final StartElement line) {
-        return getOptionalValueOf(line, BRANCH)
-                .map(Boolean::parseBoolean)
-                .orElse(false);
+        return Boolean.parseBoolean(getAttributeValue(line, BRANCH));
+    }
+
+    @CheckForNull
+    private static String getAttributeValue(final StartElement element, final QName attribute) {
+        var value = element.getAttributeByName(attribute);
+        return value == null ? null : value.getValue();
     }
 
     private void readSource(final XMLEventReader reader, final ModuleNode root) throws XMLStreamException {
@@ -291,18 +275,125 @@ public class CoberturaParser extends CoverageParser {
         }
     }
 
-    private Coverage readBranchCoverage(final StartElement line) {
-        return getOptionalValueOf(line, CONDITION_COVERAGE).map(this::fromConditionCoverage).orElse(DEFAULT_BRANCH_COVERAGE);
-    }
+    /**
+     * Sums up the line and branch counters of a class or method in primitive fields. The {@link Coverage} instances
+     * are created only once when all lines of the class or method have been read.
+     */
+    private static final class LineCounters {
+        private int coveredLines;
+        private int missedLines;
+        private int coveredBranches;
+        private int missedBranches;
+
+        /** The covered and missed items of the last line that has been added. */
+        private int covered;
+        private int missed;
+
+        /**
+         * Adds a line that contains no branches.
+         *
+         * @param hits
+         *         the number of hits of the line
+         */
+        void addLine(final int hits) {
+            covered = hits > 0 ? 1 : 0;
+            missed = 1 - covered;
+
+            coveredLines += covered;
+            missedLines += missed;
+        }
+
+        /**
+         * Adds a line that contains branches.
+         *
+         * @param conditionCoverage
+         *         the value of the attribute {@code condition-coverage}, e.g. {@code 50% (1/2)}
+         */
+        void addBranchLine(@CheckForNull final String conditionCoverage) {
+            if (conditionCoverage == null) { // no details available: assume that both branches have been covered
+                covered = 2;
+                missed = 0;
+            }
+            else if (!readConditionCoverage(conditionCoverage)) {
+                covered = 0;
+                missed = 0;
+            }
+            coveredBranches += covered;
+            missedBranches += missed;
+
+            if (covered > 0) {
+                coveredLines++;
+            }
+            else {
+                missedLines++;
+            }
+        }
 
-    private Coverage fromConditionCoverage(final String conditionCoverageAttribute) {
-        var matcher = BRANCH_PATTERN.matcher(conditionCoverageAttribute);
-        if (matcher.matches()) {
-            return new CoverageBuilder().withMetric(Metric.BRANCH)
-                    .withCovered(matcher.group("covered"))
-                    .withTotal(matcher.group("total"))
-                    .build();
+        /**
+         * Reads the covered and missed branches from a condition coverage attribute that ends with
+         * {@code (covered/total)}. A regular expression is not used since it is too slow for large reports.
+         *
+         * @param value
+         *         the value of the attribute
+         *
+         * @return {@code true} if the value is in the expected format, {@code false} otherwise
+         */
+        private boolean readConditionCoverage(final String value) {
+            int end = value.length() - 1;
+            if (end < 0 || value.charAt(end) != ')') {
+                return false;
+            }
+            int start = value.lastIndexOf('(', end);
+            int separator = value.indexOf('/', start + 1);
+            if (start < 0 || separator < 0
+                    || !isNumber(value, start + 1, separator) || !isNumber(value, separator + 1, end)) {
+                return false;
+            }
+            covered = parseNumber(value, start + 1, separator);
+            missed = Math.max(0, parseNumber(value, separator + 1, end) - covered);
+            return true;
+        }
+
+        private static boolean isNumber(final String value, final int start, final int end) {
+            if (start >= end) {
+                return false;
+            }
+            for (int i = start; i < end; i++) {
+                char c = value.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int parseNumber(final String value, final int start, final int end) {
+            long number = 0;
+            for (int i = start; i < end; i++) {
+                number = number * 10 + value.charAt(i) - '0';
+                if (number > Integer.MAX_VALUE) {
+                    return 0; // same as CoverageParser.parseInteger for values that are out of range
+                }
+            }
+            return (int) number;
+        }
+
+        int getCovered() {
+            return covered;
+        }
+
+        int getMissed() {
+            return missed;
+        }
+
+        void addValuesTo(final Node node) {
+            node.addValue(new CoverageBuilder(Metric.LINE).withCovered(coveredLines).withMissed(missedLines).build());
+            if (coveredBranches + missedBranches > 0) {
+                node.addValue(new CoverageBuilder(Metric.BRANCH)
+                        .withCovered(coveredBranches)
+                        .withMissed(missedBranches)
+                        .build());
+            }
         }
-        return Coverage.nullObject(Metric.BRANCH);
     }
 }
@@ -3,13 +3,9 @@ package edu.hm.hafner.coverage.parser;
 import java.io.Reader;
 import java.nio.file.Paths;
 import java.util.NoSuchElementException;
-import java.util.Optional;
-import javax.xml.namespace.QName;
-import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.EndElement;
-import javax.xml.stream.events.StartElement;
-import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -29,9 +25,13 @@ import edu.hm.hafner.util.PathUtil;
 import edu.hm.hafner.util.SecureXmlParserFactory;
 import edu.hm.hafner.util.SecureXmlParserFactory.ParsingException;
 import edu.hm.hafner.util.TreeString;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 
 /**
- * Parses JaCoCo reports into a hierarchical Java Object Model.
+ * Parses JaCoCo reports into a hierarchical Java Object Model. The report is read using the cursor API of StAX (see
+ * {@link XMLStreamReader}) so that no event objects need to be created for the millions of {@code line} and
+ * {@code counter} elements of large reports: the attributes of these elements are read by index directly from the
+ * stream.
  *
  * @author Melissa Bauer
  */
@@ -40,47 +40,42 @@ public class JacocoParser extends CoverageParser {
     private static final long serialVersionUID = -6021749565311262221L;
 
     /** XML elements. */
-    private static final QName REPORT = new QName("report");
-    private static final QName PACKAGE = new QName("package");
-    private static final QName GROUP = new QName("group");
-    private static final QName CLASS = new QName("class");
-    private static final QName METHOD = new QName("method");
-    private static final QName COUNTER = new QName("counter");
-    private static final QName SOURCE_FILE = new QName("sourcefile");
+    private static final String REPORT = "report";
+    private static final String PACKAGE = "package";
+    private static final String GROUP = "group";
+    private static final String CLASS = "class";
+    private static final String METHOD = "method";
+    private static final String COUNTER = "counter";
+    private static final String SOURCE_FILE = "sourcefile";
 
     /** Required attributes of the XML elements. */
-    private static final QName NAME = new QName("name");
-    private static final QName SIGNATURE = new QName("desc");
-    private static final QName TYPE = new QName("type");
-    private static final QName MISSED = new QName("missed");
-    private static final QName COVERED = new QName("covered");
-    private static final QName LINE_NUMBER = new QName("nr");
+    private static final String NAME = "name";
+    private static final String SIGNATURE = "desc";
+    private static final String TYPE = "type";
+    private static final String MISSED = "missed";
+    private static final String COVERED = "covered";
+    private static final String LINE_NUMBER = "nr";
 
     /** Optional attributes of the XML elements. */
-    private static final QName SOURCE_FILE_NAME = new QName("sourcefilename");
-    private static final QName LINE = new QName("line");
-    private static final QName COVERED_INSTRUCTIONS = new QName("ci");
-    private static final QName MISSED_BRANCHES = new QName("mb");
-    private static final QName COVERED_BRANCHED = new QName("cb");
+    private static final String SOURCE_FILE_NAME = "sourcefilename";
+    private static final String LINE = "line";
+    private static final String COVERED_INSTRUCTIONS = "ci";
+    private static final String MISSED_BRANCHES = "mb";
+    private static final String COVERED_BRANCHED = "cb";
     private static final PathUtil PATH_UTIL = new PathUtil();
 
     @Override
     protected ModuleNode parseReport(final Reader reader, final FilteredLog log) {
         try {
             var factory = new SecureXmlParserFactory();
-            var eventReader = factory.createXmlEventReader(reader);
-
-            while (eventReader.hasNext()) {
-                XMLEvent event = eventReader.nextEvent();
-
-                if (event.isStartElement()) {
-                    var startElement = event.asStartElement();
-                    var tagName = startElement.getName();
-                    if (REPORT.equals(tagName)) {
-                        var root = new ModuleNode(getValueOf(startElement, NAME));
-                        readModule(eventReader, root);
-                        return root;
-                    }
+            var streamReader = factory.createXmlStreamReader(reader);
+
+            while (streamReader.hasNext()) {
+                if (streamReader.next() == XMLStreamConstants.START_ELEMENT
+                        && streamReader.getLocalName().equals(REPORT)) {
+                    var root = new ModuleNode(getValueOf(streamReader, NAME));
+                    readModule(streamReader, root);
+                    return root;
                 }
             }
             throw new NoSuchElementException("No coverage information found in the specified file.");
@@ -90,99 +85,86 @@ public class JacocoParser extends CoverageParser {
         }
     }
 
-    private ModuleNode readModule(final XMLEventReader reader, final ModuleNode module)
-            throws XMLStreamException {
+    private void readModule(final XMLStreamReader reader, final ModuleNode module) throws XMLStreamException {
         while (reader.hasNext()) {
-            XMLEvent event = reader.nextEvent();
+            int event = reader.next();
 
-            if (event.isStartElement()) {
-                var startElement = event.asStartElement();
-                if (PACKAGE.equals(startElement.getName())) {
-                    readPackage(reader, module, startElement);
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                var tagName = reader.getLocalName();
+                if (tagName.equals(PACKAGE)) {
+                    readPackage(reader, module);
                 }
-                else if (GROUP.equals(startElement.getName())) {
-                    var subModule = new ModuleNode(getValueOf(startElement, NAME));
+                else if (tagName.equals(GROUP)) {
+                    var subModule = new ModuleNode(getValueOf(reader, NAME));
                     readModule(reader, subModule);
                     module.addChild(subModule);
                 }
-                else if (COUNTER.equals(startElement.getName())) {
-                    readValueCounter(module, startElement);
+                else if (tagName.equals(COUNTER)) {
+                    readValueCounter(module, reader);
                 }
             }
-            else if (event.isEndElement()) {
-                var endElement = event.asEndElement();
-                if (isModuleEnd(endElement)) {
-                    return module;
-                }
+            else if (event == XMLStreamConstants.END_ELEMENT && isModuleEnd(reader.getLocalName())) {
+                return;
             }
         }
         throw createEofException();
     }
 
-    private boolean isModuleEnd(final EndElement endElement) {
-        return REPORT.equals(endElement.getName()) || GROUP.equals(endElement.getName());
+    private boolean isModuleEnd(final String tagName) {
+        return tagName.equals(REPORT) || tagName.equals(GROUP);
     }
 
-    private PackageNode readPackage(final XMLEventReader reader,
-            final ModuleNode root, final StartElement startElement) throws XMLStreamException {
-        var packageName = getValueOf(startElement, NAME);
-        var packageNode = root.findOrCreatePackageNode(packageName);
+    private PackageNode readPackage(final XMLStreamReader reader, final ModuleNode root) throws XMLStreamException {
+        var packageName = getValueOf(reader, NAME);
+        var packageNode = root.findOrCreateChildPackageNode(packageName);
         while (reader.hasNext()) {
-            XMLEvent event = reader.nextEvent();
+            int event = reader.next();
 
-            if (event.isStartElement()) {
-                var nextElement = event.asStartElement();
-                if (CLASS.equals(nextElement.getName())) {
-                    readClass(reader, packageNode, packageName, nextElement);
-                }
-                else if (SOURCE_FILE.equals(nextElement.getName())) {
-                    readSourceFile(reader, packageNode, packageName, nextElement);
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                var tagName = reader.getLocalName();
+                if (tagName.equals(CLASS)) {
+                    readClass(reader, packageNode, packageName);
                 }
-                else if (COUNTER.equals(startElement.getName())) {
-                    readValueCounter(packageNode, startElement);
+                else if (tagName.equals(SOURCE_FILE)) {
+                    readSourceFile(reader, packageNode, packageName);
                 }
+                // counters of packages are skipped since package nodes aggregate the values of their children
             }
-            else if (event.isEndElement()) {
-                var endElement = event.asEndElement();
-                if (PACKAGE.equals(endElement.getName())) {
-                    return packageNode;
-                }
+            else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals(PACKAGE)) {
+                return packageNode;
             }
         }
         throw createEofException();
     }
 
-    private Node readClass(final XMLEventReader reader, final PackageNode packageNode,
-            final String packageName, final StartElement startElement) throws XMLStreamException {
-        Optional<String> possibleFileName = getOptionalValueOf(startElement, SOURCE_FILE_NAME);
+    private Node readClass(final XMLStreamReader reader, final PackageNode packageNode,
+            final String packageName) throws XMLStreamException {
+        var possibleFileName = getOptionalValueOf(reader, SOURCE_FILE_NAME);
         ClassNode classNode;
-        if (possibleFileName.isPresent()) {
-            var fileName = possibleFileName.get();
-            var fileNode = packageNode.findOrCreateFileNode(fileName, internPath(packageName, fileName));
-
-            classNode = fileNode.findOrCreateClassNode(getValueOf(startElement, NAME));
+        if (possibleFileName == null) {
+            // Class nodes without files might not be inserted into the tree structure correctly
+            classNode = packageNode.findOrCreateChildClassNode(getValueOf(reader, NAME));
         }
         else {
-            // Class nodes without files might not be inserted into the tree structure correctly
-            classNode = packageNode.findOrCreateClassNode(getValueOf(startElement, NAME));
+            var fileNode = packageNode.findOrCreateChildFileNode(possibleFileName,
+                    internPath(packageName, possibleFileName));
+
+            classNode = fileNode.findOrCreateChildClassNode(getValueOf(reader, NAME));
         }
         while (reader.hasNext()) {
-            XMLEvent event = reader.nextEvent();
+            int event = reader.next();
 
-            if (event.isStartElement()) {
-                var nextElement = event.asStartElement();
-                if (METHOD.equals(nextElement.getName())) {
-                    readMethod(reader, classNode, nextElement);
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                var tagName = reader.getLocalName();
+                if (tagName.equals(METHOD)) {
+                    readMethod(reader, classNode);
                 }
-                else if (COUNTER.equals(nextElement.getName())) {
-                    readValueCounter(classNode, nextElement);
+                else if (tagName.equals(COUNTER)) {
+                    readValueCounter(classNode, reader);
                 }
             }
-            else if (event.isEndElement()) {
-                var endElement = event.asEndElement();
-                if (CLASS.equals(endElement.getName())) {
-                    return classNode;
-                }
+            else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals(CLASS)) {
+                return classNode;
             }
         }
         throw createEofException();
@@ -192,38 +174,73 @@ public class JacocoParser extends CoverageParser {
         return getTreeStringBuilder().intern(PATH_UTIL.getRelativePath(Paths.get(packageName, fileName)));
     }
 
-    private Node readSourceFile(final XMLEventReader reader, final PackageNode packageNode,
-            final String packageName, final StartElement startElement) throws XMLStreamException {
-        String fileName = getValueOf(startElement, NAME);
-        var fileNode = packageNode.findOrCreateFileNode(fileName, internPath(packageName, fileName));
+    private Node readSourceFile(final XMLStreamReader reader, final PackageNode packageNode,
+            final String packageName) throws XMLStreamException {
+        String fileName = getValueOf(reader, NAME);
+        var fileNode = packageNode.findOrCreateChildFileNode(fileName, internPath(packageName, fileName));
 
         while (reader.hasNext()) {
-            XMLEvent event = reader.nextEvent();
+            int event = reader.next();
 
-            if (event.isStartElement()) {
-                var nextElement = event.asStartElement();
-                if (LINE.equals(nextElement.getName())) {
-                    readLine(fileNode, nextElement);
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                var tagName = reader.getLocalName();
+                if (tagName.equals(LINE)) {
+                    readLine(fileNode, reader);
                 }
-                else if (COUNTER.equals(nextElement.getName())) {
-                    readValueCounter(fileNode, nextElement);
+                else if (tagName.equals(COUNTER)) {
+                    readValueCounter(fileNode, reader);
                 }
             }
-            else if (event.isEndElement()) {
-                var endElement = event.asEndElement();
-                if (SOURCE_FILE.equals(endElement.getName())) {
-                    return fileNode;
-                }
+            else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals(SOURCE_FILE)) {
+                return fileNode;
             }
         }
         throw createEofException();
     }
 
-    private void readLine(final FileNode fileNode, final StartElement startElement)  {
-        int lineNumber = getIntegerValueOf(startElement, LINE_NUMBER);
-        int coveredInstructions = getIntegerValueOf(startElement, COVERED_INSTRUCTIONS);
-        int coveredBranches = getIntegerValueOf(startElement, COVERED_BRANCHED);
-        int missedBranches = getIntegerValueOf(startElement, MISSED_BRANCHES);
+    /**
+     * Reads the counters of a {@code line} element. All attributes are read by index in a single pass so that no
+     * attribute lookup by name is required.
+     *
+     * @param fileNode
+     *         the file node to add the counters to
+     * @param reader
+     *         the reader that is positioned at the start of the {@code line} element
+     */
+    @SuppressWarnings("PMD.CognitiveComplexity")
+    private void readLine(final FileNode fileNode, final XMLStreamReader reader) {
+        int lineNumber = 0;
+        int coveredInstructions = 0;
+        int coveredBranches = 0;
+        int missedBranches = 0;
+
+        int found = 0;
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            switch (reader.getAttributeLocalName(i)) {
+                case LINE_NUMBER:
+                    lineNumber = parseInteger(reader.getAttributeValue(i));
+                    found |= 1;
+                    break;
+                case COVERED_INSTRUCTIONS:
+                    coveredInstructions = parseInteger(reader.getAttributeValue(i));
+                    found |= 2;
+                    break;
+                case COVERED_BRANCHED:
+                    coveredBranches = parseInteger(reader.getAttributeValue(i));
+                    found |= 4;
+                    break;
+                case MISSED_BRANCHES:
+                    missedBranches = parseInteger(reader.getAttributeValue(i));
+                    found |= 8;
+                    break;
+                default:
+                    // ignore other attributes
+            }
+        }
+        if (found != 15) {
+            throw createMissingAttributeException(reader,
+                    findMissingAttribute(found, LINE_NUMBER, COVERED_INSTRUCTIONS, COVERED_BRANCHED, MISSED_BRANCHES));
+        }
 
         int missed;
         int covered;
@@ -238,56 +255,82 @@ public class JacocoParser extends CoverageParser {
         fileNode.addCounters(lineNumber, covered, missed);
     }
 
-    private Node readMethod(final XMLEventReader reader, final ClassNode classNode,
-            final StartElement startElement) throws XMLStreamException {
-        String methodName = getValueOf(startElement, NAME);
-        String methodSignature = getValueOf(startElement, SIGNATURE);
-
-        MethodNode methodNode = createMethod(startElement, methodName, methodSignature);
+    private Node readMethod(final XMLStreamReader reader, final ClassNode classNode) throws XMLStreamException {
+        MethodNode methodNode = createMethod(reader, getValueOf(reader, NAME), getValueOf(reader, SIGNATURE));
         classNode.addChild(methodNode);
 
         while (reader.hasNext()) {
-            XMLEvent event = reader.nextEvent();
+            int event = reader.next();
 
-            if (event.isStartElement()) {
-                var nextElement = event.asStartElement();
-                if (COUNTER.equals(nextElement.getName())) {
-                    readValueCounter(methodNode, nextElement);
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (reader.getLocalName().equals(COUNTER)) {
+                    readValueCounter(methodNode, reader);
                 }
             }
-            else if (event.isEndElement()) {
-                var endElement = event.asEndElement();
-                if (METHOD.equals(endElement.getName())) {
-                    return methodNode;
-                }
+            else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals(METHOD)) {
+                return methodNode;
             }
         }
         throw createEofException();
     }
 
-    private MethodNode createMethod(final StartElement startElement, final String methodName,
+    private MethodNode createMethod(final XMLStreamReader reader, final String methodName,
             final String methodSignature) {
-        return getOptionalValueOf(startElement, LINE)
-                .map(CoverageParser::parseInteger)
-                .map(line -> new MethodNode(methodName, methodSignature, line))
-                .orElseGet(() -> new MethodNode(methodName, methodSignature));
+        var line = getOptionalValueOf(reader, LINE);
+        if (line == null) {
+            return new MethodNode(methodName, methodSignature);
+        }
+        return new MethodNode(methodName, methodSignature, parseInteger(line));
     }
 
-    private void readValueCounter(final Node node, final StartElement startElement) {
-        String currentType = getValueOf(startElement, TYPE);
+    /**
+     * Reads the value of a {@code counter} element. All attributes are read by index in a single pass so that no
+     * attribute lookup by name is required.
+     *
+     * @param node
+     *         the node to add the value to
+     * @param reader
+     *         the reader that is positioned at the start of the {@code counter} element
+     */
+    private void readValueCounter(final Node node, final XMLStreamReader reader) {
+        String currentType = null;
+        String covered = null;
+        String missed = null;
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            switch (reader.getAttributeLocalName(i)) {
+                case TYPE:
+                    currentType = reader.getAttributeValue(i);
+                    break;
+                case COVERED:
+                    covered = reader.getAttributeValue(i);
+                    break;
+                case MISSED:
+                    missed = reader.getAttributeValue(i);
+                    break;
+                default:
+                    // ignore other attributes
+            }
+        }
+        if (currentType == null) {
+            throw createMissingAttributeException(reader, TYPE);
+        }
 
         if (StringUtils.containsAny(currentType, "LINE", "INSTRUCTION", "BRANCH", "COMPLEXITY")) {
-            var covered = getIntegerValueOf(startElement, COVERED);
-            var missed = getIntegerValueOf(startElement, MISSED);
+            if (covered == null) {
+                throw createMissingAttributeException(reader, COVERED);
+            }
+            if (missed == null) {
+                throw createMissingAttributeException(reader, MISSED);
+            }
 
             if (!node.isAggregation()) {
-                node.addValue(createValue(currentType, covered, missed));
+                node.addValue(createValue(currentType, parseInteger(covered), parseInteger(missed)));
             }
         }
     }
 
     private Value createValue(final String currentType, final int covered, final int missed) {
-        if ("COMPLEXITY".equals(currentType)) {
+        if (currentType.equals("COMPLEXITY")) {
             return new CyclomaticComplexity(covered + missed);
         }
         else {
@@ -297,4 +340,32 @@ public class JacocoParser extends CoverageParser {
                         .withMissed(missed).build();
         }
     }
+
+    @CheckForNull
+    private static String getOptionalValueOf(final XMLStreamReader reader, final String attribute) {
+        return reader.getAttributeValue(null, attribute);
+    }
+
+    private static String getValueOf(final XMLStreamReader reader, final String attribute) {
+        var value = getOptionalValueOf(reader, attribute);
+        if (value == null) {
+            throw createMissingAttributeException(reader, attribute);
+        }
+        return value;
+    }
+
+    private static String findMissingAttribute(final int found, final String... attributes) {
+        for (int i = 0; i < attributes.length; i++) {
+            if ((found & (1 << i)) == 0) {
+                return attributes[i];
+            }
+        }
+        throw new IllegalArgumentException("No attribute is missing");
+    }
+
+    private static NoSuchElementException createMissingAttributeException(final XMLStreamReader reader,
+            final String attribute) {
+        return new NoSuchElementException(String.format(
+                "Could not obtain attribute '%s' from element '%s'", attribute, reader.getLocalName()));
+    }
 }
@@ -94,8 +94,8 @@ public class JunitParser extends CoverageParser {
                 var className = getOptionalValueOf(testCaseElement, CLASS_NAME).orElse(suiteName);
                 builder.withClassName(className);
                 var packageName = createPackageForClass(className);
-                var packageNode = root.findOrCreatePackageNode(packageName);
-                var classNode = packageNode.findOrCreateClassNode(className);
+                var packageNode = root.findOrCreateChildPackageNode(packageName);
+                var classNode = packageNode.findOrCreateChildClassNode(className);
                 classNode.addTestCase(builder.build());
                 return builder.build();
             }
@@ -0,0 +1,219 @@
+package edu.hm.hafner.coverage.registry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import edu.hm.hafner.coverage.CoverageParser;
+import edu.hm.hafner.coverage.CoverageParser.ProcessingMode;
+import edu.hm.hafner.coverage.ModuleNode;
+import edu.hm.hafner.coverage.Node;
+import edu.hm.hafner.coverage.ParallelTreeProcessor;
+import edu.hm.hafner.coverage.registry.ParserRegistry.CoverageParserType;
+import edu.hm.hafner.util.FilteredLog;
+import edu.hm.hafner.util.SecureXmlParserFactory.ParsingException;
+
+/**
+ * Parses several coverage reports of the same type concurrently and merges the results into a single
+ * {@link ModuleNode}. Each report is parsed by a separate task with its own {@link CoverageParser} and
+ * {@link FilteredLog}. The tasks run in a {@link ForkJoinPool} whose parallelism bounds the number of reports that are
+ * parsed concurrently, so a slow report does not delay the reports that are queued behind it. The results of the tasks
+ * are merged afterward by a {@link ParallelTreeProcessor} in the same pool: the merge of the subtrees of the packages
+ * (and of the children of large packages) is split into tasks, so the final merge runs in parallel as well. The
+ * results and the messages of the task logs are merged in the order of the reports.
+ * <p>
+ * Reports that share the same root (i.e., the same module name) are merged into a single {@link ModuleNode}. If the
+ * reports contain several different modules, then the merged modules are added as sub-modules to a new
+ * {@link ModuleNode} with the name {@value #UNNAMED}, in the same way as the groups of a JaCoCo report.
+ * </p>
+ *
+ * @author Ullrich Hafner
+ */
+public class ParallelReportParser {
+    /** The name of the module that is returned if no report has been parsed or if there are several modules. */
+    static final String UNNAMED = "-";
+
+    private final ParserRegistry registry = new ParserRegistry();
+    private final CoverageParserType parserType;
+    private final ProcessingMode processingMode;
+    private final int parallelism;
+
+    /**
+     * Creates a new instance of {@link ParallelReportParser} that parses as many reports concurrently as processors
+     * are available.
+     *
+     * @param parserType
+     *         the type of the reports
+     * @param processingMode
+     *         determines whether to ignore errors
+     */
+    public ParallelReportParser(final CoverageParserType parserType, final ProcessingMode processingMode) {
+        this(parserType, processingMode, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new instance of {@link ParallelReportParser}.
+     *
+     * @param parserType
+     *         the type of the reports
+     * @param processingMode
+     *         determines whether to ignore errors
+     * @param parallelism
+     *         the maximum number of reports that will be parsed concurrently
+     */
+    public ParallelReportParser(final CoverageParserType parserType, final ProcessingMode processingMode,
+            final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be positive: " + parallelism);
+        }
+        this.parserType = parserType;
+        this.processingMode = processingMode;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Parses the specified reports concurrently and merges the results. The reports are expected to be encoded with
+     * UTF-8.
+     *
+     * @param reports
+     *         the paths of the reports to parse
+     * @param log
+     *         the logger to write messages to
+     *
+     * @return the merged tree of all reports: the merged module if all reports belong to the same module, a module
+     *         with the merged modules as children if the reports belong to different modules, or an empty module if
+     *         no report has been parsed
+     * @throws ParsingException
+     *         if a report cannot be read or parsed
+     */
+    public ModuleNode parse(final List<Path> reports, final FilteredLog log) {
+        int concurrency = Math.min(parallelism, reports.size());
+        if (concurrency <= 1) {
+            return mergeResults(reports.stream().map(ReportTask::new).map(ReportTask::call)
+                    .collect(Collectors.toList()), Node::merge, log);
+        }
+
+        var pool = new ForkJoinPool(concurrency);
+        try {
+            var processor = new ParallelTreeProcessor(pool, ParallelTreeProcessor.DEFAULT_THRESHOLD);
+            return mergeResults(getResults(submit(reports, pool)), processor::merge, log);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private List<Future<Result>> submit(final List<Path> reports, final ExecutorService executor) {
+        List<Future<Result>> futures = new ArrayList<>();
+        for (Path report : reports) {
+            futures.add(executor.submit(new ReportTask(report)));
+        }
+        return futures;
+    }
+
+    private List<Result> getResults(final List<Future<Result>> futures) {
+        List<Result> results = new ArrayList<>();
+        for (Future<Result> future : futures) {
+            results.add(getResult(future));
+        }
+        return results;
+    }
+
+    private Result getResult(final Future<Result> future) {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new ParsingException(exception, "Parsing of the reports has been interrupted");
+        }
+        catch (ExecutionException exception) {
+            var cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ParsingException(exception);
+        }
+    }
+
+    private ModuleNode mergeResults(final List<Result> results, final Function<List<Node>, Node> merger,
+            final FilteredLog log) {
+        Map<String, List<Node>> modulesByName = new LinkedHashMap<>();
+        for (Result result : results) {
+            log.merge(result.log);
+            result.module.ifPresent(module -> modulesByName.computeIfAbsent(
+                    module.getName(), name -> new ArrayList<>()).add(module));
+        }
+        if (modulesByName.size() == 1) {
+            return (ModuleNode) merger.apply(modulesByName.values().iterator().next());
+        }
+        var root = new ModuleNode(UNNAMED);
+        for (List<Node> modules : modulesByName.values()) {
+            root.addChild(merger.apply(modules));
+        }
+        return root;
+    }
+
+    /**
+     * Parses a single report with its own parser and log.
+     */
+    private final class ReportTask implements Callable<Result> {
+        private final Path report;
+
+        ReportTask(final Path report) {
+            this.report = report;
+        }
+
+        @Override
+        public Result call() {
+            var parser = registry.getParser(parserType, processingMode);
+            var log = new FilteredLog("Errors while parsing coverage reports:");
+            return new Result(parse(parser, report, log), log);
+        }
+
+        private Optional<ModuleNode> parse(final CoverageParser parser, final Path report, final FilteredLog log) {
+            try (var reader = Files.newBufferedReader(report, StandardCharsets.UTF_8)) {
+                return Optional.of(parser.parse(reader, log));
+            }
+            catch (IOException exception) {
+                if (processingMode == ProcessingMode.FAIL_FAST) {
+                    throw new ParsingException(exception, "Can't read coverage report '%s'", report);
+                }
+                log.logException(exception, "Can't read coverage report '%s'", report);
+            }
+            catch (ParsingException exception) {
+                if (processingMode == ProcessingMode.FAIL_FAST) {
+                    throw exception;
+                }
+                log.logException(exception, "Can't parse coverage report '%s'", report);
+            }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The parsed module and the log of a report.
+     */
+    private static final class Result {
+        private final Optional<ModuleNode> module;
+        private final FilteredLog log;
+
+        Result(final Optional<ModuleNode> module, final FilteredLog log) {
+            this.module = module;
+            this.log = log;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package edu.hm.hafner.coverage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Base class for JMH benchmarks. The benchmarks of a concrete subclass are started from a JUnit test. Since the class
+ * names do not match the Surefire test patterns, benchmarks are not part of the normal build and need to be started
+ * explicitly, e.g. {@code mvn test -Dtest=JacocoParserBenchmark}. Besides the average time per operation the number
+ * of allocated bytes per operation is reported by the GC profiler.
+ *
+ * @author Ullrich Hafner
+ */
+@SuppressWarnings("PMD.AbstractClassWithoutAbstractMethod")
+public abstract class AbstractBenchmark {
+    /**
+     * Runs all benchmarks of this class.
+     *
+     * @throws RunnerException
+     *         if the benchmark could not be executed
+     */
+    @Test
+    void runBenchmarks() throws RunnerException {
+        var options = new OptionsBuilder()
+                .include(getClass().getName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .build();
+
+        new Runner(options).run();
+    }
+}
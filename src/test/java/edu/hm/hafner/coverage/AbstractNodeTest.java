@@ -1,15 +1,16 @@
 package edu.hm.hafner.coverage;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.junit.jupiter.api.Test;
 
 import edu.hm.hafner.coverage.Coverage.CoverageBuilder;
 import edu.hm.hafner.util.SerializableTest;
+import edu.hm.hafner.util.TreeString;
 
 import nl.jqno.equalsverifier.EqualsVerifier;
 import nl.jqno.equalsverifier.Warning;
-import nl.jqno.equalsverifier.api.EqualsVerifierApi;
 import nl.jqno.equalsverifier.api.SingleTypeEqualsVerifierApi;
 
 import static edu.hm.hafner.coverage.assertions.Assertions.*;
@@ -17,16 +18,64 @@ import static edu.hm.hafner.coverage.assertions.Assertions.*;
 abstract class AbstractNodeTest extends SerializableTest<Node> {
     private static final String NAME = "Node Name";
     private static final String CHILD = "Child";
+    private static final String TRANSIENT_FIELDS = "(.*\\.)?(childrenByName|index|aggregatedValues|contentHash|sharedLineData)";
     private static final Coverage MUTATION_COVERAGE = new CoverageBuilder().withMetric(Metric.MUTATION)
             .withCovered(5)
             .withMissed(10)
             .build();
 
+    /**
+     * Creates a module with the specified number of packages and files. Each file contains one class with one method.
+     * The files have line counters, some of them modified lines and indirect coverage changes. The classes and methods
+     * have coverage and complexity values that depend on the package and file numbers.
+     *
+     * @param packages
+     *         the number of packages
+     * @param files
+     *         the number of files in each package
+     *
+     * @return the module
+     */
+    static ModuleNode createTree(final int packages, final int files) {
+        var module = new ModuleNode("module");
+        var builder = new CoverageBuilder();
+        for (int p = 0; p < packages; p++) {
+            var packageNode = module.findOrCreatePackageNode("package" + p);
+            for (int f = 0; f < files; f++) {
+                var file = packageNode.createFileNode("File" + f + ".java",
+                        TreeString.valueOf("package" + p + "/File" + f + ".java"));
+                for (int line = 1; line <= 10; line++) {
+                    file.addCounters(line, line % 3 == 0 ? 0 : 1, line % 3 == 0 ? 1 : 0);
+                }
+                if ((p + f) % 3 == 0) {
+                    file.addModifiedLines(1, 2, 3);
+                }
+                if ((p + f) % 4 == 0) {
+                    file.addIndirectCoverageChange(4, 1);
+                }
+                var classNode = file.createClassNode("Class" + f);
+                classNode.addValue(builder.withMetric(Metric.LINE).withCovered(7).withMissed(3).build());
+                classNode.addValue(builder.withMetric(Metric.BRANCH).withCovered(p).withMissed(f).build());
+                var method = classNode.createMethodNode("method" + f, "()V");
+                method.addValue(builder.withMetric(Metric.LINE).withCovered(5).withMissed(2).build());
+                method.addValue(new CyclomaticComplexity(p + f + 1));
+            }
+        }
+        return module;
+    }
+
     @Override
     protected Node createSerializable() {
         return createNode("Serialized");
     }
 
+    @Override
+    protected void assertThatRestoredInstanceEqualsOriginalInstance(final Node original, final Node restored) {
+        assertThat(restored).usingRecursiveComparison()
+                .ignoringFieldsMatchingRegexes(TRANSIENT_FIELDS) // caches are not serialized
+                .isEqualTo(original);
+    }
+
     abstract Metric getMetric();
 
     abstract Node createNode(String name);
@@ -66,6 +115,19 @@ abstract class AbstractNodeTest extends SerializableTest<Node> {
         assertThat(parent.copyTree()).isEqualTo(parent);
     }
 
+    @Test
+    void shouldRecreateChildIndexAfterDeserialization() {
+        Node parent = createNode(NAME);
+        Node child = createNode(CHILD);
+        parent.addChild(child);
+
+        Node restored = restore(toByteArray(parent));
+
+        assertThat(restored.hasChild(child.getName())).isTrue();
+        assertThat(restored.findChild(getMetric(), child.getName())).contains(child);
+        assertThatIllegalArgumentException().isThrownBy(() -> restored.addChild(createNode(CHILD)));
+    }
+
     private void verifySingleNode(final Node node) {
         assertThat(node)
                 .hasName(NAME)
@@ -98,14 +160,36 @@ abstract class AbstractNodeTest extends SerializableTest<Node> {
         SingleTypeEqualsVerifierApi<? extends Node> equalsVerifier = EqualsVerifier.forClass(
                         createNode(NAME).getClass())
                 .withPrefabValues(Node.class, new PackageNode("src"), new PackageNode("test"))
-                .withIgnoredFields("parent")
+                .withPrefabValues(MetricValues.class, createMetricValues(5), createMetricValues(10))
+                .withPrefabValues(Supplier.class, new NoChildren(), new NoChildren())
+                .withPrefabValues(NodeIndex.class,
+                        new NodeIndex(new PackageNode("src")), new NodeIndex(new PackageNode("test")))
+                .withIgnoredFields("parent", "values") // values is only used to read old serializations
                 .withRedefinedSuperclass()
-                .suppress(Warning.NONFINAL_FIELDS);
+                .suppress(Warning.NONFINAL_FIELDS)
+                // the hash code is cached in a transient field that is discarded by the mutators only
+                .suppress(Warning.TRANSIENT_FIELDS, Warning.STRICT_HASHCODE);
         configureEqualsVerifier(equalsVerifier);
         equalsVerifier.verify();
     }
 
-    void configureEqualsVerifier(final EqualsVerifierApi<? extends Node> verifier) {
+    private MetricValues createMetricValues(final int missed) {
+        var values = new MetricValues();
+        createMetricDistributionWithMissed(missed).forEach(values::put);
+        return values;
+    }
+
+    void configureEqualsVerifier(final SingleTypeEqualsVerifierApi<? extends Node> verifier) {
         // no additional configuration in parent class
     }
+
+    /**
+     * Creates the pending children of a lazy view: since there are no children, equality is not affected.
+     */
+    private static class NoChildren implements Supplier<List<Node>> {
+        @Override
+        public List<Node> get() {
+            return List.of();
+        }
+    }
 }
@@ -0,0 +1,98 @@
+package edu.hm.hafner.coverage;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.hm.hafner.coverage.parser.JacocoParser;
+import edu.hm.hafner.util.FilteredLog;
+
+/**
+ * Compares the single pass aggregation of {@link Node#aggregateValues()} with the evaluation of every metric on its
+ * own using {@link Metric#getValueFor(Node)}.
+ *
+ * @author Ullrich Hafner
+ */
+@BenchmarkMode(Mode.AverageTime)
+public class AggregationBenchmark extends AbstractBenchmark {
+    /**
+     * Provides a tree without cached values for each invocation.
+     */
+    @State(Scope.Benchmark)
+    public static class TreeState {
+        @Param({"jacoco-codingstyle.xml", "jacoco-analysis-model.xml"})
+        private String fileName = "";
+        private Node parsed = new ModuleNode("empty");
+        private Node tree = new ModuleNode("empty");
+
+        /**
+         * Parses the report once so that the benchmark does not measure the parser.
+         */
+        @Setup
+        public void parseReport() {
+            try (var reader = new InputStreamReader(Objects.requireNonNull(
+                    AggregationBenchmark.class.getResourceAsStream("parser/jacoco/" + fileName)),
+                    StandardCharsets.UTF_8)) {
+                parsed = new JacocoParser().parse(reader, new FilteredLog("Errors"));
+            }
+            catch (IOException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+
+        /**
+         * Creates a copy of the parsed tree so that every invocation starts with empty caches.
+         */
+        @Setup(Level.Invocation)
+        public void copyTree() {
+            tree = parsed.copyTree();
+        }
+
+        Node getTree() {
+            return tree;
+        }
+    }
+
+    /**
+     * Aggregates the values of all metrics in a single traversal of the tree.
+     *
+     * @param state
+     *         the tree to aggregate
+     *
+     * @return the aggregated values
+     */
+    @Benchmark
+    public List<Value> aggregateInSinglePass(final TreeState state) {
+        return state.getTree().aggregateValues();
+    }
+
+    /**
+     * Aggregates the values by evaluating every metric on its own.
+     *
+     * @param state
+     *         the tree to aggregate
+     *
+     * @return the aggregated values
+     */
+    @Benchmark
+    public List<Value> aggregatePerMetric(final TreeState state) {
+        var tree = state.getTree();
+        return tree.getMetrics().stream()
+                .map(metric -> metric.getValueFor(tree))
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+    }
+}
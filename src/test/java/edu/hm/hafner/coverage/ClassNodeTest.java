@@ -40,5 +40,7 @@ class ClassNodeTest extends AbstractNodeTest {
 
         assertThat(original.getTestCases()).hasSize(1).contains(testCase);
         assertThat(original.copy().getTestCases()).hasSize(1).contains(testCase);
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> original.getTestCases().add(testCase));
     }
 }
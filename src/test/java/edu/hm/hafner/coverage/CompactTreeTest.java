@@ -0,0 +1,125 @@
+package edu.hm.hafner.coverage;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import edu.hm.hafner.coverage.CompactTree.CompactNode;
+import edu.hm.hafner.coverage.Coverage.CoverageBuilder;
+import edu.hm.hafner.util.TreeString;
+
+import static edu.hm.hafner.coverage.Metric.CLASS;
+import static edu.hm.hafner.coverage.Metric.FILE;
+import static edu.hm.hafner.coverage.Metric.*;
+import static edu.hm.hafner.coverage.assertions.Assertions.*;
+
+class CompactTreeTest {
+    private static final int PACKAGES = 20;
+    private static final int FILES = 20;
+
+    @Test
+    void shouldStoreStructureAndValuesOfAllNodes() {
+        var tree = createTree();
+
+        var compact = CompactTree.of(tree);
+
+        assertThat(compact.size()).isEqualTo(1 + PACKAGES + 3 * PACKAGES * FILES);
+        verifyNode(compact.getRoot(), tree);
+        assertThat(compact.getRoot().isRoot()).isTrue();
+        assertThatExceptionOfType(NoSuchElementException.class).isThrownBy(compact.getRoot()::getParent);
+    }
+
+    private void verifyNode(final CompactNode compactNode, final Node node) {
+        assertThat(compactNode.getName()).isEqualTo(node.getName());
+        assertThat(compactNode.getMetric()).isEqualTo(node.getMetric());
+        assertThat(compactNode.aggregateValues()).containsExactlyElementsOf(node.aggregateValues());
+        assertThat(compactNode.hasChildren()).isEqualTo(node.hasChildren());
+
+        var children = compactNode.getChildren();
+        assertThat(children).hasSameSizeAs(node.getChildren());
+        for (int i = 0; i < children.size(); i++) {
+            assertThat(children.get(i).getParent()).isEqualTo(compactNode);
+            verifyNode(children.get(i), node.getChildren().get(i));
+        }
+    }
+
+    @Test
+    void shouldFindNodes() {
+        var tree = createTree();
+        var root = CompactTree.of(tree).getRoot();
+
+        assertThat(root.find(FILE, "File3.java")).isPresent().get().satisfies(
+                file -> assertThat(file.getParent().getName()).isEqualTo("package0"));
+        assertThat(root.find(CLASS, "File3.java")).isEmpty();
+        assertThat(root.find(FILE, "Unknown.java")).isEmpty();
+        assertThat(root.getAll(FILE)).hasSize(PACKAGES * FILES);
+
+        var packageNode = root.find(PACKAGE, "package5").orElseThrow();
+        assertThat(packageNode.getAll(CLASS)).hasSize(FILES);
+        assertThat(packageNode.find(FILE, "File3.java")).isPresent().get()
+                .satisfies(file -> assertThat(file.getParent()).isEqualTo(packageNode));
+        assertThat(packageNode.getValue(LINE)).isEqualTo(tree.findPackage("package5").orElseThrow().getValue(LINE));
+    }
+
+    @Test
+    void shouldReturnNodesInSameOrderAsTree() {
+        var tree = new ModuleNode("module");
+        tree.findOrCreatePackageNode("edu.hm").createFileNode("First.java", TreeString.valueOf("edu/hm/First.java"));
+        tree.findOrCreatePackageNode("edu.hm.hafner")
+                .createFileNode("Second.java", TreeString.valueOf("edu/hm/hafner/Second.java"));
+        tree.findOrCreatePackageNode("org").createFileNode("Third.java", TreeString.valueOf("org/Third.java"));
+        tree.splitPackages();
+
+        var root = CompactTree.of(tree).getRoot();
+
+        for (Metric metric : List.of(PACKAGE, FILE, MODULE)) {
+            assertThat(root.getAll(metric)).extracting(CompactNode::getName)
+                    .containsExactlyElementsOf(tree.getAll(metric).stream()
+                            .map(Node::getName)
+                            .collect(Collectors.toList()));
+        }
+        assertThat(root.getAll(PACKAGE)).extracting(CompactNode::getName)
+                .containsExactly("hafner", "hm", "edu", "org");
+    }
+
+    @Test
+    void shouldComputeDelta() {
+        var reference = createTree();
+        var current = createTree();
+        current.findClass("Class7").orElseThrow().replaceValue(
+                new CoverageBuilder().withMetric(LINE).withCovered(10).withMissed(0).build());
+
+        var compactReference = CompactTree.of(reference).getRoot();
+        var compactCurrent = CompactTree.of(current).getRoot();
+
+        assertThat(compactCurrent.computeDelta(compactReference)).isEqualTo(current.computeDelta(reference));
+    }
+
+    @Test
+    void shouldBeSerializable() {
+        var compact = CompactTree.of(createTree());
+
+        var restored = SerializationUtils.clone(compact);
+
+        assertThat(restored.getRoot().aggregateValues()).isEqualTo(compact.getRoot().aggregateValues());
+        assertThat(restored.getRoot().find(FILE, "File3.java")).isPresent();
+    }
+
+    @Test
+    void shouldRequireLessMemoryThanNodes() {
+        var tree = createTree().freeze();
+
+        var compact = CompactTree.of(tree);
+
+        assertThat(GraphLayout.parseInstance(compact).totalSize() * 4)
+                .isLessThan(GraphLayout.parseInstance(tree).totalSize());
+    }
+
+    private ModuleNode createTree() {
+        return AbstractNodeTest.createTree(PACKAGES, FILES);
+    }
+}
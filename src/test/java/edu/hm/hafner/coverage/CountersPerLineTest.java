@@ -0,0 +1,184 @@
+package edu.hm.hafner.coverage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import edu.hm.hafner.util.SerializableTest;
+
+import static edu.hm.hafner.coverage.assertions.Assertions.*;
+
+class CountersPerLineTest extends SerializableTest<CountersPerLine> {
+    private static final int LINES = 10_000;
+
+    @Override
+    protected void assertThatRestoredInstanceEqualsOriginalInstance(final CountersPerLine original,
+            final CountersPerLine restored) {
+        assertThat(restored).isEqualTo(original); // the unused capacity of the arrays is not serialized
+    }
+
+    @Override
+    protected CountersPerLine createSerializable() {
+        var counters = new CountersPerLine();
+        counters.put(10, 1, 0);
+        counters.put(11, 2, 2);
+        return counters;
+    }
+
+    @Test
+    void shouldStoreCountersSortedByLine() {
+        var counters = new CountersPerLine();
+        assertThat(counters.isEmpty()).isTrue();
+
+        counters.put(5, 1, 0);
+        counters.put(1, 0, 1);
+        counters.put(3, 2, 2);
+        counters.put(7, 4, 0);
+        counters.put(3, 3, 1); // replaces the existing counters
+
+        assertThat(counters.size()).isEqualTo(4);
+        assertThat(counters.getLines()).containsExactly(1, 3, 5, 7);
+        assertThat(counters.getCoveredCounters()).containsExactly(0, 3, 1, 4);
+        assertThat(counters.getMissedCounters()).containsExactly(1, 1, 0, 0);
+        assertThat(counters.getCoveredPerLine()).containsExactly(
+                entry(1, 0), entry(3, 3), entry(5, 1), entry(7, 4));
+
+        assertThat(counters.contains(3)).isTrue();
+        assertThat(counters.getCovered(3)).isEqualTo(3);
+        assertThat(counters.getMissed(3)).isEqualTo(1);
+        assertThat(counters.contains(4)).isFalse();
+        assertThat(counters.getCovered(4)).isZero();
+        assertThat(counters.getMissed(4)).isZero();
+
+        var visited = new ArrayList<String>();
+        counters.forEach((line, covered, missed) -> visited.add(line + ": " + covered + "/" + missed));
+        assertThat(visited).containsExactly("1: 0/1", "3: 3/1", "5: 1/0", "7: 4/0");
+
+        assertThat(counters.copy()).isEqualTo(counters).isNotSameAs(counters);
+        assertThat(counters).hasToString("[1: 0/1, 3: 3/1, 5: 1/0, 7: 4/0]");
+    }
+
+    @Test
+    void shouldGrowBeyondInitialCapacity() {
+        var counters = new CountersPerLine();
+        for (int line = LINES; line > 0; line--) {
+            counters.put(line, line, 0);
+        }
+
+        assertThat(counters.size()).isEqualTo(LINES);
+        assertThat(counters.getLines().first()).isEqualTo(1);
+        assertThat(counters.getLines().last()).isEqualTo(LINES);
+        assertThat(counters.getCovered(LINES / 2)).isEqualTo(LINES / 2);
+    }
+
+    @Test
+    void shouldMergeSeveralSources() {
+        var first = new CountersPerLine();
+        first.put(1, 1, 0);
+        first.put(4, 1, 3);
+        first.put(9, 0, 1);
+        var second = new CountersPerLine();
+        second.put(2, 0, 1);
+        second.put(4, 3, 1);
+        var third = new CountersPerLine();
+        third.put(1, 0, 1);
+        third.put(4, 2, 2);
+        third.put(7, 5, 0);
+
+        var merged = CountersPerLine.merge(List.of(first, second, new CountersPerLine(), third), "File.java");
+
+        assertThat(merged.getLines()).containsExactly(1, 2, 4, 7, 9);
+        assertThat(merged.getCoveredCounters()).containsExactly(1, 0, 3, 5, 0);
+        assertThat(merged.getMissedCounters()).containsExactly(0, 1, 1, 0, 1);
+        assertThat(CountersPerLine.merge(List.of(), "Empty.java").isEmpty()).isTrue();
+
+        third.put(9, 1, 1);
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> CountersPerLine.merge(List.of(first, second, third), "File.java"))
+                .withMessage("Cannot merge coverage information for line 9 in File.java");
+    }
+
+    @Test
+    void shouldShareArraysUntilModified() {
+        var counters = new CountersPerLine();
+        counters.put(1, 1, 0);
+        counters.put(2, 0, 1);
+
+        var copy = counters.copy();
+        assertThat(copy).isEqualTo(counters);
+        assertThat(copy.isShared()).isTrue();
+        assertThat(counters.isShared()).isTrue();
+        assertThat(GraphLayout.parseInstance(counters, copy).totalSize())
+                .isLessThan(2 * GraphLayout.parseInstance(counters).totalSize());
+
+        copy.put(3, 2, 2); // appending must not change the shared arrays
+        assertThat(copy.isShared()).isFalse();
+        assertThat(copy.getLines()).containsExactly(1, 2, 3);
+        assertThat(counters.getLines()).containsExactly(1, 2);
+
+        counters.put(1, 0, 1);
+        assertThat(counters.isShared()).isFalse();
+        assertThat(counters.getCovered(1)).isZero();
+        assertThat(copy.getCovered(1)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotMarkImmutableSourceAsShared() {
+        var counters = new CountersPerLine();
+        counters.put(1, 1, 0);
+
+        var copy = counters.copyOfImmutable();
+        assertThat(copy).isEqualTo(counters);
+        assertThat(copy.isShared()).isTrue();
+        assertThat(counters.isShared()).isFalse();
+
+        copy.put(1, 0, 1);
+        assertThat(copy.getCovered(1)).isZero();
+        assertThat(counters.getCovered(1)).isEqualTo(1);
+    }
+
+    /**
+     * Compares the memory footprint of the counters with the footprint of the two {@link TreeMap} instances that have
+     * been used before. The maps require about 100 bytes per line, the parallel arrays about 12 bytes per line (plus
+     * the unused capacity of the arrays).
+     */
+    @Test
+    void shouldRequireLessMemoryThanTreeMaps() {
+        var counters = new CountersPerLine();
+        var coveredPerLine = new TreeMap<Integer, Integer>();
+        var missedPerLine = new TreeMap<Integer, Integer>();
+        for (int line = 1; line <= LINES; line++) {
+            int covered = line % 4;
+            int missed = line % 3;
+            counters.put(line, covered, missed);
+            coveredPerLine.put(line, covered);
+            missedPerLine.put(line, missed);
+        }
+
+        long bytesPerLineOfArrays = GraphLayout.parseInstance(counters).totalSize() / LINES;
+        long bytesPerLineOfMaps = GraphLayout.parseInstance(coveredPerLine, missedPerLine).totalSize() / LINES;
+
+        assertThat(bytesPerLineOfArrays).isLessThanOrEqualTo(20);
+        assertThat(bytesPerLineOfMaps).isGreaterThan(5 * bytesPerLineOfArrays);
+    }
+
+    @Test
+    void shouldIgnoreUnusedCapacityInEquals() {
+        var counters = new CountersPerLine();
+        counters.put(10, 1, 0);
+        counters.put(11, 2, 2);
+
+        var restored = restore(toByteArray(counters));
+        assertThat(restored).isEqualTo(counters).hasSameHashCodeAs(counters);
+
+        restored.put(12, 0, 1);
+        assertThat(restored).isNotEqualTo(counters);
+        counters.put(12, 0, 1);
+        assertThat(restored).isEqualTo(counters).hasSameHashCodeAs(counters);
+        counters.put(12, 1, 0);
+        assertThat(restored).isNotEqualTo(counters);
+    }
+}
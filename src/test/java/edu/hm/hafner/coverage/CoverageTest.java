@@ -40,6 +40,10 @@ class CoverageTest {
         assertThat(better.delta(worse).doubleValue()).isEqualTo(getDelta("1/1"));
         assertThat(worse.delta(ok).doubleValue()).isEqualTo(getDelta("-1/2"));
         assertThat(ok.delta(worse).doubleValue()).isEqualTo(getDelta("1/2"));
+
+        assertThat(worse.exactDelta(ok).toFraction()).isEqualTo(worse.delta(ok));
+        assertThat(ok.exactDelta(NO_COVERAGE)).isEqualTo(Delta.of(1, 2, 0, 1));
+        assertThat(ok.exactDelta(ok).isZero()).isTrue();
     }
 
     @Test
@@ -119,6 +123,27 @@ class CoverageTest {
         assertThatIllegalArgumentException().isThrownBy(() -> wrongMetric.delta(loc));
     }
 
+    @Test
+    void shouldSumUpCoveragesWithAccumulator() {
+        var builder = new CoverageBuilder().withMetric(Metric.LINE);
+        var initial = builder.withCovered(1).withMissed(2).build();
+
+        assertThat(initial.accumulator().build()).isSameAs(initial);
+        assertThat(initial.accumulator()
+                .add(builder.withCovered(10).withMissed(20).build())
+                .add(100, 200)
+                .build())
+                .hasCovered(111).hasMissed(222);
+        assertThat(NO_COVERAGE.accumulator().add(2, 3).build())
+                .isSameAs(builder.withCovered(2).withMissed(3).build());
+
+        var accumulator = initial.accumulator();
+        var branch = new CoverageBuilder().withMetric(Metric.BRANCH).withCovered(1).withMissed(1).build();
+        assertThatIllegalArgumentException().isThrownBy(() -> accumulator.add(branch))
+                .withMessageContaining("Cannot cast incompatible types");
+        assertThatIllegalArgumentException().isThrownBy(() -> accumulator.add(new LinesOfCode(1)));
+    }
+
     @Test
     void shouldProvideNullObject() {
         assertThat(NO_COVERAGE)
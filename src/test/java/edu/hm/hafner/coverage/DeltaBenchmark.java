@@ -0,0 +1,124 @@
+package edu.hm.hafner.coverage;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.Fraction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.hm.hafner.coverage.parser.JacocoParser;
+import edu.hm.hafner.util.FilteredLog;
+
+/**
+ * Compares the computation of the deltas of all nodes of a tree as {@link Fraction fractions} using
+ * {@link Node#computeDelta(Node)} with the exact long based computation using {@link Node#computeExactDelta(Node)}.
+ *
+ * @author Ullrich Hafner
+ */
+@BenchmarkMode(Mode.AverageTime)
+public class DeltaBenchmark extends AbstractBenchmark {
+    /**
+     * Provides the pairs of nodes of a current and a reference tree.
+     */
+    @State(Scope.Benchmark)
+    public static class TreesState {
+        @Param({"jacoco-merge-a.xml:jacoco-merge-b.xml", "jacoco-analysis-model.xml:jacoco-analysis-model.xml"})
+        private String fileNames = "";
+        private final List<Node> nodes = new ArrayList<>();
+        private final List<Node> references = new ArrayList<>();
+
+        /**
+         * Parses both reports and aligns the nodes of the trees once, so that the benchmark measures the delta
+         * computation only. The aggregated values of all nodes are cached before the benchmark starts.
+         */
+        @Setup
+        public void parseReports() {
+            var current = parse(StringUtils.substringBefore(fileNames, ":"));
+            var reference = parse(StringUtils.substringAfter(fileNames, ":"));
+            current.accept(new NodeVisitor() {
+                @Override
+                public boolean enter(final Node node) {
+                    reference.find(node.getMetric(), node.getName()).ifPresent(referenceNode -> {
+                        node.aggregateValues();
+                        referenceNode.aggregateValues();
+                        nodes.add(node);
+                        references.add(referenceNode);
+                    });
+                    return true;
+                }
+            });
+        }
+
+        private Node parse(final String fileName) {
+            try (var reader = new InputStreamReader(Objects.requireNonNull(
+                    DeltaBenchmark.class.getResourceAsStream("parser/jacoco/" + fileName)),
+                    StandardCharsets.UTF_8)) {
+                return new JacocoParser().parse(reader, new FilteredLog("Errors"));
+            }
+            catch (IOException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+
+        List<Node> getNodes() {
+            return nodes;
+        }
+
+        List<Node> getReferences() {
+            return references;
+        }
+    }
+
+    /**
+     * Computes the deltas of all nodes as fractions and counts the non-zero deltas.
+     *
+     * @param state
+     *         the nodes to compare
+     *
+     * @return the number of non-zero deltas
+     */
+    @Benchmark
+    public int computeFractions(final TreesState state) {
+        int changed = 0;
+        for (int i = 0; i < state.getNodes().size(); i++) {
+            for (Fraction delta : state.getNodes().get(i).computeDelta(state.getReferences().get(i)).values()) {
+                if (delta.compareTo(Fraction.ZERO) != 0) {
+                    changed++;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Computes the exact deltas of all nodes and counts the non-zero deltas.
+     *
+     * @param state
+     *         the nodes to compare
+     *
+     * @return the number of non-zero deltas
+     */
+    @Benchmark
+    public int computeExactDeltas(final TreesState state) {
+        int changed = 0;
+        for (int i = 0; i < state.getNodes().size(); i++) {
+            for (Delta delta : state.getNodes().get(i).computeExactDelta(state.getReferences().get(i)).values()) {
+                if (!delta.isZero()) {
+                    changed++;
+                }
+            }
+        }
+        return changed;
+    }
+}
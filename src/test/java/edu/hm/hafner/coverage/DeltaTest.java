@@ -0,0 +1,95 @@
+package edu.hm.hafner.coverage;
+
+import org.apache.commons.lang3.math.Fraction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests the class {@link Delta}.
+ *
+ * @author Ullrich Hafner
+ */
+class DeltaTest {
+    @Test
+    void shouldComputeExactDelta() {
+        var delta = Delta.of(1, 2, 1, 3);
+
+        assertThat(delta.getNumerator()).isEqualTo(1);
+        assertThat(delta.getDenominator()).isEqualTo(6);
+        assertThat(delta.signum()).isEqualTo(1);
+        assertThat(delta.isZero()).isFalse();
+        assertThat(delta.doubleValue()).isEqualTo(1.0 / 6);
+        assertThat(delta.toFraction()).isEqualTo(Fraction.getFraction(1, 6)).isSameAs(delta.toFraction());
+        assertThat(delta).hasToString("1/6");
+
+        var negative = Delta.of(1, 3, 1, 2);
+        assertThat(negative.getNumerator()).isEqualTo(-1);
+        assertThat(negative.signum()).isEqualTo(-1);
+        assertThat(negative.toFraction()).isEqualTo(Fraction.getFraction(-1, 6));
+
+        assertThat(Delta.ZERO.isZero()).isTrue();
+        assertThat(Delta.ZERO.toFraction()).isSameAs(Fraction.ZERO);
+        assertThat(Delta.of(3, 4, 6, 8).isZero()).isTrue();
+    }
+
+    @ParameterizedTest(name = "{0}/{1} - {2}/{3}")
+    @CsvSource({
+            "0, 1, 0, 1",
+            "0, 5, 3, 6",
+            "3, 6, 0, 5",
+            "3, 6, 3, 6",
+            "2, 4, 1, 3",
+            "10, 20, 15, 25",
+            "7, 9, 7, 11",
+            "1, -2, 1, 3",
+            "2147483646, 2147483647, 1, 2147483645"
+    })
+    void shouldCreateSameFractionAsSafeFraction(final int minuendNumerator, final int minuendDenominator,
+            final int subtrahendNumerator, final int subtrahendDenominator) {
+        var delta = Delta.of(minuendNumerator, minuendDenominator, subtrahendNumerator, subtrahendDenominator);
+        var expected = new SafeFraction(minuendNumerator, minuendDenominator)
+                .subtract(subtrahendNumerator, subtrahendDenominator);
+
+        assertThat(delta.toFraction()).isEqualTo(expected);
+        assertThat(delta.signum()).isEqualTo(Integer.signum(expected.compareTo(Fraction.ZERO)));
+        assertThat(delta.doubleValue()).isCloseTo(expected.doubleValue(), within(1e-6));
+    }
+
+    @Test
+    void shouldNotOverflowForLargeValues() {
+        var delta = Delta.of(Integer.MAX_VALUE, Integer.MAX_VALUE - 1, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+        assertThat(delta.getNumerator())
+                .isEqualTo((long) Integer.MAX_VALUE * Integer.MAX_VALUE
+                        - (long) Integer.MIN_VALUE * (Integer.MAX_VALUE - 1));
+        assertThat(delta.getDenominator()).isEqualTo((long) (Integer.MAX_VALUE - 1) * Integer.MAX_VALUE);
+        assertThat(delta.signum()).isEqualTo(1);
+        assertThat(delta.compareTo(Delta.of(2, 1, 0, 1))).isPositive();
+        assertThat(delta.compareTo(Delta.of(3, 1, 0, 1))).isNegative();
+    }
+
+    @Test
+    void shouldCompareExactValues() {
+        var half = Delta.of(1, 2, 0, 1);
+        var otherHalf = Delta.of(3, 4, 1, 4);
+        var third = Delta.of(1, 3, 0, 1);
+        var minusHalf = Delta.of(-1, 2, 0, 1);
+
+        assertThat(half).isEqualTo(otherHalf).hasSameHashCodeAs(otherHalf).isNotEqualTo(third);
+        assertThat(half.compareTo(otherHalf)).isZero();
+        assertThat(half).isGreaterThan(third);
+        assertThat(minusHalf).isLessThan(third).isEqualTo(Delta.of(1, -2, 0, 1));
+        assertThat(Delta.of(Fraction.getFraction(1, 2))).isEqualTo(half);
+    }
+
+    @Test
+    void shouldRejectZeroDenominator() {
+        assertThatIllegalArgumentException().isThrownBy(() -> Delta.of(1, 0, 1, 1))
+                .withMessage(Percentage.TOTALS_ZERO_MESSAGE);
+        assertThatIllegalArgumentException().isThrownBy(() -> Delta.of(1, 1, 1, 0))
+                .withMessage(Percentage.TOTALS_ZERO_MESSAGE);
+    }
+}
@@ -1,5 +1,6 @@
 package edu.hm.hafner.coverage;
 
+import java.util.BitSet;
 import java.util.NavigableMap;
 
 import org.apache.commons.lang3.StringUtils;
@@ -11,7 +12,7 @@ import edu.hm.hafner.util.LineRange;
 import edu.hm.hafner.util.TreeString;
 
 import nl.jqno.equalsverifier.Warning;
-import nl.jqno.equalsverifier.api.EqualsVerifierApi;
+import nl.jqno.equalsverifier.api.SingleTypeEqualsVerifierApi;
 
 import static edu.hm.hafner.coverage.assertions.Assertions.*;
 
@@ -22,11 +23,19 @@ class FileNodeTest extends AbstractNodeTest {
     }
 
     @Override
-    void configureEqualsVerifier(final EqualsVerifierApi<? extends Node> verifier) {
+    void configureEqualsVerifier(final SingleTypeEqualsVerifierApi<? extends Node> verifier) {
         verifier.withPrefabValues(TreeString.class, TreeString.valueOf("src"), TreeString.valueOf("test"))
+                .withPrefabValues(CountersPerLine.class, createCounters(1), createCounters(2))
+                .withIgnoredFields("coveredPerLine", "missedPerLine") // only used to read old serializations
                 .suppress(Warning.NONFINAL_FIELDS);
     }
 
+    private CountersPerLine createCounters(final int line) {
+        var counters = new CountersPerLine();
+        counters.put(line, 1, 0);
+        return counters;
+    }
+
     @Override
     FileNode createNode(final String name) {
         var fileNode = new FileNode(name, "path");
@@ -147,6 +156,100 @@ class FileNodeTest extends AbstractNodeTest {
                 .containsValues(1, 3);
     }
 
+    @Test
+    void shouldMergeLinesThatArePresentInOneFileOnly() {
+        var left = new FileNode("File.java", "path");
+        left.addCounters(1, 1, 0);
+        left.addCounters(3, 0, 1);
+        left.addCounters(5, 1, 1);
+        left.addCounters(9, 0, 1);
+        var right = new FileNode("File.java", "path");
+        right.addCounters(2, 0, 1);
+        right.addCounters(3, 1, 0);
+        right.addCounters(5, 2, 0);
+        right.addCounters(7, 2, 2);
+
+        var merged = (FileNode) left.merge(right);
+
+        assertThat(merged.getLinesWithCoverage()).containsExactly(1, 2, 3, 5, 7, 9);
+        assertThat(merged.getCoveredCounters()).containsExactly(1, 0, 1, 2, 2, 0);
+        assertThat(merged.getMissedCounters()).containsExactly(0, 1, 0, 0, 2, 1);
+        assertThat(merged.getValue(Metric.LINE)).contains(
+                new Coverage.CoverageBuilder().withMetric(Metric.LINE).withCovered(4).withMissed(2).build());
+        assertThat(merged.getValue(Metric.BRANCH)).contains(
+                new Coverage.CoverageBuilder().withMetric(Metric.BRANCH).withCovered(4).withMissed(2).build());
+    }
+
+    @Test
+    void shouldNotMergeLinesWithDifferentNumberOfItems() {
+        var left = new FileNode("File.java", "path");
+        left.addCounters(1, 1, 0);
+        var right = new FileNode("File.java", "path");
+        right.addCounters(1, 1, 1);
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> left.merge(right))
+                .withMessageContaining("Cannot merge coverage information for line 1");
+    }
+
+    @Test
+    void shouldProvideLinesAsBitSets() {
+        var fileNode = new FileNode("Lines.java", ".");
+
+        fileNode.addCounters(1, 2, 1);
+        fileNode.addCounters(2, 1, 0);
+        fileNode.addCounters(3, 0, 1);
+        fileNode.addCounters(4, 4, 3);
+        fileNode.addCounters(70, 0, 2);
+        fileNode.addModifiedLines(3, 4, 5, 70, 100);
+
+        assertThat(fileNode.getLinesWithCoverageAsBitSet()).isEqualTo(bits(1, 2, 3, 4, 70));
+        assertThat(fileNode.getCoveredLinesAsBitSet()).isEqualTo(bits(1, 2, 4));
+        assertThat(fileNode.getMissedLinesAsBitSet()).isEqualTo(bits(3, 70));
+        assertThat(fileNode.getPartiallyCoveredLinesAsBitSet()).isEqualTo(bits(1, 4));
+        assertThat(fileNode.getModifiedLinesAsBitSet()).isEqualTo(bits(3, 4, 5, 70, 100));
+        assertThat(fileNode.getCoveredAndModifiedLinesAsBitSet()).isEqualTo(bits(3, 4, 70));
+
+        assertThat(fileNode.getCoveredLines()).containsExactly(1, 2, 4);
+        assertThat(fileNode.getMissedLines()).containsExactly(3, 70);
+        assertThat(fileNode.getCoveredAndModifiedLines()).containsExactly(3, 4, 70);
+        assertThat(fileNode.hasCoveredAndModifiedLines()).isTrue();
+        assertThat(fileNode.getMissedLineRanges()).containsExactly(new LineRange(3), new LineRange(70));
+
+        var unmodified = new FileNode("Unmodified.java", ".");
+        unmodified.addCounters(1, 1, 0);
+        unmodified.addModifiedLines(2);
+        assertThat(unmodified.hasCoveredAndModifiedLines()).isFalse();
+        assertThat(unmodified.getCoveredAndModifiedLinesAsBitSet().isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldSkipNegativeLinesInBitSets() {
+        var fileNode = new FileNode("Negative.java", ".");
+
+        fileNode.addCounters(-1, 0, 1);
+        fileNode.addCounters(2, 1, 0);
+        fileNode.addModifiedLines(-1, 2);
+
+        assertThat(fileNode.getLinesWithCoverageAsBitSet()).isEqualTo(bits(2));
+        assertThat(fileNode.getMissedLinesAsBitSet()).isEqualTo(bits());
+        assertThat(fileNode.getCoveredLinesAsBitSet()).isEqualTo(bits(2));
+        assertThat(fileNode.getCoveredAndModifiedLinesAsBitSet()).isEqualTo(bits(2));
+
+        assertThat(fileNode.getLinesWithCoverage()).containsExactly(-1, 2);
+        assertThat(fileNode.getMissedLines()).containsExactly(-1);
+        assertThat(fileNode.getCoveredLines()).containsExactly(2);
+        assertThat(fileNode.getCoveredAndModifiedLines()).containsExactly(-1, 2);
+    }
+
+    private BitSet bits(final int... lines) {
+        var bits = new BitSet();
+        for (int line : lines) {
+            bits.set(line);
+        }
+        return bits;
+    }
+
     @Test
     void shouldThrowExceptionOnFilterTreeByModifiedLinesIfCoverageTotalIsZero() {
         var fileNode = new FileNode("file.java", ".");
@@ -287,6 +390,32 @@ class FileNodeTest extends AbstractNodeTest {
                 .hasNoValueMetrics();
     }
 
+    @Test
+    void shouldShareLineDataWithCopiesUntilModified() {
+        var fileNode = createNode("file.java");
+        var copy = (FileNode) fileNode.copyNode();
+
+        assertThat(copy).isEqualTo(fileNode);
+        assertThat(copy.isSharingLineData()).isTrue();
+        assertThat(fileNode.isSharingLineData()).isTrue();
+
+        fileNode.addCounters(12, 1, 0);
+        fileNode.addModifiedLines(11);
+        fileNode.addIndirectCoverageChange(16, 1);
+
+        assertThat(fileNode.isSharingLineData()).isFalse();
+        assertThat(fileNode.getLinesWithCoverage()).containsExactly(10, 11, 12);
+        assertThat(fileNode.getModifiedLines()).containsExactly(10, 11);
+        assertThat(fileNode.getIndirectCoverageChanges()).containsOnlyKeys(15, 16);
+
+        assertThat(copy.getLinesWithCoverage()).containsExactly(10, 11);
+        assertThat(copy.getModifiedLines()).containsExactly(10);
+        assertThat(copy.getIndirectCoverageChanges()).containsOnlyKeys(15);
+
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> copy.getModifiedLines().add(12));
+    }
+
     @Test
     void shouldReturnMissedLineRanges() {
         var fileNode = new FileNode("file.java", ".");
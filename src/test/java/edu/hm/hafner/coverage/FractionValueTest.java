@@ -50,6 +50,47 @@ class FractionValueTest {
         assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> fiftyLoc.max(loc));
     }
 
+    @Test
+    void shouldSumUpValuesWithAccumulator() {
+        var half = new FractionValue(Metric.COMPLEXITY_DENSITY, 1, 2);
+        var third = new FractionValue(Metric.COMPLEXITY_DENSITY, 1, 3);
+
+        assertThat(half.accumulator().build()).isSameAs(half);
+        assertThat(half.accumulator().add(third).add(third).build())
+                .isEqualTo(new FractionValue(Metric.COMPLEXITY_DENSITY, 7, 6))
+                .isEqualTo(half.add(third).add(third));
+
+        var accumulator = half.accumulator();
+        var wrongMetric = new FractionValue(Metric.LINE, 1, 2);
+        assertThatIllegalArgumentException().isThrownBy(() -> accumulator.add(wrongMetric));
+        assertThatIllegalArgumentException().isThrownBy(() -> accumulator.add(new LinesOfCode(2)));
+    }
+
+    @Test
+    void shouldSumUpValuesLikeSequentialAdd() {
+        var zero = new FractionValue(Metric.COMPLEXITY_DENSITY, 0, 1);
+        var unreduced = new FractionValue(Metric.COMPLEXITY_DENSITY, 10, 20);
+        var quarter = new FractionValue(Metric.COMPLEXITY_DENSITY, 3, 12);
+        var negative = new FractionValue(Metric.COMPLEXITY_DENSITY, -5, 6);
+
+        assertThat(zero.accumulator().add(unreduced).build())
+                .isEqualTo(zero.add(unreduced))
+                .isEqualTo(unreduced);
+        assertThat(unreduced.accumulator().add(zero).build()).isSameAs(unreduced);
+        assertThat(unreduced.accumulator().add(quarter).add(negative).add(unreduced).build())
+                .isEqualTo(unreduced.add(quarter).add(negative).add(unreduced));
+
+        var large = new FractionValue(Metric.COMPLEXITY_DENSITY, 1, 65_537);
+        var other = new FractionValue(Metric.COMPLEXITY_DENSITY, 1, 65_539);
+        var big = new FractionValue(Metric.COMPLEXITY_DENSITY, Integer.MAX_VALUE - 1, 3);
+        assertThat(large.accumulator().add(other).add(large).add(quarter).build())
+                .as("denominator of the sum exceeds an int")
+                .isEqualTo(large.add(other).add(large).add(quarter));
+        assertThat(big.accumulator().add(quarter).add(negative).build())
+                .as("intermediate products exceed an int")
+                .isEqualTo(big.add(quarter).add(negative));
+    }
+
     @Test
     void shouldReturnDelta() {
         var fifty = new FractionValue(Metric.LINE, Fraction.getFraction(50, 1));
@@ -61,6 +61,21 @@ abstract class IntegerValueTest {
         assertThat(createValue(-25).add(createValue(100))).hasValue(75);
     }
 
+    @Test
+    void shouldSumUpValuesWithAccumulator() {
+        var initial = createValue(25);
+
+        assertThat(initial.accumulator().build()).isSameAs(initial);
+        assertThat(initial.accumulator().add(createValue(100)).add(createValue(-5)).build())
+                .isEqualTo(createValue(120));
+        assertThat(initial.accumulator().add(createValue(0)).build()).isSameAs(initial);
+
+        var accumulator = initial.accumulator();
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> accumulator.add(Coverage.nullObject(Metric.LINE)))
+                .withMessageContaining("Cannot cast incompatible types");
+    }
+
     @Test
     void shouldFindMaximum() {
         assertThat(createValue(25).max(createValue(26))).hasValue(26);
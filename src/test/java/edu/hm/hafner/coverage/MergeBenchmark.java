@@ -0,0 +1,85 @@
+package edu.hm.hafner.coverage;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.hm.hafner.coverage.parser.JacocoParser;
+import edu.hm.hafner.util.FilteredLog;
+
+/**
+ * Compares the merging of many reports in a single pass using {@link Node#merge(List)} with merging the reports one
+ * after another using {@link Node#merge(Node)}.
+ *
+ * @author Ullrich Hafner
+ */
+@BenchmarkMode(Mode.AverageTime)
+public class MergeBenchmark extends AbstractBenchmark {
+    /**
+     * Provides the reports to merge.
+     */
+    @State(Scope.Benchmark)
+    public static class ReportsState {
+        @Param({"10", "50"})
+        private int count;
+        private final List<Node> reports = new ArrayList<>();
+
+        /**
+         * Parses the same report several times so that the benchmark does not measure the parser.
+         */
+        @Setup
+        public void parseReports() {
+            for (int i = 0; i < count; i++) {
+                try (var reader = new InputStreamReader(Objects.requireNonNull(
+                        MergeBenchmark.class.getResourceAsStream("parser/jacoco/jacoco-analysis-model.xml")),
+                        StandardCharsets.UTF_8)) {
+                    reports.add(new JacocoParser().parse(reader, new FilteredLog("Errors")));
+                }
+                catch (IOException exception) {
+                    throw new IllegalStateException(exception);
+                }
+            }
+        }
+
+        List<Node> getReports() {
+            return reports;
+        }
+    }
+
+    /**
+     * Merges all reports in a single pass.
+     *
+     * @param state
+     *         the reports to merge
+     *
+     * @return the merged tree
+     */
+    @Benchmark
+    public Node mergeInSinglePass(final ReportsState state) {
+        return Node.merge(state.getReports());
+    }
+
+    /**
+     * Merges the reports one after another.
+     *
+     * @param state
+     *         the reports to merge
+     *
+     * @return the merged tree
+     */
+    @Benchmark
+    public Node mergePairwise(final ReportsState state) {
+        return state.getReports().stream().reduce(Node::merge).orElseThrow();
+    }
+}
@@ -0,0 +1,113 @@
+package edu.hm.hafner.coverage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.jupiter.api.Test;
+
+import edu.hm.hafner.coverage.Coverage.CoverageBuilder;
+import edu.hm.hafner.util.SerializableTest;
+
+import static edu.hm.hafner.coverage.assertions.Assertions.*;
+
+class MetricValuesTest extends SerializableTest<MetricValues> {
+    private static final Coverage LINE_COVERAGE = new CoverageBuilder(Metric.LINE)
+            .withCovered(5).withMissed(5).build();
+    private static final Coverage BRANCH_COVERAGE = new CoverageBuilder(Metric.BRANCH)
+            .withCovered(1).withMissed(3).build();
+    private static final CyclomaticComplexity COMPLEXITY = new CyclomaticComplexity(10);
+    private static final TestCount TESTS = new TestCount(3);
+
+    @Override
+    protected MetricValues createSerializable() {
+        var values = new MetricValues();
+        values.put(TESTS);
+        values.put(LINE_COVERAGE);
+        return values;
+    }
+
+    @Test
+    void shouldStoreValuesInOrderOfMetrics() {
+        var values = new MetricValues();
+        assertThat(values).isEmpty();
+        assertThat(Optional.ofNullable(values.find(Metric.LINE))).isEmpty();
+
+        values.put(TESTS);
+        values.put(COMPLEXITY);
+        values.put(LINE_COVERAGE);
+        values.put(BRANCH_COVERAGE);
+
+        assertThat(values).containsExactly(LINE_COVERAGE, BRANCH_COVERAGE, COMPLEXITY, TESTS);
+        assertThat(values.containsMetric(Metric.BRANCH)).isTrue();
+        assertThat(values.containsMetric(Metric.MUTATION)).isFalse();
+        assertThat(Optional.ofNullable(values.find(Metric.COMPLEXITY))).containsSame(COMPLEXITY);
+        assertThat(Optional.ofNullable(values.find(Metric.MUTATION))).isEmpty();
+        assertThat(values).isEqualTo(List.of(LINE_COVERAGE, BRANCH_COVERAGE, COMPLEXITY, TESTS));
+    }
+
+    @Test
+    void shouldReplaceValueOfSameMetric() {
+        var values = createSerializable();
+        var replacement = new CoverageBuilder(Metric.LINE).withCovered(10).withMissed(0).build();
+
+        values.put(replacement);
+
+        assertThat(values).containsExactly(replacement, TESTS);
+        assertThat(Optional.ofNullable(values.find(Metric.LINE))).containsSame(replacement);
+    }
+
+    @Test
+    void shouldCopyValues() {
+        var values = createSerializable();
+
+        var copy = new MetricValues();
+        copy.putAll(values);
+        assertThat(copy).isEqualTo(values);
+
+        copy.put(COMPLEXITY);
+        assertThat(copy).containsExactly(LINE_COVERAGE, COMPLEXITY, TESTS);
+        assertThat(values).containsExactly(LINE_COVERAGE, TESTS);
+
+        copy.putAll(values);
+        assertThat(copy).containsExactly(LINE_COVERAGE, COMPLEXITY, TESTS);
+
+        copy.clear();
+        assertThat(copy).isEmpty();
+        assertThat(copy.containsMetric(Metric.LINE)).isFalse();
+    }
+
+    @Test
+    void shouldRestoreMaskFromSerializedValues() {
+        var restored = SerializationUtils.roundtrip(createSerializable());
+
+        assertThat(restored).containsExactly(LINE_COVERAGE, TESTS);
+        assertThat(restored.containsMetric(Metric.LINE)).isTrue();
+        assertThat(restored.containsMetric(Metric.BRANCH)).isFalse();
+        assertThat(Optional.ofNullable(restored.find(Metric.TESTS))).contains(TESTS);
+
+        restored.put(BRANCH_COVERAGE);
+        assertThat(restored).containsExactly(LINE_COVERAGE, BRANCH_COVERAGE, TESTS);
+    }
+
+    @Test
+    void shouldRejectModificationsThroughListInterface() {
+        List<Value> values = createSerializable();
+
+        assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> values.add(COMPLEXITY));
+        assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> values.remove(0));
+    }
+
+    @Test
+    void shouldFindValuesInAnyList() {
+        var values = createSerializable();
+
+        assertThat(Value.findValue(Metric.TESTS, values)).contains(TESTS);
+        assertThat(Value.findValue(Metric.BRANCH, values)).isEmpty();
+
+        var list = new ArrayList<Value>(values);
+        assertThat(Value.findValue(Metric.TESTS, list)).contains(TESTS);
+        assertThat(Value.findValue(Metric.BRANCH, list)).isEmpty();
+    }
+}
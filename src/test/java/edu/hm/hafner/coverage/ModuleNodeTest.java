@@ -2,6 +2,8 @@ package edu.hm.hafner.coverage;
 
 import org.junit.jupiter.api.Test;
 
+import edu.hm.hafner.util.TreeString;
+
 import static edu.hm.hafner.coverage.Metric.FILE;
 import static edu.hm.hafner.coverage.Metric.*;
 import static edu.hm.hafner.coverage.assertions.Assertions.*;
@@ -92,4 +94,47 @@ class ModuleNodeTest extends AbstractNodeTest {
         assertThat(root.getAll(PACKAGE)).hasSize(3);
         assertThat(root.getAll(FILE)).hasSize(1);
     }
+
+    @Test
+    void shouldMergePackagesThatShareParentsWhenSplitting() {
+        var root = new ModuleNode("Root");
+        var topLevelFile = new FileNode("Top.java", "Top.java");
+        root.addChild(topLevelFile);
+        createPackage(root, "x.y", "XY.java", 1);
+        createPackage(root, "a.b", "AB.java", 2);
+        createPackage(root, "a", "A.java", 3);
+        createPackage(root, "a.b.c", "ABC.java", 4);
+        createPackage(root, "x", "X.java", 5);
+
+        root.splitPackages();
+
+        assertThat(root.getChildren()).extracting(Node::getName).containsExactly("Top.java", "a", "x");
+        var a = getPackage(root, "a");
+        assertThat(a.getChildren()).extracting(Node::getName).containsExactly("b", "A.java");
+        assertThat(a.getValues()).isEmpty();
+        var b = getPackage(a, "b");
+        assertThat(b.getChildren()).extracting(Node::getName).containsExactly("AB.java", "c");
+        assertThat(b.getValues()).isEmpty();
+        var c = getPackage(b, "c");
+        assertThat(c.getChildren()).extracting(Node::getName).containsExactly("ABC.java");
+        assertThat(c.getValues()).containsExactly(new LinesOfCode(4));
+        var x = getPackage(root, "x");
+        assertThat(x.getChildren()).extracting(Node::getName).containsExactly("y", "X.java");
+        assertThat(x.getValues()).isEmpty();
+        assertThat(getPackage(x, "y").getValues()).containsExactly(new LinesOfCode(1));
+        assertThat(topLevelFile.getParent()).isSameAs(root);
+    }
+
+    private void createPackage(final ModuleNode root, final String packageName, final String fileName,
+            final int lines) {
+        var packageNode = root.createPackageNode(packageName);
+        packageNode.addValue(new LinesOfCode(lines));
+        packageNode.createFileNode(fileName, TreeString.valueOf(fileName));
+    }
+
+    private Node getPackage(final Node parent, final String name) {
+        return parent.getChildren().stream()
+                .filter(child -> child.getMetric() == PACKAGE && child.getName().equals(name))
+                .findAny().orElseThrow();
+    }
 }
@@ -5,8 +5,17 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.NavigableMap;
 import java.util.NoSuchElementException;
-
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.lang3.math.Fraction;
+import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
 import org.assertj.core.api.ThrowingConsumer;
 import org.junit.jupiter.api.Test;
 import org.junitpioneer.jupiter.DefaultLocale;
@@ -14,6 +23,7 @@ import org.junitpioneer.jupiter.Issue;
 
 import edu.hm.hafner.coverage.Coverage.CoverageBuilder;
 import edu.hm.hafner.coverage.Mutation.MutationBuilder;
+import edu.hm.hafner.util.TreeString;
 
 import static edu.hm.hafner.coverage.Metric.CLASS;
 import static edu.hm.hafner.coverage.Metric.FILE;
@@ -153,6 +163,73 @@ class NodeTest {
 
     }
 
+    @Test
+    void shouldVisitNodesInPreAndPostOrder() {
+        var module = createLargeTree(2, 2);
+        var entered = new ArrayList<String>();
+        var left = new ArrayList<String>();
+
+        module.accept(new NodeVisitor() {
+            @Override
+            public boolean enter(final Node node) {
+                entered.add(node.getName());
+                return node.getMetric() != FILE; // skip classes
+            }
+
+            @Override
+            public void leave(final Node node) {
+                left.add(node.getName());
+            }
+        });
+
+        assertThat(entered).containsExactly("module", "p0", "f0-0", "f0-1", "p1", "f1-0", "f1-1");
+        assertThat(left).containsExactly("f0-0", "f0-1", "p0", "f1-0", "f1-1", "p1", "module");
+    }
+
+    @Test
+    void shouldStreamNodesOfMetric() {
+        var module = createLargeTree(20, 30);
+
+        assertThat(module.stream(FILE)).hasSize(600).containsExactlyInAnyOrderElementsOf(module.getAll(FILE));
+        assertThat(module.stream(PACKAGE).map(Node::getName)).startsWith("p0", "p1", "p2");
+        assertThat(module.stream(MODULE)).containsExactly(module);
+        assertThat(module.stream(METHOD)).isEmpty();
+
+        assertThat(module.stream(CLASS).parallel().collect(Collectors.toList()))
+                .containsExactlyElementsOf(module.stream(CLASS).collect(Collectors.toList()))
+                .hasSize(600);
+    }
+
+    @Test
+    void shouldSplitTreeIntoSubtrees() {
+        var module = createLargeTree(4, 1);
+        var spliterator = new NodeSpliterator(module, FILE);
+
+        var prefix = Objects.requireNonNull(spliterator.trySplit(), "Tree has not been split");
+
+        var first = new ArrayList<Node>();
+        prefix.forEachRemaining(first::add);
+        var second = new ArrayList<Node>();
+        spliterator.forEachRemaining(second::add);
+        assertThat(first).extracting(Node::getName).containsExactly("f0-0", "f1-0");
+        assertThat(second).extracting(Node::getName).containsExactly("f2-0", "f3-0");
+
+        var leaf = new NodeSpliterator(new FileNode("leaf", "path"), FILE);
+        assertThat(Optional.ofNullable(leaf.trySplit())).isEmpty();
+    }
+
+    private ModuleNode createLargeTree(final int packages, final int files) {
+        var module = new ModuleNode("module");
+        for (int p = 0; p < packages; p++) {
+            var packageNode = module.findOrCreatePackageNode("p" + p);
+            for (int f = 0; f < files; f++) {
+                packageNode.createFileNode("f" + p + "-" + f, TreeString.valueOf("p" + p + "/f" + f))
+                        .createClassNode("c" + p + "-" + f);
+            }
+        }
+        return module;
+    }
+
     private static Coverage getCoverage(final Node node, final Metric metric) {
         return (Coverage) node.getValue(metric).orElseThrow();
     }
@@ -242,6 +319,54 @@ class NodeTest {
         assertThat(node.findByHashCode(FILE, childNode.getName().hashCode())).isPresent().contains(childNode);
     }
 
+    @Test
+    void shouldFindNodesInSubtreesAfterModifications() {
+        var module = new ModuleNode("module");
+        var first = module.findOrCreatePackageNode("first");
+        var second = module.findOrCreatePackageNode("second");
+        var firstFile = first.createFileNode("File.java", TreeString.valueOf("first/File.java"));
+        var secondFile = second.createFileNode("File.java", TreeString.valueOf("second/File.java"));
+
+        assertThat(second.findFile("File.java")).contains(secondFile);
+        assertThat(module.findFile("File.java")).contains(firstFile);
+
+        var other = second.createFileNode("Other.java", TreeString.valueOf("second/Other.java"));
+        assertThat(second.findFile("Other.java")).contains(other);
+        assertThat(first.findFile("Other.java")).isEmpty();
+        assertThat(first.findFile("File.java")).contains(firstFile);
+        assertThat(module.findFile("second/File.java")).contains(secondFile);
+        assertThat(module.findFile("Other.java")).contains(other);
+
+        first.removeChild(firstFile);
+        assertThat(module.findFile("File.java")).contains(secondFile);
+        assertThat(first.findFile("File.java")).isEmpty();
+    }
+
+    @Test
+    void shouldFindAppendedNodesWhileBuildingTree() {
+        var module = new ModuleNode("module");
+        var first = module.findOrCreatePackageNode("first");
+        var firstFile = first.findOrCreateFileNode("File.java", TreeString.valueOf("first/File.java"));
+        assertThat(module.findFile("File.java")).contains(firstFile);
+
+        var second = module.findOrCreatePackageNode("second");
+        var secondFile = second.findOrCreateFileNode("File.java", TreeString.valueOf("second/File.java"));
+        var secondClass = secondFile.findOrCreateClassNode("Class");
+        var method = secondClass.findOrCreateMethodNode("method", "()V");
+        assertThat(module.findFile("second/File.java")).contains(secondFile);
+        assertThat(module.findFile("File.java")).contains(firstFile);
+        assertThat(module.findMethod("method", "()V")).contains(method);
+        assertThat(second.findOrCreateClassNode("Class")).isSameAs(secondClass);
+        assertThat(first.findClass("Class")).isEmpty();
+
+        var firstClass = firstFile.findOrCreateClassNode("Class"); // not the last path of the index
+        assertThat(module.findClass("Class")).contains(firstClass);
+        assertThat(second.findClass("Class")).contains(secondClass);
+        assertThat(first.findOrCreateClassNode("Class")).isSameAs(firstClass);
+        assertThat(first).hasOnlyChildren(firstFile);
+        assertThat(second).hasOnlyChildren(secondFile);
+    }
+
     @Test
     void shouldNotAcceptIncompatibleNodes() {
         var module = new ModuleNode("edu.hm.hafner.module1");
@@ -308,6 +433,31 @@ class NodeTest {
         );
     }
 
+    @Test
+    void shouldMergePackagesWithManyFiles() {
+        var left = new PackageNode("edu.hm.hafner");
+        var right = new PackageNode("edu.hm.hafner");
+        for (int i = 0; i < 2000; i++) {
+            createFileWithLine(left, "Left" + i + ".java", 1);
+            createFileWithLine(right, "Right" + i + ".java", 0);
+            if (i % 2 == 0) {
+                createFileWithLine(left, "Both" + i + ".java", 0);
+                createFileWithLine(right, "Both" + i + ".java", 1);
+            }
+        }
+
+        var merged = left.merge(right);
+
+        assertThat(merged.getChildren()).hasSize(5000);
+        assertThat(merged.getValue(LINE)).contains(new CoverageBuilder(LINE).withCovered(3000).withMissed(2000).build());
+    }
+
+    private void createFileWithLine(final PackageNode packageNode, final String fileName, final int covered) {
+        var file = packageNode.createFileNode(fileName, TreeString.valueOf(fileName));
+        file.addCounters(1, covered, 1 - covered);
+        file.addValue(new CoverageBuilder(LINE).withCovered(covered).withMissed(1 - covered).build());
+    }
+
     @Test
     void shouldKeepChildNodesAfterCombiningReportWithSamePackage() {
         Node module = new ModuleNode("edu.hm.hafner.module1");
@@ -539,6 +689,51 @@ class NodeTest {
                 builder.withMetric(BRANCH).withCovered(4).withMissed(4).build());
     }
 
+    @Test
+    void shouldCreateEmptyViewsWithoutChanges() {
+        Node tree = createTreeWithoutCoverage();
+
+        verifyEmptyTree(tree, tree.viewByModifiedLines());
+        verifyEmptyTree(tree, tree.viewByModifiedFiles());
+        verifyEmptyTree(tree, tree.viewByIndirectChanges());
+    }
+
+    @Test
+    void shouldCreateViewsOfModifiedLinesAndFiles() {
+        Node tree = createTreeWithoutCoverage();
+        var file = tree.findFile(COVERED_FILE).orElseThrow();
+        registerCoverageWithoutChange(file);
+        registerCodeChangesAndCoverage(file);
+
+        var modifiedLines = tree.viewByModifiedLines();
+        assertThat(modifiedLines.getValue(LINE)).isEqualTo(tree.filterByModifiedLines().getValue(LINE));
+        assertThat(modifiedLines).isEqualTo(tree.filterByModifiedLines());
+        verifyFilteredTree(tree, tree.viewByModifiedLines(), this::verifyModifiedLines);
+
+        assertThat(tree.viewByModifiedFiles()).isEqualTo(tree.filterByModifiedFiles());
+        verifyFilteredTree(tree, tree.viewByModifiedFiles(), this::verifyModifiedFiles);
+    }
+
+    @Test
+    void shouldCreateViewOfIndirectChanges() {
+        Node tree = createTreeWithoutCoverage();
+        registerIndirectCoverageChanges(tree.findFile(COVERED_FILE).orElseThrow());
+
+        assertThat(tree.viewByIndirectChanges())
+                .isEqualTo(tree.filterByIndirectChanges())
+                .satisfies(this::verifyIndirectChanges);
+    }
+
+    @Test
+    void shouldSerializeView() {
+        Node tree = createTreeWithoutCoverage();
+        registerCodeChangesAndCoverage(tree.findFile(COVERED_FILE).orElseThrow());
+
+        var view = tree.viewByModifiedLines();
+
+        assertThat(SerializationUtils.clone(view)).isEqualTo(tree.filterByModifiedLines());
+    }
+
     private void registerCodeChangesAndCoverage(final FileNode file) {
         file.addModifiedLines(
                 10, 11, 12, 13, // line
@@ -800,6 +995,344 @@ class NodeTest {
         assertThat(fileA.getTypedValue(BRANCH, defaultCoverage)).isEqualTo(defaultCoverage);
     }
 
+    @Test
+    void shouldFindOrCreateChildren() {
+        var module = new ModuleNode("module");
+        var packageNode = module.findOrCreatePackageNode("edu/hm/hafner");
+        assertThat(packageNode).hasName("edu.hm.hafner");
+        assertThat(module.findOrCreatePackageNode("edu.hm.hafner")).isSameAs(packageNode);
+
+        var file = packageNode.findOrCreateFileNode(COVERED_FILE, TreeString.valueOf("path/" + COVERED_FILE));
+        assertThat(packageNode.findOrCreateFileNode(COVERED_FILE, TreeString.valueOf("other"))).isSameAs(file);
+
+        var classInFile = file.findOrCreateClassNode(COVERED_CLASS);
+        assertThat(file.findOrCreateClassNode(COVERED_CLASS)).isSameAs(classInFile);
+        var classInPackage = packageNode.findOrCreateClassNode(MISSED_CLASS);
+        assertThat(packageNode.findOrCreateClassNode(MISSED_CLASS)).isSameAs(classInPackage);
+
+        assertThat(module).hasChildren(packageNode);
+        assertThat(packageNode).hasOnlyChildren(file, classInPackage);
+        assertThat(file).hasOnlyChildren(classInFile);
+    }
+
+    @Test
+    void shouldFindOrCreateNodesInSubtree() {
+        var module = new ModuleNode("module");
+        var subModule = new ModuleNode("sub-module");
+        module.addChild(subModule);
+        var nestedPackage = subModule.findOrCreatePackageNode("edu.hm.hafner");
+        assertThat(module.findOrCreatePackageNode("edu.hm.hafner")).isSameAs(nestedPackage);
+
+        var file = nestedPackage.findOrCreateFileNode(COVERED_FILE, TreeString.valueOf("path/" + COVERED_FILE));
+        var classInFile = file.findOrCreateClassNode(COVERED_CLASS);
+        assertThat(nestedPackage.findOrCreateClassNode(COVERED_CLASS)).isSameAs(classInFile);
+        assertThat(nestedPackage).hasOnlyChildren(file);
+
+        var childPackage = module.findOrCreateChildPackageNode("edu.hm.hafner");
+        assertThat(childPackage).isNotSameAs(nestedPackage);
+        assertThat(module).hasOnlyChildren(subModule, childPackage);
+        assertThat(module.findOrCreatePackageNode("edu.hm.hafner")).isSameAs(childPackage);
+
+        var classInPackage = nestedPackage.findOrCreateChildClassNode(COVERED_CLASS);
+        assertThat(classInPackage).isNotSameAs(classInFile);
+        assertThat(nestedPackage).hasOnlyChildren(file, classInPackage);
+        assertThat(nestedPackage.findOrCreateChildFileNode(COVERED_FILE, TreeString.valueOf("other"))).isSameAs(file);
+        assertThat(file.findOrCreateChildClassNode(COVERED_CLASS)).isSameAs(classInFile);
+    }
+
+    @Test
+    void shouldUpdateChildIndexWhenChildrenAreRemoved() {
+        var module = new ModuleNode("module");
+        var packageNode = module.findOrCreatePackageNode("package");
+
+        assertThat(module.hasChild("package")).isTrue();
+        assertThat(module.findChild(PACKAGE, "package")).contains(packageNode);
+        assertThat(module.findChild(FILE, "package")).isEmpty();
+
+        module.removeChild(packageNode);
+
+        assertThat(module.hasChild("package")).isFalse();
+        assertThat(module.findChild(PACKAGE, "package")).isEmpty();
+        assertThat(module.findOrCreatePackageNode("package")).isNotSameAs(packageNode);
+    }
+
+    @Test
+    void shouldFindNodesInSubtree() {
+        var module = new ModuleNode("module");
+        var first = module.findOrCreatePackageNode("first");
+        var firstFile = first.findOrCreateFileNode(COVERED_FILE, TreeString.valueOf("first/" + COVERED_FILE));
+        var firstClass = firstFile.findOrCreateClassNode(COVERED_CLASS);
+        var firstMethod = firstClass.createMethodNode("method", "()V");
+        var second = module.findOrCreatePackageNode("second");
+        var secondFile = second.findOrCreateFileNode(COVERED_FILE, TreeString.valueOf("second/" + COVERED_FILE));
+        var secondClass = secondFile.findOrCreateClassNode(MISSED_CLASS);
+        var secondMethod = secondClass.createMethodNode("method", "()V");
+
+        assertThat(module.find(MODULE, "module")).contains(module);
+        assertThat(module.findPackage("second")).contains(second);
+        assertThat(module.findFile(COVERED_FILE)).contains(firstFile);
+        assertThat(module.findFile("second/" + COVERED_FILE)).contains(secondFile);
+        assertThat(module.findClass(MISSED_CLASS)).contains(secondClass);
+        assertThat(module.findMethod("method", "()V")).contains(firstMethod);
+        assertThat(module.findMethod("method", "(I)V")).isEmpty();
+        assertThat(module.findByHashCode(FILE, "second/Covered.java".hashCode())).contains(secondFile);
+        assertThat(module.findByHashCode(CLASS, COVERED_CLASS.hashCode())).contains(firstClass);
+        assertThat(module.find(PACKAGE, "third")).isEmpty();
+
+        assertThat(second.findFile(COVERED_FILE)).contains(secondFile);
+        assertThat(second.findMethod("method", "()V")).contains(secondMethod);
+        assertThat(second.findClass(COVERED_CLASS)).isEmpty();
+    }
+
+    @Test
+    void shouldUpdateFindResultsWhenSubtreeChanges() {
+        var module = new ModuleNode("module");
+        var packageNode = module.findOrCreatePackageNode("package");
+        var file = packageNode.findOrCreateFileNode(COVERED_FILE, TreeString.valueOf("old/" + COVERED_FILE));
+
+        assertThat(module.findClass(COVERED_CLASS)).isEmpty();
+        assertThat(module.findFile("old/" + COVERED_FILE)).contains(file);
+
+        var classNode = file.findOrCreateClassNode(COVERED_CLASS);
+        assertThat(module.findClass(COVERED_CLASS)).contains(classNode);
+
+        file.setRelativePath(TreeString.valueOf("new/" + COVERED_FILE));
+        assertThat(module.findFile("old/" + COVERED_FILE)).isEmpty();
+        assertThat(module.findFile("new/" + COVERED_FILE)).contains(file);
+
+        packageNode.removeChild(file);
+        assertThat(module.findFile(COVERED_FILE)).isEmpty();
+        assertThat(module.findClass(COVERED_CLASS)).isEmpty();
+        assertThat(file.findClass(COVERED_CLASS)).contains(classNode);
+
+        var otherModule = new ModuleNode("other");
+        var otherPackage = otherModule.findOrCreatePackageNode("other");
+        otherPackage.addChild(file);
+        assertThat(otherModule.findClass(COVERED_CLASS)).contains(classNode);
+        assertThat(otherPackage.findFile("new/" + COVERED_FILE)).contains(file);
+        assertThat(file.findClass(COVERED_CLASS)).contains(classNode);
+
+        var snapshot = otherModule.freeze();
+        var copy = snapshot.getChildren().get(0).copyTree(snapshot); // the copy is not a child of the snapshot
+        assertThat(copy.findClass(COVERED_CLASS).orElseThrow()).isSameAs(copy.getAll(CLASS).get(0));
+        assertThat(snapshot.findClass(COVERED_CLASS).orElseThrow()).isSameAs(snapshot.getAll(CLASS).get(0));
+    }
+
+    @Test
+    void shouldRecomputeCachedValuesWhenSubtreeChanges() {
+        var module = new ModuleNode("module");
+        var packageNode = module.findOrCreatePackageNode("package");
+        var file = packageNode.findOrCreateFileNode(COVERED_FILE, TreeString.valueOf(COVERED_FILE));
+        var classNode = file.findOrCreateClassNode(COVERED_CLASS);
+        var builder = new CoverageBuilder(LINE);
+        classNode.addValue(builder.withCovered(1).withMissed(1).build());
+
+        assertThat(module.getValue(LINE)).contains(builder.withCovered(1).withMissed(1).build());
+        assertThat(module.getValue(LINE)).isSameAs(module.getValue(LINE));
+        assertThat(module.getValue(TESTS)).isEmpty();
+
+        classNode.replaceValue(builder.withCovered(2).withMissed(1).build());
+        assertThat(module.getValue(LINE)).contains(builder.withCovered(2).withMissed(1).build());
+
+        var otherClass = file.findOrCreateClassNode(MISSED_CLASS);
+        otherClass.addValue(builder.withCovered(0).withMissed(5).build());
+        assertThat(module.getValue(LINE)).contains(builder.withCovered(2).withMissed(6).build());
+        assertThat(module.getValue(CLASS)).contains(new CoverageBuilder(CLASS).withCovered(1).withMissed(1).build());
+
+        otherClass.addTestCase(new TestCase.TestCaseBuilder().withTestName("test").build());
+        assertThat(module.getValue(TESTS)).contains(new TestCount(1));
+
+        file.removeChild(otherClass);
+        assertThat(module.getValue(LINE)).contains(builder.withCovered(2).withMissed(1).build());
+        assertThat(module.getValue(TESTS)).isEmpty();
+    }
+
+    @Test
+    void shouldKeepCachedValuesOfSourceWhenCopyingTree() {
+        var tree = createTreeWithoutCoverage();
+        var packageNode = tree.getChildren().get(0);
+        var classNode = tree.findClass(COVERED_CLASS).orElseThrow();
+        classNode.addValue(new CoverageBuilder(LINE).withCovered(1).withMissed(1).build());
+
+        var treeValue = tree.getValue(LINE);
+        var packageValue = packageNode.getValue(LINE);
+
+        var copy = tree.copyTree();
+
+        assertThat(copy).isEqualTo(tree);
+        assertThat(tree.getValue(LINE)).isSameAs(treeValue);
+        assertThat(packageNode.getValue(LINE)).isSameAs(packageValue);
+        assertThat(classNode.getParent().getParent()).isSameAs(packageNode);
+        assertThat(copy.findClass(COVERED_CLASS).orElseThrow().getParent().getParent())
+                .isSameAs(copy.getChildren().get(0));
+    }
+
+    @Test
+    void shouldRecomputeHashCodeWhenSubtreeChanges() {
+        var tree = (ModuleNode) createTreeWithoutCoverage();
+        var other = (ModuleNode) tree.copyTree();
+        assertThat(tree).isEqualTo(other).hasSameHashCodeAs(other);
+
+        verifyHashCodeAfterChange(tree, other, node -> findCoveredFile(node).addCounters(1, 1, 0));
+        verifyHashCodeAfterChange(tree, other, node -> findCoveredFile(node).addModifiedLines(1));
+        verifyHashCodeAfterChange(tree, other, node -> findCoveredFile(node).addIndirectCoverageChange(1, 5));
+        verifyHashCodeAfterChange(tree, other, node -> findCoveredFile(node).addMutation(
+                new MutationBuilder().withLine(1).withStatus(MutationStatus.KILLED).build()));
+        verifyHashCodeAfterChange(tree, other, node -> findCoveredFile(node).setRelativePath(
+                TreeString.valueOf("other/" + COVERED_FILE)));
+        verifyHashCodeAfterChange(tree, other, node -> node.findClass(COVERED_CLASS).orElseThrow()
+                .addValue(new CoverageBuilder(LINE).withCovered(1).withMissed(0).build()));
+        verifyHashCodeAfterChange(tree, other, node -> node.findClass(COVERED_CLASS).orElseThrow()
+                .addTestCase(new TestCase.TestCaseBuilder().withTestName("test").build()));
+        verifyHashCodeAfterChange(tree, other, node -> node.findClass(MISSED_CLASS).orElseThrow()
+                .findOrCreateMethodNode("method", "()V"));
+        verifyHashCodeAfterChange(tree, other, node -> node.addSource("src"));
+    }
+
+    @Test
+    void shouldDistinguishSwappedCountersByContentHash() {
+        var tree = (ModuleNode) createTreeWithoutCoverage();
+        var other = (ModuleNode) tree.copyTree();
+
+        findCoveredFile(tree).addCounters(1, 3, 5);
+        findCoveredFile(tree).addCounters(2, 5, 3);
+        findCoveredFile(other).addCounters(1, 5, 3);
+        findCoveredFile(other).addCounters(2, 3, 5);
+
+        assertThat(tree.getContentHash()).isNotEqualTo(other.getContentHash());
+        assertThat(tree).isNotEqualTo(other);
+        assertThat(tree.hashCode()).isEqualTo(Long.hashCode(tree.getContentHash()));
+    }
+
+    private FileNode findCoveredFile(final Node tree) {
+        return tree.getAllFileNodes().stream()
+                .filter(file -> file.getName().equals(COVERED_FILE))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private void verifyHashCodeAfterChange(final ModuleNode tree, final ModuleNode other,
+            final ThrowingConsumer<ModuleNode> change) {
+        int hashCode = tree.hashCode();
+
+        change.accept(tree);
+        assertThat(tree.hashCode()).isNotEqualTo(hashCode);
+        assertThat(tree).isNotEqualTo(other);
+
+        change.accept(other);
+        assertThat(tree).isEqualTo(other).hasSameHashCodeAs(other);
+    }
+
+    @Test
+    void shouldCreateFrozenSnapshot() {
+        var tree = createTreeWithoutCoverage();
+        var file = (FileNode) tree.findFile(COVERED_FILE).orElseThrow();
+        registerIndirectCoverageChanges(file);
+
+        var snapshot = tree.freeze();
+
+        assertThat(snapshot).isEqualTo(tree).isNotSameAs(tree).isFrozen();
+        assertThat(snapshot.freeze()).isSameAs(snapshot);
+        assertThat(snapshot.getAll(CLASS)).hasSize(4).allSatisfy(node -> assertThat(node).isFrozen());
+        assertThat(snapshot.aggregateValues()).isEqualTo(tree.aggregateValues());
+        assertThat(snapshot.getValue(LINE)).isSameAs(snapshot.getValue(LINE));
+        assertThat(snapshot.findFile(COVERED_FILE)).contains(file);
+        assertThat(snapshot.findClass(CLASS_WITH_MODIFICATIONS).orElseThrow().getValue(LINE))
+                .isEqualTo(tree.findClass(CLASS_WITH_MODIFICATIONS).orElseThrow().getValue(LINE));
+
+        assertThat(tree).isNotFrozen();
+        tree.addChild(new PackageNode("other")); // the original tree is still mutable
+        assertThat(snapshot.getChildren()).hasSize(1);
+
+        var copy = snapshot.copyTree();
+        assertThat(copy).isNotFrozen();
+        copy.addChild(new PackageNode("other"));
+        assertThat(copy).isEqualTo(tree);
+    }
+
+    @Test
+    void shouldReadSnapshotWhileItIsCopied() throws InterruptedException, ExecutionException {
+        var tree = createTreeWithoutCoverage();
+        registerIndirectCoverageChanges((FileNode) tree.findFile(COVERED_FILE).orElseThrow());
+
+        var snapshot = tree.freeze();
+        var packageNode = snapshot.getChildren().get(0);
+        var file = (FileNode) snapshot.findFile(COVERED_FILE).orElseThrow();
+        var lineCoverage = snapshot.getValue(LINE);
+        var packageCoverage = packageNode.getValue(LINE);
+        int hashCode = snapshot.hashCode();
+        boolean sharingLineData = file.isSharingLineData();
+
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int thread = 0; thread < 2; thread++) {
+                tasks.add(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        packageNode.copyTree(snapshot); // the copy is linked to the frozen root
+                        file.copy();
+                    }
+                    return true;
+                });
+                tasks.add(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        if (!snapshot.getValue(LINE).equals(lineCoverage)
+                                || !packageNode.getValue(LINE).equals(packageCoverage)
+                                || snapshot.hashCode() != hashCode || file.isSharingLineData() != sharingLineData) {
+                            return false;
+                        }
+                    }
+                    return true;
+                });
+            }
+            for (Future<Boolean> result : executor.invokeAll(tasks)) {
+                assertThat(result.get()).isTrue();
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(snapshot.getValue(LINE)).isSameAs(lineCoverage);
+        assertThat(packageNode.getValue(LINE)).isSameAs(packageCoverage);
+        assertThat(file.isSharingLineData()).isEqualTo(sharingLineData);
+        assertThat(snapshot).isEqualTo(tree).hasSameHashCodeAs(tree);
+    }
+
+    @Test
+    void shouldRejectModificationsOfFrozenSnapshot() {
+        var tree = createTreeWithoutCoverage();
+        registerIndirectCoverageChanges((FileNode) tree.findFile(COVERED_FILE).orElseThrow());
+
+        var snapshot = (ModuleNode) tree.freeze();
+        var packageNode = snapshot.getChildren().get(0);
+        var file = (FileNode) snapshot.findFile(COVERED_FILE).orElseThrow();
+        var classNode = snapshot.findClass(CLASS_WITH_MODIFICATIONS).orElseThrow();
+        var line = new CoverageBuilder(LINE).withCovered(1).withMissed(1).build();
+
+        assertThatUnsupportedOperation(() -> snapshot.addChild(new PackageNode("other")));
+        assertThatUnsupportedOperation(() -> snapshot.addSource("src"));
+        assertThatUnsupportedOperation(snapshot::splitPackages);
+        assertThatUnsupportedOperation(() -> snapshot.findOrCreatePackageNode("other"));
+        assertThatUnsupportedOperation(() -> packageNode.removeChild(file));
+        assertThatUnsupportedOperation(() -> classNode.replaceValue(line));
+        assertThatUnsupportedOperation(() -> classNode.addTestCase(new TestCase.TestCaseBuilder().build()));
+        assertThatUnsupportedOperation(() -> classNode.getTestCases().clear());
+        assertThatUnsupportedOperation(() -> file.addCounters(100, 1, 0));
+        assertThatUnsupportedOperation(() -> file.addModifiedLines(100));
+        assertThatUnsupportedOperation(() -> file.getModifiedLines().add(100));
+        assertThatUnsupportedOperation(() -> file.addIndirectCoverageChange(100, 1));
+        assertThatUnsupportedOperation(() -> file.addMutation(new MutationBuilder().build()));
+        assertThatUnsupportedOperation(() -> file.setRelativePath(TreeString.valueOf("other")));
+        assertThatUnsupportedOperation(() -> file.computeDelta(file));
+
+        assertThat(snapshot).isEqualTo(tree);
+    }
+
+    private void assertThatUnsupportedOperation(final ThrowingCallable callable) {
+        assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(callable);
+    }
+
     @Test
     void shouldThrowExceptionWhenTryingToRemoveNodeThatIsNotAChild() {
         Node moduleNode = new ModuleNode("module");
@@ -0,0 +1,179 @@
+package edu.hm.hafner.coverage;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import edu.hm.hafner.coverage.OffHeapLineCounterStorage.ReadGuard;
+
+import edu.hm.hafner.util.TreeString;
+
+import static edu.hm.hafner.coverage.assertions.Assertions.*;
+
+class OffHeapLineCounterStorageTest {
+    private static final int SLAB_SIZE = 256;
+    private static final String SMALL_FILE = "Small.java";
+    private static final String LARGE_FILE = "Large.java";
+
+    @Test
+    void shouldStoreLineCountersOutsideOfHeap() {
+        try (var storage = new OffHeapLineCounterStorage(SLAB_SIZE)) {
+            var tree = createTree();
+
+            var snapshot = storage.freeze(tree);
+
+            assertThat(snapshot).isEqualTo(tree).hasSameHashCodeAs(tree);
+            assertThat(snapshot.isFrozen()).isTrue();
+            assertThat(storage.getUsedBytes()).isEqualTo(SLAB_SIZE + 3 * Integer.BYTES * 100);
+
+            var small = snapshot.findFile(SMALL_FILE).orElseThrow();
+            assertThat(small.getLineCounters().isOffHeap()).isTrue();
+            assertThat(tree.findFile(SMALL_FILE).orElseThrow().getLineCounters().isOffHeap()).isFalse();
+            assertThat(small.getLinesWithCoverage()).containsExactly(1, 2, 3, 4, 5);
+            assertThat(small.getCoveredOfLine(2)).isEqualTo(2);
+            assertThat(small.getMissedOfLine(2)).isEqualTo(1);
+            assertThat(small.getMissedLines()).containsExactly(5);
+            assertThat(small.getPartiallyCoveredLines()).containsExactly(entry(2, 1));
+            assertThat(small.hasCoverageForLine(6)).isFalse();
+
+            var large = snapshot.findFile(LARGE_FILE).orElseThrow();
+            assertThat(large.getCoveredCounters()).hasSize(100);
+            assertThat(large.getCoveredAndModifiedLines()).containsExactly(10, 20);
+        }
+    }
+
+    @Test
+    void shouldCopySnapshotToHeap() {
+        try (var storage = new OffHeapLineCounterStorage(SLAB_SIZE)) {
+            var tree = createTree();
+            var snapshot = storage.freeze(tree);
+
+            var copy = snapshot.copyTree();
+            var copiedFile = copy.findFile(SMALL_FILE).orElseThrow();
+            assertThat(copiedFile.getLineCounters().isOffHeap()).isFalse();
+
+            storage.release(snapshot);
+
+            assertThat(copy).isEqualTo(tree);
+            copiedFile.addCounters(6, 1, 0);
+            assertThat(copiedFile.getLinesWithCoverage()).containsExactly(1, 2, 3, 4, 5, 6);
+        }
+    }
+
+    @Test
+    void shouldRejectAccessToReleasedSnapshot() {
+        try (var storage = new OffHeapLineCounterStorage(SLAB_SIZE)) {
+            var tree = createTree();
+            var snapshot = storage.freeze(tree);
+            var releasedFile = snapshot.findFile(SMALL_FILE).orElseThrow();
+
+            storage.release(snapshot);
+
+            assertThat(storage.getUsedBytes()).isZero();
+            assertThat(snapshot.getName()).isEqualTo("module");
+            assertThatIllegalStateException().isThrownBy(() -> releasedFile.getCoveredOfLine(1))
+                    .withMessage("The line counters have been released");
+            assertThatIllegalStateException().isThrownBy(releasedFile::getLinesWithCoverage);
+            assertThatIllegalStateException().isThrownBy(snapshot::copyTree);
+            assertThatIllegalArgumentException().isThrownBy(() -> storage.release(snapshot))
+                    .withMessageContaining("is not a snapshot of this storage");
+
+            var small = tree.findFile(SMALL_FILE).orElseThrow();
+            small.addCounters(1, 0, 1); // the next snapshot must not reuse the memory of the released snapshot
+            var next = storage.freeze(tree);
+            assertThat(next).isEqualTo(tree);
+            assertThat(next.findFile(SMALL_FILE).orElseThrow().getCoveredOfLine(1)).isZero();
+            assertThatIllegalStateException().isThrownBy(() -> releasedFile.getCoveredOfLine(1));
+        }
+    }
+
+    @Test
+    void shouldFreeMemoryOfReleasedSnapshot() {
+        assertThat(OffHeapLineCounterStorage.isExplicitFreeSupported()).isTrue();
+
+        try (var storage = new OffHeapLineCounterStorage(SLAB_SIZE)) {
+            var tree = createTree();
+            long before = getUsedDirectMemory();
+
+            var snapshot = storage.freeze(tree);
+            assertThat(getUsedDirectMemory()).isEqualTo(before + storage.getUsedBytes());
+
+            storage.release(snapshot);
+            assertThat(getUsedDirectMemory()).isEqualTo(before);
+        }
+    }
+
+    private long getUsedDirectMemory() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+
+    @Test
+    void shouldFreeSlabsAfterLastReader() {
+        var freed = new AtomicInteger();
+        var guard = new ReadGuard(freed::incrementAndGet);
+
+        assertThat(guard.enter()).isTrue();
+        assertThat(guard.enter()).isTrue();
+
+        guard.close();
+        assertThat(freed).hasValue(0);
+        assertThat(guard.enter()).isFalse();
+
+        guard.exit();
+        assertThat(freed).hasValue(0);
+        guard.exit();
+        assertThat(freed).hasValue(1);
+
+        var unused = new ReadGuard(freed::incrementAndGet);
+        unused.close();
+        assertThat(freed).hasValue(2);
+    }
+
+    @Test
+    void shouldRejectFreezeAfterClose() {
+        var storage = new OffHeapLineCounterStorage();
+        var tree = createTree();
+        var snapshot = storage.freeze(tree);
+
+        storage.close();
+
+        assertThat(storage.getUsedBytes()).isZero();
+        assertThatIllegalStateException()
+                .isThrownBy(() -> snapshot.findFile(LARGE_FILE).orElseThrow().getCoveredCounters())
+                .withMessage("The line counters have been released");
+        assertThatIllegalStateException().isThrownBy(() -> storage.freeze(tree))
+                .withMessage("The storage has been closed");
+        assertThatIllegalArgumentException().isThrownBy(() -> new OffHeapLineCounterStorage(0))
+                .withMessageContaining("The slab size must be positive: 0");
+    }
+
+    private ModuleNode createTree() {
+        var module = new ModuleNode("module");
+        var packageNode = module.findOrCreatePackageNode("package");
+
+        var small = packageNode.createFileNode(SMALL_FILE, TreeString.valueOf("package/" + SMALL_FILE));
+        small.addCounters(1, 1, 0);
+        small.addCounters(2, 2, 1);
+        small.addCounters(3, 1, 0);
+        small.addCounters(4, 1, 0);
+        small.addCounters(5, 0, 1);
+        small.createClassNode("Small");
+
+        var large = packageNode.createFileNode(LARGE_FILE, TreeString.valueOf("package/" + LARGE_FILE));
+        for (int line = 1; line <= 100; line++) {
+            large.addCounters(line, line % 2, 1 - line % 2);
+        }
+        large.addModifiedLines(10, 20, 200);
+        large.createClassNode("Large");
+
+        var empty = packageNode.createFileNode("Empty.java", TreeString.valueOf("package/Empty.java"));
+        empty.createClassNode("Empty");
+
+        return module;
+    }
+}
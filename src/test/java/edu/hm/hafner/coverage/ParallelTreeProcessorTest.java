@@ -0,0 +1,86 @@
+package edu.hm.hafner.coverage;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import edu.hm.hafner.util.TreeString;
+
+import static edu.hm.hafner.coverage.assertions.Assertions.*;
+
+class ParallelTreeProcessorTest {
+    private static final int PACKAGES = 10;
+    private static final int FILES = 10;
+
+    @ParameterizedTest(name = "threshold = {0}")
+    @ValueSource(ints = {1, 5, 50, ParallelTreeProcessor.DEFAULT_THRESHOLD})
+    void shouldAggregateSameValuesAsSequentialAggregation(final int threshold) {
+        var processor = new ParallelTreeProcessor(ForkJoinPool.commonPool(), threshold);
+        var tree = createTree();
+
+        assertThat(processor.aggregateValues(tree)).containsExactlyElementsOf(tree.copyTree().aggregateValues());
+        for (Metric metric : Metric.values()) {
+            assertThat(tree.getValue(metric)).isEqualTo(tree.copyTree().getValue(metric));
+        }
+        var frozen = tree.freeze();
+        assertThat(processor.aggregateValues(frozen)).containsExactlyElementsOf(tree.aggregateValues());
+    }
+
+    @ParameterizedTest(name = "threshold = {0}")
+    @ValueSource(ints = {1, 5, 50, ParallelTreeProcessor.DEFAULT_THRESHOLD})
+    void shouldFilterSameTreesAsSequentialFilters(final int threshold) {
+        var processor = new ParallelTreeProcessor(ForkJoinPool.commonPool(), threshold);
+        var tree = createTree();
+        var packageNode = tree.getChildren().get(0);
+        var lineCoverage = tree.getValue(Metric.LINE);
+        var packageCoverage = packageNode.getValue(Metric.LINE);
+
+        assertThat(processor.filterByModifiedLines(tree)).isEqualTo(tree.filterByModifiedLines());
+        assertThat(processor.filterByModifiedFiles(tree)).isEqualTo(tree.filterByModifiedFiles());
+        assertThat(processor.filterByIndirectChanges(tree)).isEqualTo(tree.filterByIndirectChanges());
+
+        // filtering copies the nodes and must not discard the cached values of the source tree
+        assertThat(tree.getValue(Metric.LINE)).isSameAs(lineCoverage);
+        assertThat(packageNode.getValue(Metric.LINE)).isSameAs(packageCoverage);
+
+        var empty = new ModuleNode("empty");
+        assertThat(processor.filterByModifiedLines(empty)).isEqualTo(empty.filterByModifiedLines());
+    }
+
+    @ParameterizedTest(name = "threshold = {0}")
+    @ValueSource(ints = {1, 5, 50, ParallelTreeProcessor.DEFAULT_THRESHOLD})
+    void shouldMergeSameTreesAsSequentialMerge(final int threshold) {
+        var processor = new ParallelTreeProcessor(ForkJoinPool.commonPool(), threshold);
+        var tree = createTree();
+        var other = createTree();
+        other.findOrCreatePackageNode("additional")
+                .createFileNode("Additional.java", TreeString.valueOf("additional/Additional.java"))
+                .addCounters(1, 1, 0);
+        ((FileNode) other.findFile("File0.java").orElseThrow()).addCounters(11, 1, 0);
+
+        var sameModules = List.of(tree, other, createTree());
+        assertThat(processor.merge(sameModules)).isEqualTo(Node.merge(sameModules)).isNotSameAs(tree);
+        assertThat(tree).isEqualTo(createTree());
+
+        var differentModules = List.of(tree, new ModuleNode("other"), other);
+        assertThat(processor.merge(differentModules)).isEqualTo(Node.merge(differentModules));
+
+        assertThat(processor.merge(List.of(tree))).isSameAs(tree);
+        assertThatIllegalArgumentException().isThrownBy(() -> processor.merge(List.of()));
+    }
+
+    @Test
+    void shouldRejectInvalidThreshold() {
+        var pool = ForkJoinPool.commonPool();
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new ParallelTreeProcessor(pool, 0))
+                .withMessageContaining("The threshold must be positive: 0");
+    }
+
+    private ModuleNode createTree() {
+        return AbstractNodeTest.createTree(PACKAGES, FILES);
+    }
+}
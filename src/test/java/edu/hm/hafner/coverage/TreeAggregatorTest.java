@@ -0,0 +1,112 @@
+package edu.hm.hafner.coverage;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import edu.hm.hafner.coverage.Coverage.CoverageBuilder;
+import edu.hm.hafner.util.TreeString;
+
+import static edu.hm.hafner.coverage.Metric.CLASS;
+import static edu.hm.hafner.coverage.Metric.FILE;
+import static edu.hm.hafner.coverage.Metric.*;
+import static edu.hm.hafner.coverage.assertions.Assertions.*;
+
+class TreeAggregatorTest {
+    @Test
+    void shouldAggregateAllMetrics() {
+        var module = createTree();
+
+        assertThat(module.aggregateValues()).containsExactly(
+                new CoverageBuilder(MODULE).withCovered(1).withMissed(0).build(),
+                new CoverageBuilder(PACKAGE).withCovered(1).withMissed(0).build(),
+                new CoverageBuilder(FILE).withCovered(1).withMissed(0).build(),
+                new CoverageBuilder(CLASS).withCovered(1).withMissed(1).build(),
+                new CoverageBuilder(METHOD).withCovered(1).withMissed(1).build(),
+                new CoverageBuilder(LINE).withCovered(5).withMissed(10).build(),
+                new CoverageBuilder(BRANCH).withCovered(1).withMissed(1).build(),
+                new CyclomaticComplexity(13),
+                new CyclomaticComplexity(4, COMPLEXITY_MAXIMUM),
+                new FractionValue(COMPLEXITY_DENSITY, 13, 15),
+                new LinesOfCode(15),
+                new TestCount(2));
+        assertThat(module.aggregateValues()).isEqualTo(aggregatePerMetric(module.copyTree()));
+    }
+
+    @Test
+    void shouldUseValuesOfNodesInsteadOfChildren() {
+        var module = createTree();
+        var classNode = module.findClass("Covered").orElseThrow();
+        classNode.replaceValue(new CoverageBuilder(LINE).withCovered(100).withMissed(100).build());
+        classNode.replaceValue(new CyclomaticComplexity(100));
+
+        assertThat(module.getMetricsDistribution())
+                .containsEntry(LINE, new CoverageBuilder(LINE).withCovered(100).withMissed(105).build())
+                .containsEntry(COMPLEXITY, new CyclomaticComplexity(103))
+                .containsEntry(COMPLEXITY_MAXIMUM, new CyclomaticComplexity(4, COMPLEXITY_MAXIMUM));
+        assertThat(module.aggregateValues()).isEqualTo(aggregatePerMetric(module.copyTree()));
+    }
+
+    @Test
+    void shouldFallBackToEvaluatorsForUnsupportedValues() {
+        var module = createTree();
+        module.addValue(new FractionValue(TESTS, 1, 2));
+
+        assertThat(module.aggregateValues()).isEqualTo(aggregatePerMetric(module.copyTree()));
+    }
+
+    @Test
+    void shouldAggregateAllNodesOfTree() {
+        var module = createTree();
+        module.addValue(new FractionValue(TESTS, 1, 2));
+        var expected = module.copyTree();
+
+        new TreeAggregator().aggregateAll(module);
+
+        assertThat(module.getAll(CLASS)).hasSize(2).allSatisfy(node -> assertThat(node.aggregateValues())
+                .isEqualTo(aggregatePerMetric(expected.find(CLASS, node.getName()).orElseThrow())));
+        assertThat(module.getAll(METHOD)).hasSize(2).allSatisfy(node -> assertThat(node.aggregateValues())
+                .isEqualTo(aggregatePerMetric(expected.find(METHOD, node.getName()).orElseThrow())));
+        assertThat(module.aggregateValues()).isEqualTo(aggregatePerMetric(expected));
+    }
+
+    @Test
+    void shouldAggregateEmptyNode() {
+        var module = new ModuleNode("empty");
+
+        assertThat(module.aggregateValues()).containsExactly(
+                new CoverageBuilder(MODULE).withCovered(0).withMissed(1).build());
+    }
+
+    private List<Value> aggregatePerMetric(final Node node) {
+        return node.getMetrics().stream()
+                .map(metric -> metric.getValueFor(node))
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+    }
+
+    private ModuleNode createTree() {
+        var module = new ModuleNode("module");
+        var file = module.findOrCreatePackageNode("package")
+                .findOrCreateFileNode("File.java", TreeString.valueOf("package/File.java"));
+
+        var covered = file.findOrCreateClassNode("Covered");
+        covered.addValue(new CyclomaticComplexity(10)); // not part of the maximum since it is not a method
+        covered.addTestCase(new TestCase.TestCaseBuilder().withTestName("first").build());
+        covered.addTestCase(new TestCase.TestCaseBuilder().withTestName("second").build());
+        var coveredMethod = covered.findOrCreateMethodNode("covered", "()V");
+        coveredMethod.addValue(new CoverageBuilder(LINE).withCovered(5).withMissed(5).build());
+        coveredMethod.addValue(new CoverageBuilder(BRANCH).withCovered(1).withMissed(1).build());
+        coveredMethod.addValue(new CyclomaticComplexity(4));
+
+        var missed = file.findOrCreateClassNode("Missed");
+        var missedMethod = missed.findOrCreateMethodNode("missed", "()V");
+        missedMethod.addValue(new CoverageBuilder(LINE).withCovered(0).withMissed(5).build());
+        missedMethod.addValue(new CyclomaticComplexity(3));
+        missed.addValue(new LinesOfCode(1000)); // ignored: the lines of code are derived from the line coverage
+
+        return module;
+    }
+}
@@ -0,0 +1,194 @@
+package edu.hm.hafner.coverage;
+
+import org.apache.commons.lang3.math.Fraction;
+import org.junit.jupiter.api.Test;
+
+import edu.hm.hafner.coverage.Coverage.CoverageBuilder;
+import edu.hm.hafner.coverage.TreeDiff.Change;
+import edu.hm.hafner.coverage.TreeDiff.ChangeType;
+import edu.hm.hafner.util.TreeString;
+
+import static edu.hm.hafner.coverage.Metric.CLASS;
+import static edu.hm.hafner.coverage.Metric.FILE;
+import static edu.hm.hafner.coverage.Metric.*;
+import static org.assertj.core.api.Assertions.*;
+
+class TreeDiffTest {
+    private static final String CHANGED_FILE = "Changed.java";
+    private static final String SAME_FILE = "Same.java";
+
+    @Test
+    void shouldReportNoChangesForEqualTrees() {
+        var reference = createTree();
+
+        assertThat(new TreeDiff().compare(reference, reference)).isEmpty();
+        assertThat(new TreeDiff().compare(reference, reference.copyTree())).isEmpty();
+    }
+
+    @Test
+    void shouldIgnoreOrderOfChildren() {
+        var reference = createTree();
+        var current = new ModuleNode("module");
+        var packageNode = current.findOrCreatePackageNode("package");
+        packageNode.createFileNode(CHANGED_FILE, TreeString.valueOf("package/" + CHANGED_FILE))
+                .createClassNode("ChangedClass")
+                .addValue(createLineCoverage(1, 1));
+        packageNode.createFileNode(SAME_FILE, TreeString.valueOf("package/" + SAME_FILE))
+                .createClassNode("SameClass")
+                .addValue(createLineCoverage(1, 1));
+
+        assertThat(reference.getContentHash()).isEqualTo(current.getContentHash());
+        assertThat(new TreeDiff().compare(reference, current)).isEmpty();
+    }
+
+    @Test
+    void shouldReportChangedNodesWithDelta() {
+        var reference = createTree();
+        var current = createTree();
+        var changedClass = current.findClass("ChangedClass").orElseThrow();
+        changedClass.replaceValue(createLineCoverage(3, 1));
+
+        var changes = new TreeDiff().compare(reference, current);
+
+        assertThat(changes).extracting(Change::getType).containsOnly(ChangeType.CHANGED);
+        assertThat(changes).extracting(Change::getMetric).containsExactly(MODULE, PACKAGE, FILE, CLASS);
+        assertThat(changes).extracting(Change::getName)
+                .containsExactly("module", "package", CHANGED_FILE, "ChangedClass");
+        assertThat(changes.get(3).getCurrent()).containsSame(changedClass);
+        assertThat(changes.get(3).getReference()).contains(reference.findClass("ChangedClass").orElseThrow());
+        assertThat(changes.get(3).getDelta()).containsOnlyKeys(LINE, LOC)
+                .containsEntry(LINE, Fraction.getFraction(1, 4))
+                .containsEntry(LOC, Fraction.getFraction(2, 1));
+        assertThat(changes.get(0).getDelta()).containsOnlyKeys(LINE, LOC);
+    }
+
+    @Test
+    void shouldReportAddedAndRemovedNodesWithoutSubtrees() {
+        var reference = createTree();
+        var current = createTree();
+        var packageNode = current.findPackage("package").orElseThrow();
+        var changedFile = current.findFile(CHANGED_FILE).orElseThrow();
+        packageNode.removeChild(changedFile);
+        var addedFile = packageNode.createFileNode("Added.java", TreeString.valueOf("package/Added.java"));
+        addedFile.createClassNode("AddedClass").addValue(createLineCoverage(1, 1));
+
+        var changes = new TreeDiff().compare(reference, current);
+
+        assertThat(changes).extracting(Change::getType).containsExactly(
+                ChangeType.CHANGED, ChangeType.CHANGED, ChangeType.REMOVED, ChangeType.ADDED);
+        assertThat(changes).extracting(Change::getName)
+                .containsExactly("module", "package", CHANGED_FILE, "Added.java");
+        assertThat(changes.get(2).getNode()).isSameAs(reference.findFile(CHANGED_FILE).orElseThrow());
+        assertThat(changes.get(2).getCurrent()).isEmpty();
+        assertThat(changes.get(2).getDelta()).isEmpty();
+        assertThat(changes.get(3).getNode()).isSameAs(addedFile);
+        assertThat(changes.get(3).getReference()).isEmpty();
+    }
+
+    @Test
+    void shouldReportChangedPropertiesWithoutDelta() {
+        var reference = createTree();
+        var current = createTree();
+        ((FileNode) current.findFile(SAME_FILE).orElseThrow()).addModifiedLines(10);
+
+        var changes = new TreeDiff().compare(reference, current);
+
+        assertThat(changes).extracting(Change::getName).containsExactly("module", "package", SAME_FILE);
+        assertThat(changes).allSatisfy(change -> assertThat(change.getDelta()).isEmpty());
+    }
+
+    @Test
+    void shouldReportChangesOfCompensatingValues() {
+        var reference = createTreeWithMethod(createLineCoverage(10, 40));
+        var current = createTreeWithMethod(createLineCoverage(11, 9));
+
+        assertThat(reference.getContentHash()).isNotEqualTo(current.getContentHash());
+        assertThat(reference).isNotEqualTo(current);
+
+        var changes = new TreeDiff().compare(reference, current);
+
+        assertThat(changes).extracting(Change::getType).containsOnly(ChangeType.CHANGED);
+        assertThat(changes).extracting(Change::getMetric).containsExactly(MODULE, PACKAGE, FILE, CLASS, METHOD);
+        assertThat(changes.get(4).getDelta()).containsEntry(LINE, Fraction.getFraction(7, 20));
+    }
+
+    private ModuleNode createTreeWithMethod(final Coverage lineCoverage) {
+        var module = new ModuleNode("module");
+        module.findOrCreatePackageNode("package")
+                .createFileNode(CHANGED_FILE, TreeString.valueOf("package/" + CHANGED_FILE))
+                .createClassNode("ChangedClass")
+                .createMethodNode("method", "()V")
+                .addValue(lineCoverage);
+        return module;
+    }
+
+    @Test
+    void shouldSkipSubtreesWithCollidingHashes() {
+        var reference = createTree();
+        var current = createTree();
+        var referenceNode = new CollidingNode();
+        referenceNode.addValue(createLineCoverage(1, 1));
+        reference.findFile(SAME_FILE).orElseThrow().addChild(referenceNode);
+        var currentNode = new CollidingNode();
+        currentNode.addValue(createLineCoverage(2, 0));
+        current.findFile(SAME_FILE).orElseThrow().addChild(currentNode);
+
+        assertThat(currentNode).isNotEqualTo(referenceNode);
+        assertThat(current).isNotEqualTo(reference);
+        assertThat(new TreeDiff().compare(reference, current))
+                .as("a hash collision hides the change (see the contract of TreeDiff.compare)")
+                .isEmpty();
+    }
+
+    /**
+     * A node whose content hash ignores its values, so that nodes with different values collide.
+     */
+    private static final class CollidingNode extends Node {
+        private static final long serialVersionUID = 2295707394327512418L;
+
+        CollidingNode() {
+            super(METHOD, "colliding()");
+        }
+
+        @Override
+        protected long computeContentHash() {
+            return 42;
+        }
+
+        @Override
+        public Node copy() {
+            return new CollidingNode();
+        }
+
+        @Override
+        public boolean isAggregation() {
+            return false;
+        }
+    }
+
+    @Test
+    void shouldRejectTreesWithDifferentMetrics() {
+        var diff = new TreeDiff();
+        var module = createTree();
+        var packageNode = new PackageNode("package");
+
+        assertThatIllegalArgumentException().isThrownBy(() -> diff.compare(module, packageNode))
+                .withMessageContaining("Cannot compare nodes of different metrics");
+    }
+
+    private ModuleNode createTree() {
+        var module = new ModuleNode("module");
+        var packageNode = module.findOrCreatePackageNode("package");
+        packageNode.createFileNode(SAME_FILE, TreeString.valueOf("package/" + SAME_FILE))
+                .createClassNode("SameClass")
+                .addValue(createLineCoverage(1, 1));
+        packageNode.createFileNode(CHANGED_FILE, TreeString.valueOf("package/" + CHANGED_FILE))
+                .createClassNode("ChangedClass")
+                .addValue(createLineCoverage(1, 1));
+        return module;
+    }
+
+    private Coverage createLineCoverage(final int covered, final int missed) {
+        return new CoverageBuilder(LINE).withCovered(covered).withMissed(missed).build();
+    }
+}
@@ -0,0 +1,67 @@
+package edu.hm.hafner.coverage.parser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.hm.hafner.coverage.AbstractBenchmark;
+import edu.hm.hafner.coverage.ModuleNode;
+import edu.hm.hafner.util.FilteredLog;
+
+/**
+ * Measures the time and the allocations that are required to parse the Cobertura reports of the test resources.
+ *
+ * @author Ullrich Hafner
+ */
+@BenchmarkMode(Mode.AverageTime)
+public class CoberturaParserBenchmark extends AbstractBenchmark {
+    /**
+     * Provides the content of the report to parse.
+     */
+    @State(Scope.Benchmark)
+    public static class ReportState {
+        @Param({"cobertura.xml", "cobertura-python.xml", "cobertura-lots-of-data.xml"})
+        private String fileName = "";
+        private String content = "";
+
+        /**
+         * Reads the report into memory so that the benchmark does not measure the I/O.
+         *
+         * @throws IOException
+         *         if the report cannot be read
+         */
+        @Setup
+        public void readReport() throws IOException {
+            try (var stream = CoberturaParserBenchmark.class.getResourceAsStream("cobertura/" + fileName)) {
+                content = IOUtils.toString(Objects.requireNonNull(stream), StandardCharsets.UTF_8);
+            }
+        }
+
+        String getContent() {
+            return content;
+        }
+    }
+
+    /**
+     * Parses the report.
+     *
+     * @param state
+     *         the report to parse
+     *
+     * @return the parsed tree
+     */
+    @Benchmark
+    public ModuleNode parseCobertura(final ReportState state) {
+        return new CoberturaParser().parse(new StringReader(state.getContent()), new FilteredLog("Errors"));
+    }
+}
@@ -57,6 +57,19 @@ class CoberturaParserTest extends AbstractParserTest {
         verifyBranchCoverageOfLine61(missingCondition);
     }
 
+    @Test
+    void shouldReadConditionCoverage() {
+        var root = readReport("cobertura-condition-coverage.xml");
+
+        var file = root.getAllFileNodes().get(0);
+        assertThat(file.getCoveredCounters()).containsExactly(1, 0, 1, 0, 0, 0, 2, 0, 1);
+        assertThat(file.getMissedCounters()).containsExactly(1, 0, 3, 6, 0, 0, 0, 1, 0);
+        assertThat(file.getMissedLines()).containsExactly(2, 4, 5, 6, 8);
+
+        assertThat(root.getValue(LINE)).contains(new CoverageBuilder(LINE).withCovered(4).withMissed(5).build());
+        assertThat(root.getValue(BRANCH)).contains(new CoverageBuilder(BRANCH).withCovered(4).withMissed(10).build());
+    }
+
     private void verifyBranchCoverageOfLine61(final Node duplicateMethods) {
         var file = duplicateMethods.getAllFileNodes().get(0);
         assertThat(file.getCoveredOfLine(61)).isEqualTo(2);
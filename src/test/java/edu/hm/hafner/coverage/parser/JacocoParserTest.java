@@ -80,6 +80,21 @@ class JacocoParserTest extends AbstractParserTest {
                         new CyclomaticComplexity(14));
     }
 
+    @Test
+    void shouldMergeAllReportsInSinglePass() {
+        var a = readReport("jacoco-merge-a.xml");
+        var b = readReport("jacoco-merge-b.xml");
+        var c = readReport("jacoco-merge-c.xml");
+
+        var merged = Node.merge(List.of(a, b, c));
+
+        assertThat(merged).isEqualTo(a.merge(b).merge(c));
+        assertThat(getFileNode((ModuleNode) merged))
+                .hasCoveredLines(36, 37, 38, 39, 41, 42, 43, 46, 47, 49)
+                .hasValues(createFileCoverageForFile(0), createBranchCoverage(2, 12), new CyclomaticComplexity(14));
+        assertThat(a).isEqualTo(readReport("jacoco-merge-a.xml"));
+    }
+
     private void verifyLineCoverage(final FileNode a, final int missed) {
         var children = a.getAll(METHOD).stream()
                 .filter(m -> "<init>(II)V".equals(m.getName()))
@@ -301,6 +316,31 @@ class JacocoParserTest extends AbstractParserTest {
         assertThat(log.getPartiallyCoveredLines()).containsExactly(entry(113, 1));
     }
 
+    @Test
+    void shouldReadGroupsAsSubModules() {
+        ModuleNode tree = readReport("jacoco-big.xml");
+
+        assertThat(tree).hasName("JaCoCo");
+        assertThat(tree.getChildren()).extracting(Node::getName).containsExactly(
+                "org.jacoco.core",
+                "org.jacoco.report",
+                "org.jacoco.agent",
+                "org.jacoco.agent.rt",
+                "org.jacoco.ant",
+                "org.jacoco.cli",
+                "org.jacoco.examples",
+                "jacoco-maven-plugin");
+        assertThat(tree.getAll(MODULE)).hasSize(9);
+        assertThat(tree.getChildren()).allSatisfy(module -> assertThat(module.getMetric()).isEqualTo(MODULE));
+    }
+
+    @Test
+    void shouldReportMissingAttributes() {
+        assertThatExceptionOfType(NoSuchElementException.class)
+                .isThrownBy(() -> readReport("jacoco-missing-line-number.xml"))
+                .withMessage("Could not obtain attribute 'nr' from element 'line'");
+    }
+
     @Test
     void shouldFilterByFiles() {
         var root = readExampleReport();
@@ -0,0 +1,99 @@
+package edu.hm.hafner.coverage.registry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import edu.hm.hafner.coverage.AbstractBenchmark;
+import edu.hm.hafner.coverage.CoverageParser.ProcessingMode;
+import edu.hm.hafner.coverage.Node;
+import edu.hm.hafner.coverage.registry.ParserRegistry.CoverageParserType;
+import edu.hm.hafner.util.FilteredLog;
+
+/**
+ * Measures the time to parse and merge many reports with a different number of workers. The speedup depends on the
+ * number of available processors.
+ *
+ * @author Ullrich Hafner
+ */
+@BenchmarkMode(Mode.AverageTime)
+public class ParallelReportParserBenchmark extends AbstractBenchmark {
+    private static final int REPORTS = 64;
+
+    /**
+     * Provides the reports to parse in a temporary folder.
+     */
+    @State(Scope.Benchmark)
+    public static class ReportsState {
+        @Param({"1", "4", "16"})
+        private int parallelism;
+        private final List<Path> reports = new ArrayList<>();
+        private Path folder = Path.of(".");
+
+        /**
+         * Copies the report several times into a temporary folder.
+         *
+         * @throws IOException
+         *         if the reports cannot be copied
+         */
+        @Setup
+        public void copyReports() throws IOException {
+            folder = Files.createTempDirectory("reports");
+            for (int i = 0; i < REPORTS; i++) {
+                try (var stream = Objects.requireNonNull(ParallelReportParserBenchmark.class.getResourceAsStream(
+                        "../parser/jacoco/jacoco-analysis-model.xml"))) {
+                    var report = folder.resolve("jacoco-" + i + ".xml");
+                    Files.copy(stream, report, StandardCopyOption.REPLACE_EXISTING);
+                    reports.add(report);
+                }
+            }
+        }
+
+        /**
+         * Deletes the temporary folder.
+         *
+         * @throws IOException
+         *         if the folder cannot be deleted
+         */
+        @TearDown
+        public void deleteReports() throws IOException {
+            FileUtils.deleteDirectory(folder.toFile());
+        }
+
+        List<Path> getReports() {
+            return reports;
+        }
+
+        int getParallelism() {
+            return parallelism;
+        }
+    }
+
+    /**
+     * Parses and merges all reports.
+     *
+     * @param state
+     *         the reports to parse
+     *
+     * @return the merged tree
+     */
+    @Benchmark
+    public Node parseAndMerge(final ReportsState state) {
+        return new ParallelReportParser(CoverageParserType.JACOCO, ProcessingMode.FAIL_FAST, state.getParallelism())
+                .parse(state.getReports(), new FilteredLog("Errors"));
+    }
+}
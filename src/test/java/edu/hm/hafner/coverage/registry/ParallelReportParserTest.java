@@ -0,0 +1,142 @@
+package edu.hm.hafner.coverage.registry;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import edu.hm.hafner.coverage.CoverageParser.ProcessingMode;
+import edu.hm.hafner.coverage.ModuleNode;
+import edu.hm.hafner.coverage.Node;
+import edu.hm.hafner.coverage.parser.JacocoParser;
+import edu.hm.hafner.coverage.registry.ParserRegistry.CoverageParserType;
+import edu.hm.hafner.util.FilteredLog;
+import edu.hm.hafner.util.SecureXmlParserFactory.ParsingException;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ParallelReportParserTest {
+    private static final String MISSING = "does-not-exist.xml";
+
+    @ParameterizedTest(name = "Parallelism: {0}")
+    @ValueSource(ints = {1, 2, 3, 8})
+    void shouldParseAndMergeReports(final int parallelism) {
+        var reports = List.of("jacoco-merge-a.xml", "jacoco-merge-b.xml", "jacoco-merge-c.xml",
+                "jacoco-codingstyle.xml", "jacoco-analysis-model.xml", "jacoco-codingstyle.xml");
+        var log = new FilteredLog("Errors");
+
+        var merged = new ParallelReportParser(CoverageParserType.JACOCO, ProcessingMode.FAIL_FAST, parallelism)
+                .parse(toPaths(reports), log);
+
+        var expected = Node.merge(reports.stream().map(this::parse).collect(Collectors.toList()));
+        assertThat(merged.getName()).isEqualTo("-");
+        assertThat(merged.getChildren()).hasSize(2)
+                .allSatisfy(module -> assertThat(module).isInstanceOf(ModuleNode.class))
+                .containsExactlyInAnyOrderElementsOf(expected.getChildren());
+        assertThat(log.getErrorMessages()).isEmpty();
+    }
+
+    @Test
+    void shouldReturnModuleIfAllReportsBelongToSameModule() {
+        var reports = List.of("jacoco-merge-a.xml", "jacoco-merge-b.xml", "jacoco-merge-c.xml",
+                "jacoco-codingstyle.xml");
+        var log = new FilteredLog("Errors");
+
+        var merged = new ParallelReportParser(CoverageParserType.JACOCO, ProcessingMode.FAIL_FAST, 2)
+                .parse(toPaths(reports), log);
+
+        assertThat(merged).isInstanceOf(ModuleNode.class)
+                .isEqualTo(Node.merge(reports.stream().map(this::parse).collect(Collectors.toList())));
+        assertThat(merged.getName()).isEqualTo("Java coding style");
+    }
+
+    @Test
+    void shouldLogReportsThatCannotBeRead() {
+        var log = new FilteredLog("Errors");
+
+        var merged = new ParallelReportParser(CoverageParserType.JACOCO, ProcessingMode.IGNORE_ERRORS, 2)
+                .parse(toPaths(List.of("jacoco-merge-a.xml", MISSING)), log);
+
+        assertThat(merged).isEqualTo(parse("jacoco-merge-a.xml"));
+        assertThat(log.getErrorMessages()).anySatisfy(
+                message -> assertThat(message).contains("Can't read coverage report", MISSING));
+    }
+
+    @Test
+    void shouldMergeLogsInOrderOfReports() {
+        var log = new FilteredLog("Errors");
+        var reports = List.of("missing-1.xml", "jacoco-merge-a.xml", "missing-2.xml", "missing-3.xml",
+                "jacoco-merge-b.xml", "missing-4.xml");
+
+        var merged = new ParallelReportParser(CoverageParserType.JACOCO, ProcessingMode.IGNORE_ERRORS, 3)
+                .parse(toPaths(reports), log);
+
+        assertThat(merged).isEqualTo(Node.merge(List.of(parse("jacoco-merge-a.xml"), parse("jacoco-merge-b.xml"))));
+        assertThat(log.getErrorMessages().stream().filter(message -> message.startsWith("Can't read")))
+                .containsExactly("Can't read coverage report '" + toPath("missing-1.xml") + "'",
+                        "Can't read coverage report '" + toPath("missing-2.xml") + "'",
+                        "Can't read coverage report '" + toPath("missing-3.xml") + "'",
+                        "Can't read coverage report '" + toPath("missing-4.xml") + "'");
+    }
+
+    @Test
+    void shouldReturnEmptyModuleIfNoReportCanBeRead() {
+        var log = new FilteredLog("Errors");
+
+        var merged = new ParallelReportParser(CoverageParserType.JACOCO, ProcessingMode.IGNORE_ERRORS)
+                .parse(toPaths(List.of(MISSING)), log);
+
+        assertThat(merged).isInstanceOf(ModuleNode.class);
+        assertThat(merged.getChildren()).isEmpty();
+        assertThat(log.hasErrors()).isTrue();
+    }
+
+    @Test
+    void shouldFailFastIfReportCannotBeRead() {
+        var parser = new ParallelReportParser(CoverageParserType.JACOCO, ProcessingMode.FAIL_FAST, 2);
+        var reports = toPaths(List.of("jacoco-merge-a.xml", MISSING));
+        var log = new FilteredLog("Errors");
+
+        assertThatExceptionOfType(ParsingException.class)
+                .isThrownBy(() -> parser.parse(reports, log))
+                .withMessageContaining(MISSING);
+    }
+
+    @Test
+    void shouldRejectInvalidParallelism() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new ParallelReportParser(CoverageParserType.JACOCO, ProcessingMode.FAIL_FAST, 0))
+                .withMessageContaining("parallelism");
+    }
+
+    private List<Path> toPaths(final List<String> fileNames) {
+        return fileNames.stream().map(this::toPath).collect(Collectors.toList());
+    }
+
+    private Path toPath(final String fileName) {
+        try {
+            return Path.of(Objects.requireNonNull(
+                    JacocoParser.class.getResource("jacoco/jacoco-merge-a.xml")).toURI()).resolveSibling(fileName);
+        }
+        catch (URISyntaxException exception) {
+            throw new AssertionError(exception);
+        }
+    }
+
+    private Node parse(final String fileName) {
+        try (var reader = Files.newBufferedReader(toPath(fileName), StandardCharsets.UTF_8)) {
+            return new JacocoParser().parse(reader, new FilteredLog("Errors"));
+        }
+        catch (IOException exception) {
+            throw new AssertionError(exception);
+        }
+    }
+}